@@ -2,6 +2,8 @@ package com.gblfxt.llmoblings;
 
 import net.neoforged.neoforge.common.ModConfigSpec;
 
+import java.util.List;
+
 public class Config {
     public static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
     public static final ModConfigSpec SPEC;
@@ -11,6 +13,23 @@ public class Config {
     public static final ModConfigSpec.ConfigValue<Integer> OLLAMA_PORT;
     public static final ModConfigSpec.ConfigValue<String> OLLAMA_MODEL;
     public static final ModConfigSpec.ConfigValue<Integer> OLLAMA_TIMEOUT;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> OLLAMA_BACKENDS;
+    public static final ModConfigSpec.ConfigValue<Integer> OLLAMA_HEALTH_CHECK_INTERVAL;
+    public static final ModConfigSpec.ConfigValue<Integer> BREAKER_FAILURE_RATE;
+    public static final ModConfigSpec.ConfigValue<Integer> BREAKER_SLOW_CALL_SECONDS;
+    public static final ModConfigSpec.ConfigValue<Integer> BREAKER_OPEN_SECONDS;
+    public static final ModConfigSpec.ConfigValue<Boolean> OLLAMA_STREAM;
+    public static final ModConfigSpec.ConfigValue<Integer> OLLAMA_NUM_CTX;
+    public static final ModConfigSpec.ConfigValue<String> OLLAMA_KEEP_ALIVE;
+    public static final ModConfigSpec.ConfigValue<Boolean> OLLAMA_PRELOAD;
+    public static final ModConfigSpec.ConfigValue<Boolean> OLLAMA_USE_CONTEXT;
+    public static final ModConfigSpec.ConfigValue<Boolean> SUMMARIZE_HISTORY;
+    public static final ModConfigSpec.ConfigValue<Integer> LLM_MAX_IN_FLIGHT;
+    public static final ModConfigSpec.ConfigValue<Integer> LLM_MAX_QUEUED;
+    public static final ModConfigSpec.ConfigValue<Integer> LLM_MAX_QUEUED_PER_PLAYER;
+    public static final ModConfigSpec.ConfigValue<Integer> ACTION_CACHE_SIZE;
+    public static final ModConfigSpec.ConfigValue<Integer> ACTION_CACHE_TTL;
+    public static final ModConfigSpec.ConfigValue<String> OLLAMA_EMBED_MODEL;
 
     // Companion settings
     public static final ModConfigSpec.ConfigValue<Integer> MAX_COMPANIONS_PER_PLAYER;
@@ -19,11 +38,24 @@ public class Config {
     public static final ModConfigSpec.ConfigValue<Double> COMPANION_FOLLOW_DISTANCE;
     public static final ModConfigSpec.ConfigValue<Integer> ITEM_PICKUP_RADIUS;
     public static final ModConfigSpec.ConfigValue<Boolean> COMPANIONS_LOAD_CHUNKS;
+    public static final ModConfigSpec.ConfigValue<Double> COMPANION_TICK_BUDGET;
+    public static final ModConfigSpec.ConfigValue<Boolean> AI_LOD_ENABLED;
+    public static final ModConfigSpec.ConfigValue<Double> AI_LOD_REDUCED_DISTANCE;
+    public static final ModConfigSpec.ConfigValue<Double> AI_LOD_MINIMAL_DISTANCE;
+    public static final ModConfigSpec.ConfigValue<Integer> AI_LOD_REDUCED_INTERVAL;
+    public static final ModConfigSpec.ConfigValue<Integer> AI_LOD_MINIMAL_INTERVAL;
+    public static final ModConfigSpec.ConfigValue<Integer> DORMANT_AFTER_SECONDS;
 
     // Chat settings
     public static final ModConfigSpec.ConfigValue<String> CHAT_PREFIX;
     public static final ModConfigSpec.ConfigValue<Boolean> BROADCAST_COMPANION_CHAT;
     public static final ModConfigSpec.ConfigValue<Boolean> ALLOW_OTHER_PLAYER_INTERACTION;
+    public static final ModConfigSpec.ConfigValue<Boolean> FAST_PATH_ENABLED;
+    public static final ModConfigSpec.ConfigValue<Double> FAST_PATH_MIN_CONFIDENCE;
+    public static final ModConfigSpec.ConfigValue<Boolean> FAST_PATH_FLAVOR;
+    public static final ModConfigSpec.ConfigValue<Boolean> INTENT_ROUTER_ENABLED;
+    public static final ModConfigSpec.ConfigValue<Double> INTENT_ROUTER_MIN_SIMILARITY;
+    public static final ModConfigSpec.ConfigValue<Integer> MESSAGE_MERGE_WINDOW;
 
     static {
         BUILDER.comment("Ollama LLM Configuration").push("ollama");
@@ -44,6 +76,77 @@ public class Config {
                 .comment("Request timeout in seconds")
                 .defineInRange("timeout", 30, 5, 300);
 
+        OLLAMA_BACKENDS = BUILDER
+                .comment("Ollama servers to spread requests over, as \"host:port\" or \"host:port=model\".",
+                        "When empty, the single host/port/model above is used.")
+                .defineListAllowEmpty("backends", List.of(), () -> "localhost:11434", o -> o instanceof String);
+
+        OLLAMA_HEALTH_CHECK_INTERVAL = BUILDER
+                .comment("Seconds between health checks of each Ollama server (0 disables them)")
+                .defineInRange("healthCheckInterval", 15, 0, 3600);
+
+        BREAKER_FAILURE_RATE = BUILDER
+                .comment("Percentage of recent requests to a server that may fail or run slow before it is taken out of rotation")
+                .defineInRange("breakerFailureRate", 50, 1, 100);
+
+        BREAKER_SLOW_CALL_SECONDS = BUILDER
+                .comment("A reply taking longer than this many seconds counts as a failure for the circuit breaker")
+                .defineInRange("breakerSlowCallSeconds", 20, 1, 300);
+
+        BREAKER_OPEN_SECONDS = BUILDER
+                .comment("How long a tripped server is left alone before a single trial request is sent to it",
+                        "While every server is tripped, companions only follow plain commands like \"follow me\"")
+                .defineInRange("breakerOpenSeconds", 30, 1, 600);
+
+        OLLAMA_STREAM = BUILDER
+                .comment("Stream responses from Ollama so companions act as soon as the action is known")
+                .define("stream", true);
+
+        OLLAMA_NUM_CTX = BUILDER
+                .comment("Context window size (num_ctx) requested from Ollama; prompts are trimmed to fit it")
+                .defineInRange("contextTokens", 8192, 1024, 131072);
+
+        OLLAMA_KEEP_ALIVE = BUILDER
+                .comment("How long Ollama keeps the model loaded after a request (e.g. 30m, 2h; a negative value like -1m keeps it loaded)")
+                .define("keepAlive", "30m");
+
+        OLLAMA_PRELOAD = BUILDER
+                .comment("Load the model when the server starts so the first command doesn't wait for it")
+                .define("preloadModel", true);
+
+        OLLAMA_USE_CONTEXT = BUILDER
+                .comment("Use /api/generate and carry each companion's token context between turns, so only the new message is evaluated")
+                .define("useContextTokens", false);
+
+        SUMMARIZE_HISTORY = BUILDER
+                .comment("Condense old conversation turns into a short summary in the background instead of forgetting them")
+                .define("summarizeHistory", true);
+
+        LLM_MAX_IN_FLIGHT = BUILDER
+                .comment("Maximum number of LLM requests sent to Ollama at the same time (server-wide).",
+                        "Waiting requests don't tie up server threads, so this only needs to match what the Ollama servers can handle")
+                .defineInRange("maxConcurrentRequests", 2, 1, 1024);
+
+        LLM_MAX_QUEUED = BUILDER
+                .comment("Maximum number of LLM requests waiting for a free slot before new ones are rejected")
+                .defineInRange("maxQueuedRequests", 32, 1, 1024);
+
+        LLM_MAX_QUEUED_PER_PLAYER = BUILDER
+                .comment("Maximum number of queued LLM requests per player")
+                .defineInRange("maxQueuedPerPlayer", 4, 1, 64);
+
+        ACTION_CACHE_SIZE = BUILDER
+                .comment("Number of short commands whose parsed replies are cached server-wide (0 disables the cache)")
+                .defineInRange("actionCacheSize", 256, 0, 4096);
+
+        ACTION_CACHE_TTL = BUILDER
+                .comment("How long a cached command reply stays valid, in seconds")
+                .defineInRange("actionCacheTtl", 600, 10, 86400);
+
+        OLLAMA_EMBED_MODEL = BUILDER
+                .comment("Ollama embedding model used by the intent router (e.g., nomic-embed-text, all-minilm)")
+                .define("embeddingModel", "nomic-embed-text");
+
         BUILDER.pop();
 
         BUILDER.comment("Companion Behavior").push("companion");
@@ -72,6 +175,34 @@ public class Config {
                 .comment("Whether companions force-load their chunk (allows them to work when players are offline)")
                 .define("loadChunks", true);
 
+        COMPANION_TICK_BUDGET = BUILDER
+                .comment("Milliseconds per server tick all companions may spend on periodic upkeep (equipping, eating, chunk loading, map markers); the rest waits for the next tick. Combat is never delayed")
+                .defineInRange("tickBudgetMs", 2.0, 0.1, 50.0);
+
+        AI_LOD_ENABLED = BUILDER
+                .comment("Give companions far from every player less AI: fewer decisions, no emotes or idle chatter, slower scans for prey and threats")
+                .define("aiLod", true);
+
+        AI_LOD_REDUCED_DISTANCE = BUILDER
+                .comment("Companions further than this many blocks from the nearest player get reduced AI")
+                .defineInRange("lodReducedDistance", 48.0, 8.0, 1024.0);
+
+        AI_LOD_MINIMAL_DISTANCE = BUILDER
+                .comment("Companions further than this many blocks from the nearest player (or with no player in their dimension) get minimal AI")
+                .defineInRange("lodMinimalDistance", 128.0, 8.0, 4096.0);
+
+        AI_LOD_REDUCED_INTERVAL = BUILDER
+                .comment("Ticks between decisions with reduced AI")
+                .defineInRange("lodReducedInterval", 2, 1, 20);
+
+        AI_LOD_MINIMAL_INTERVAL = BUILDER
+                .comment("Ticks between decisions with minimal AI")
+                .defineInRange("lodMinimalInterval", 5, 1, 100);
+
+        DORMANT_AFTER_SECONDS = BUILDER
+                .comment("Mining or autonomous companions with minimal AI for this many seconds release their chunks and go dormant; their mining is estimated and caught up when their chunks load again (0 = never)")
+                .defineInRange("dormantAfterSeconds", 120, 0, 86400);
+
         BUILDER.pop();
 
         BUILDER.comment("Chat Settings").push("chat");
@@ -88,6 +219,31 @@ public class Config {
                 .comment("Whether other players (not the owner) can talk to and command companions")
                 .define("allowOtherPlayerInteraction", true);
 
+        FAST_PATH_ENABLED = BUILDER
+                .comment("Handle simple commands (follow, stay, mine 10 iron, ...) instantly without asking the LLM")
+                .define("fastPath", true);
+
+        FAST_PATH_MIN_CONFIDENCE = BUILDER
+                .comment("How sure the command parser must be before skipping the LLM (0.5 - 1.0)")
+                .defineInRange("fastPathConfidence", 0.85, 0.5, 1.0);
+
+        FAST_PATH_FLAVOR = BUILDER
+                .comment("Still ask the LLM for an in-character reply after a fast-path command (sent when it arrives)")
+                .define("fastPathFlavorText", false);
+
+        INTENT_ROUTER_ENABLED = BUILDER
+                .comment("Match free-form commands to known ones by embedding similarity before asking the LLM",
+                        "Experimental: only single plain instructions are routed; negated, conditional or multi-part ones go to the LLM")
+                .define("intentRouter", false);
+
+        INTENT_ROUTER_MIN_SIMILARITY = BUILDER
+                .comment("How similar a message must be to a known command to skip the LLM (0.5 - 1.0)")
+                .defineInRange("intentRouterSimilarity", 0.8, 0.5, 1.0);
+
+        MESSAGE_MERGE_WINDOW = BUILDER
+                .comment("Messages from the same player this many milliseconds apart are sent to the LLM as one request")
+                .defineInRange("mergeWindowMs", 600, 0, 5000);
+
         BUILDER.pop();
 
         SPEC = BUILDER.build();
@@ -1,5 +1,12 @@
 package com.gblfxt.llmoblings;
 
+import com.gblfxt.llmoblings.ai.CompanionProfiler;
+import com.gblfxt.llmoblings.ai.CompanionWorkScheduler;
+import com.gblfxt.llmoblings.ai.EmbeddingIntentRouter;
+import com.gblfxt.llmoblings.ai.LLMRequestScheduler;
+import com.gblfxt.llmoblings.ai.OllamaBackendPool;
+import com.gblfxt.llmoblings.ai.OllamaClient;
+import com.gblfxt.llmoblings.ai.SystemPromptBuilder;
 import com.gblfxt.llmoblings.command.CompanionCommand;
 import com.gblfxt.llmoblings.entity.CompanionEntity;
 import com.gblfxt.llmoblings.network.NetworkHandler;
@@ -15,6 +22,8 @@ import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.event.RegisterCommandsEvent;
 import net.neoforged.neoforge.event.entity.EntityAttributeCreationEvent;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
 import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
 import net.neoforged.neoforge.registries.DeferredHolder;
@@ -49,8 +58,11 @@ public class LLMoblings {
         modEventBus.addListener(this::registerPayloads);
 
         // Register game event listeners
+        NeoForge.EVENT_BUS.addListener(this::onServerTickStart);
         NeoForge.EVENT_BUS.addListener(this::onServerTick);
         NeoForge.EVENT_BUS.addListener(this::registerCommands);
+        NeoForge.EVENT_BUS.addListener(this::onServerStarted);
+        NeoForge.EVENT_BUS.addListener(this::onServerStopping);
 
         // Register config
         modContainer.registerConfig(ModConfig.Type.COMMON, Config.SPEC);
@@ -78,8 +90,31 @@ public class LLMoblings {
         LOGGER.info("LLMoblings commands registered");
     }
 
+    private void onServerTickStart(ServerTickEvent.Pre event) {
+        // Companion upkeep that didn't fit in the last tick's budget
+        CompanionWorkScheduler.onTickStart();
+    }
+
     private void onServerTick(ServerTickEvent.Post event) {
         // AI controllers are ticked by the entity itself in CompanionEntity.tick()
+        CompanionProfiler.onServerTick();
+    }
+
+    private void onServerStarted(ServerStartedEvent event) {
+        SystemPromptBuilder.logSummary();
+        EmbeddingIntentRouter.start();
+        OllamaBackendPool.get().startHealthChecks(Config.OLLAMA_HEALTH_CHECK_INTERVAL.get());
+        if (Config.OLLAMA_PRELOAD.get()) {
+            OllamaClient.preloadModel();
+        }
+    }
+
+    private void onServerStopping(ServerStoppingEvent event) {
+        // Drop queued LLM requests - nobody will be around to read the replies
+        LLMRequestScheduler.shutdown();
+        EmbeddingIntentRouter.shutdown();
+        OllamaBackendPool.shutdown();
+        CompanionWorkScheduler.clear();
     }
 
     public static ResourceLocation id(String path) {
@@ -0,0 +1,189 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+import com.gblfxt.llmoblings.entity.CompanionEntity;
+import com.google.gson.JsonObject;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.entity.Entity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Server-wide cache of parsed LLM replies for short, repeated commands ("follow me", "stay", ...).
+ * Keyed on a normalized form of the message, so a hit skips the Ollama round-trip entirely.
+ * Messages that depend on world context (numbers/coordinates, player names, mobs and named
+ * entities) are never cached.
+ */
+public class ActionCache {
+    // Replies to these depend on where the companion is or who is online
+    private static final Set<String> UNCACHEABLE_ACTIONS = Set.of("idle", "goto", "tpa");
+
+    private static final Pattern DIGITS = Pattern.compile("\\d");
+    private static final Pattern PUNCTUATION = Pattern.compile("[^a-z' ]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final int MAX_MESSAGE_LENGTH = 64;
+    // Named pets and other companions further away than this can't be what the message is about
+    private static final double NAMED_ENTITY_RANGE = 64;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long bypassed = 0;
+    private static long evictions = 0;
+
+    private record Entry(JsonObject action, String companionName, long createdAt) {}
+
+    /**
+     * Normalized cache key for a message, or null if the message must go to the LLM.
+     */
+    @Nullable
+    public static String keyFor(CompanionEntity companion, String message) {
+        if (Config.ACTION_CACHE_SIZE.get() <= 0) {
+            return null;
+        }
+        if (message.length() > MAX_MESSAGE_LENGTH || DIGITS.matcher(message).find()) {
+            countBypass();
+            return null;
+        }
+
+        String normalized = normalize(message);
+        String ownName = normalize(companion.getCompanionName());
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        // Mentions of players depend on who they are and where they stand
+        MinecraftServer server = companion.getServer();
+        if (server != null) {
+            for (String player : server.getPlayerList().getPlayerNamesArray()) {
+                String name = normalize(player);
+                if (!name.isEmpty() && !name.equals(ownName) && containsWord(normalized, name)) {
+                    countBypass();
+                    return null;
+                }
+            }
+        }
+
+        // So do mobs ("kill the zombies") and named pets or companions ("follow Alice")
+        if (TargetNames.mentionsEntityType(normalized) || mentionsNamedEntity(companion, normalized, ownName)) {
+            countBypass();
+            return null;
+        }
+
+        // "bob follow me" and "follow me" mean the same thing to Bob
+        if (!ownName.isEmpty()) {
+            normalized = WHITESPACE.matcher((" " + normalized + " ").replace(" " + ownName + " ", " "))
+                    .replaceAll(" ").trim();
+        }
+
+        // Replies are model-specific
+        return Config.OLLAMA_MODEL.get() + "|" + normalized;
+    }
+
+    /**
+     * Cached action for this key, with the reply addressed as this companion. Null on a miss.
+     */
+    @Nullable
+    public static synchronized CompanionAction get(String key, CompanionEntity companion) {
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        CompanionAction action = CompanionAction.fromJson(entry.action().deepCopy());
+        return action.withMessage(RequestCoalescer.substituteName(action.getMessage(),
+                entry.companionName(), companion.getCompanionName()));
+    }
+
+    public static synchronized void put(String key, CompanionEntity companion, CompanionAction action) {
+        if (UNCACHEABLE_ACTIONS.contains(action.getAction().toLowerCase(Locale.ROOT))) {
+            return;
+        }
+
+        entries.put(key, new Entry(action.toJson(), companion.getCompanionName(), System.currentTimeMillis()));
+
+        int maxSize = Config.ACTION_CACHE_SIZE.get();
+        var it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+        LLMoblings.LOGGER.debug("Cached action '{}' for: {}", action.getAction(), key);
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+    }
+
+    private static boolean isExpired(Entry entry) {
+        long ttlMillis = Config.ACTION_CACHE_TTL.get() * 1000L;
+        return System.currentTimeMillis() - entry.createdAt() > ttlMillis;
+    }
+
+    private static String normalize(String text) {
+        String lower = PUNCTUATION.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return WHITESPACE.matcher(lower).replaceAll(" ").trim();
+    }
+
+    private static boolean mentionsNamedEntity(CompanionEntity companion, String normalized, String ownName) {
+        for (Entity entity : companion.level().getEntitiesOfClass(Entity.class,
+                companion.getBoundingBox().inflate(NAMED_ENTITY_RANGE),
+                e -> e != companion && (e.hasCustomName() || e instanceof CompanionEntity))) {
+            String name = normalize(entity.getName().getString());
+            if (!name.isEmpty() && !name.equals(ownName) && containsWord(normalized, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsWord(String text, String word) {
+        return (" " + text + " ").contains(" " + word + " ");
+    }
+
+    private static synchronized void countBypass() {
+        bypassed++;
+    }
+
+    public static synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        bypassed = 0;
+        evictions = 0;
+    }
+
+    public static synchronized int getSize() {
+        return entries.size();
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getBypassed() {
+        return bypassed;
+    }
+
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,142 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Several actions from a single LLM reply ("get me 32 iron then come back and store it"),
+ * worked through in order by the companion without asking the LLM again between steps.
+ * Each step says what happens if it fails: stop the plan (the default), carry on with the next
+ * step, try it once more, or run a fallback action instead of the rest of the plan.
+ */
+public class ActionPlan {
+    // Keeps a rambling reply from queueing up an afternoon of work
+    public static final int MAX_STEPS = 8;
+
+    public enum OnFail {
+        STOP,
+        CONTINUE,
+        RETRY
+    }
+
+    public record Step(CompanionAction action, OnFail onFail, @Nullable CompanionAction fallback) {}
+
+    private final List<Step> steps;
+    private int index = -1;
+    @Nullable
+    private Step current = null;
+    private boolean retried = false;
+
+    private ActionPlan(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * Read the "steps" of a plan action. Returns null if there is nothing runnable in it.
+     */
+    @Nullable
+    public static ActionPlan fromAction(CompanionAction action) {
+        JsonArray array = action.getArray("steps");
+        if (array == null) {
+            return null;
+        }
+        List<Step> steps = new ArrayList<>();
+        for (JsonElement element : array) {
+            if (steps.size() == MAX_STEPS) {
+                break;
+            }
+            if (!element.isJsonObject() || !element.getAsJsonObject().has("action")) {
+                continue;
+            }
+            JsonObject json = element.getAsJsonObject();
+            CompanionAction stepAction = CompanionAction.fromJson(json);
+            if (stepAction.getAction().equalsIgnoreCase("plan")) {
+                continue;  // No plans within plans
+            }
+
+            OnFail onFail = OnFail.STOP;
+            CompanionAction fallback = null;
+            JsonElement failure = json.get("onFail");
+            if (failure != null && failure.isJsonObject() && failure.getAsJsonObject().has("action")) {
+                fallback = CompanionAction.fromJson(failure.getAsJsonObject());
+            } else if (failure != null && failure.isJsonPrimitive()) {
+                onFail = switch (failure.getAsString().toLowerCase(Locale.ROOT)) {
+                    case "continue", "skip", "next" -> OnFail.CONTINUE;
+                    case "retry", "again" -> OnFail.RETRY;
+                    default -> OnFail.STOP;
+                };
+            }
+            steps.add(new Step(stepAction, onFail, fallback));
+        }
+        return steps.isEmpty() ? null : new ActionPlan(steps);
+    }
+
+    /**
+     * Move on to the next step. Returns null once the plan is finished.
+     */
+    @Nullable
+    public Step next() {
+        index++;
+        retried = false;
+        current = index < steps.size() ? steps.get(index) : null;
+        return current;
+    }
+
+    /**
+     * The current step failed: returns the step to run now, or null if the plan stops here.
+     */
+    @Nullable
+    public Step afterFailure() {
+        Step failed = current;
+        if (failed == null) {
+            return null;
+        }
+        if (failed.fallback() != null) {
+            // The fallback replaces the rest of the plan
+            index = steps.size();
+            current = new Step(failed.fallback(), OnFail.STOP, null);
+            return current;
+        }
+        return switch (failed.onFail()) {
+            case RETRY -> {
+                if (!retried) {
+                    retried = true;
+                    yield failed;
+                }
+                yield stop();
+            }
+            case CONTINUE -> next();
+            case STOP -> stop();
+        };
+    }
+
+    @Nullable
+    private Step stop() {
+        index = steps.size();
+        current = null;
+        return null;
+    }
+
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * Steps after the current one that haven't run.
+     */
+    public int getRemaining() {
+        return Math.max(0, steps.size() - index - 1);
+    }
+
+    @Override
+    public String toString() {
+        return steps.stream().map(step -> step.action().getAction()).collect(Collectors.joining(" -> "));
+    }
+}
@@ -39,6 +39,7 @@ public class AutonomousTask {
     private BlockPos targetStorage = null;
     private BlockPos meAccessPoint = null;  // AE2 ME network access
     private net.minecraft.world.entity.Entity huntTarget = null;
+    private Monster patrolThreat = null;
     private BlockPos homePos = null;
     private BlockPos exploreTarget = null;
     private final List<BlockPos> visitedLocations = new ArrayList<>();
@@ -73,6 +74,10 @@ public class AutonomousTask {
         this.homePos = companion.blockPosition();
     }
 
+    public int getBaseRadius() {
+        return baseRadius;
+    }
+
     /**
      * Set the task to start in exploring mode directly.
      */
@@ -105,7 +110,9 @@ public class AutonomousTask {
 
         // Scan for storage containers
         if (ticksInState == 20) {
+            long scanStart = CompanionProfiler.start();
             scanStorage();
+            CompanionProfiler.end(CompanionProfiler.Section.STORAGE_SCAN, scanStart);
         }
 
         // Check own inventory
@@ -1076,28 +1083,26 @@ public class AutonomousTask {
         AABB patrolBox = companion.getBoundingBox().inflate(baseRadius);
         List<Monster> threats = companion.level().getEntitiesOfClass(Monster.class, patrolBox,
                 Monster::isAlive);
+        patrolThreat = threats.stream()
+                .min(Comparator.comparingDouble(m -> companion.distanceTo(m)))
+                .orElse(null);
 
-        if (!threats.isEmpty()) {
-            Monster nearest = threats.stream()
-                    .min(Comparator.comparingDouble(m -> companion.distanceTo(m)))
-                    .orElse(null);
+        Monster nearest = patrolThreat;
+        if (nearest != null) {
+            double distance = companion.distanceTo(nearest);
 
-            if (nearest != null) {
-                double distance = companion.distanceTo(nearest);
-
-                if (distance < 2.5) {
-                    companion.doHurtTarget(nearest);
-                    companion.swing(companion.getUsedItemHand());
-                } else {
-                    companion.getNavigation().moveTo(nearest, 1.2);
-                }
+            if (distance < 2.5) {
+                companion.doHurtTarget(nearest);
+                companion.swing(companion.getUsedItemHand());
+            } else {
+                companion.getNavigation().moveTo(nearest, 1.2);
+            }
 
-                if (!nearest.isAlive() && reportCooldown <= 0) {
-                    report("Threat eliminated!");
-                    reportCooldown = 100;
-                }
-                return;
+            if (!nearest.isAlive() && reportCooldown <= 0) {
+                report("Threat eliminated!");
+                reportCooldown = 100;
             }
+            return;
         }
 
         // Wander around home (within loaded chunks)
@@ -1171,6 +1176,17 @@ public class AutonomousTask {
         return currentState;
     }
 
+    /**
+     * Chasing prey or fighting off a threat - this runs every tick, however far away the players are.
+     */
+    public boolean isInCombat() {
+        return switch (currentState) {
+            case HUNTING -> huntTarget != null && huntTarget.isAlive();
+            case PATROLLING -> patrolThreat != null;
+            default -> false;
+        };
+    }
+
     public String getStatusReport() {
         return String.format("Mode: Autonomous (%s) | Food: %d | Armed: %s | Armored: %s",
                 currentState, foodCount, hasWeapon ? "Yes" : "No", hasArmor ? "Yes" : "No");
@@ -117,12 +117,18 @@ public class BuildingTask {
             case GATHERING -> tickGathering();
             case NAVIGATING_TO_STORAGE -> tickNavigatingToStorage();
             case SITE_PREP -> tickSitePrep();
-            case BUILDING -> tickBuilding();
+            case BUILDING -> {
+                long buildStart = CompanionProfiler.start();
+                tickBuilding();
+                CompanionProfiler.end(CompanionProfiler.Section.BUILDING_TICK, buildStart);
+            }
         }
 
         // Pick up nearby items periodically
-        if (companion.tickCount % 20 == 0) {
+        if (CompanionWorkScheduler.isDue(companion, 20)) {
+            long pickupStart = CompanionProfiler.start();
             pickupNearbyItems();
+            CompanionProfiler.end(CompanionProfiler.Section.ITEM_PICKUP, pickupStart);
         }
     }
 
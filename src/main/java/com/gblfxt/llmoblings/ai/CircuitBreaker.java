@@ -0,0 +1,200 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to a backend that keeps failing or answering too slowly.
+ * CLOSED: requests flow normally and the last few outcomes are tracked. OPEN: no requests
+ * until the cool-down has passed. HALF_OPEN: a single trial request decides whether the
+ * breaker closes again or reopens.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // Outcomes remembered, and how many are needed before the failure rate is trusted
+    private static final int WINDOW = 10;
+    private static final int MIN_CALLS = 4;
+
+    private final String name;
+    private final int failureRatePercent;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    // Ring of recent outcomes, true = failed or slow
+    private final boolean[] outcomes = new boolean[WINDOW];
+    private int recorded = 0;
+    private int next = 0;
+    private int bad = 0;
+
+    private State state = State.CLOSED;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+    private String lastReason = "";
+    private int timesOpened = 0;
+
+    public CircuitBreaker(String name, int failureRatePercent, long slowCallMillis, long openMillis, LongSupplier clock) {
+        this.name = name;
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.openNanos = openMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    public static CircuitBreaker fromConfig(String name) {
+        return new CircuitBreaker(name, Config.BREAKER_FAILURE_RATE.get(),
+                Config.BREAKER_SLOW_CALL_SECONDS.get() * 1000L, Config.BREAKER_OPEN_SECONDS.get() * 1000L,
+                System::nanoTime);
+    }
+
+    /**
+     * Whether a request could go through right now, without claiming the half-open trial.
+     */
+    public synchronized boolean isAvailable() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> clock.getAsLong() - openedAt >= openNanos;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    /**
+     * Claim permission to send a request. In half-open state only one caller gets it;
+     * that request must report back through {@link #onSuccess} or {@link #onFailure}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        boolean slow = latencyNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (slow) {
+                open("trial request took " + latencyNanos / 1_000_000 + " ms");
+            } else {
+                close();
+            }
+            return;
+        }
+        record(slow, slow ? "slow replies" : "");
+    }
+
+    public synchronized void onFailure(String reason) {
+        if (state == State.HALF_OPEN) {
+            open("trial request failed: " + reason);
+            return;
+        }
+        record(true, reason);
+    }
+
+    /**
+     * The request was cancelled by us; it says nothing about the backend, but frees the half-open trial.
+     */
+    public synchronized void onCancelled() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Open straight away, e.g. when the backend refused the connection outright.
+     */
+    public synchronized void trip(String reason) {
+        if (state != State.OPEN) {
+            open(reason);
+        }
+    }
+
+    /**
+     * A health check got through: let the next request try the backend without waiting out the cool-down.
+     */
+    public synchronized void onProbeSuccess() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+    }
+
+    private void record(boolean failed, String reason) {
+        if (recorded == WINDOW && outcomes[next]) {
+            bad--;
+        }
+        outcomes[next] = failed;
+        next = (next + 1) % WINDOW;
+        recorded = Math.min(recorded + 1, WINDOW);
+        if (failed) {
+            bad++;
+        }
+
+        if (state == State.CLOSED && recorded >= MIN_CALLS && bad * 100 >= failureRatePercent * recorded) {
+            open(bad + " of the last " + recorded + " requests failed (" + reason + ")");
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        trialInFlight = false;
+        lastReason = reason;
+        timesOpened++;
+        LLMoblings.LOGGER.warn("Circuit breaker for {} opened: {}", name, reason);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        recorded = 0;
+        next = 0;
+        bad = 0;
+        LLMoblings.LOGGER.info("Circuit breaker for {} closed again", name);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized String getLastReason() {
+        return lastReason;
+    }
+
+    public synchronized int getTimesOpened() {
+        return timesOpened;
+    }
+
+    /**
+     * Seconds until an open breaker lets a trial request through (0 if not open).
+     */
+    public synchronized long getSecondsUntilRetry() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, (openNanos - (clock.getAsLong() - openedAt)) / 1_000_000_000L);
+    }
+
+    /**
+     * Failed share of the recent requests, in percent.
+     */
+    public synchronized int getFailureRate() {
+        return recorded == 0 ? 0 : bad * 100 / recorded;
+    }
+}
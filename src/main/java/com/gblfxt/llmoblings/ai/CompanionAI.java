@@ -1,5 +1,6 @@
 package com.gblfxt.llmoblings.ai;
 
+import com.gblfxt.llmoblings.ChunkLoadingManager;
 import com.gblfxt.llmoblings.Config;
 import com.gblfxt.llmoblings.LLMoblings;
 import com.gblfxt.llmoblings.ai.blueprints.CottageBlueprint;
@@ -9,6 +10,7 @@ import com.gblfxt.llmoblings.compat.CobblemonIntegration;
 import com.gblfxt.llmoblings.compat.SophisticatedBackpacksIntegration;
 import com.gblfxt.llmoblings.entity.CompanionEntity;
 import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
@@ -19,6 +21,7 @@ import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.monster.Monster;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.phys.AABB;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.BedBlock;
 import net.minecraft.world.level.block.state.BlockState;
@@ -29,10 +32,14 @@ import net.minecraft.world.item.SwordItem;
 import net.minecraft.world.item.AxeItem;
 import net.minecraft.world.item.ArmorItem;
 import net.minecraft.world.entity.EquipmentSlot;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class CompanionAI {
     private final CompanionEntity companion;
@@ -43,13 +50,43 @@ public class CompanionAI {
     private AIState currentState = AIState.IDLE;
     private CompletableFuture<CompanionAction> pendingAction = null;
 
+    // Results from LLM request threads, handed over to the server thread and run in tick()
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+    // Bumped whenever a new message supersedes the one being thought about; stale results are dropped
+    private int chatGeneration = 0;
+    // Action streamed ahead of the full reply and already acted on
+    private CompanionAction dispatchedEarlyAction = null;
+    // What the pending request was about, so a quick follow-up can be merged into it
+    private String pendingMessage = null;
+    private Player pendingSender = null;
+
+    // Owner messages waiting for the LLM, merged while the player is still typing
+    private final CompanionInbox inbox = new CompanionInbox();
+    private final MovementController movement;
+    private final CompanionLOD lod;
+
     // Task-specific data
     private BlockPos targetPos = null;
+    // Going somewhere gives up after this long without getting any closer
+    private static final int GO_TO_GIVE_UP_TICKS = 300;
+    private BlockPos goToTracked = null;
+    private double goToClosest = Double.MAX_VALUE;
+    private long goToProgressTime = 0;
     private Entity targetEntity = null;
     private MiningTask miningTask = null;
     private AutonomousTask autonomousTask = null;
     private BuildingTask buildingTask = null;
 
+    // Set while dormant: nobody near, chunk tickets released, the task simulated instead of run
+    @Nullable
+    private DormantTask dormant = null;
+    private int unwatchedTicks = 0;
+
+    // Multi-step plan being worked through, the state its current step started in, and whether that step has failed
+    private ActionPlan activePlan = null;
+    private AIState planStepState = AIState.IDLE;
+    private boolean planStepFailed = false;
+
     // Pokemon buddy (Cobblemon integration)
     private Entity pokemonBuddy = null;
     private String pokemonBuddyName = null;
@@ -66,13 +103,29 @@ public class CompanionAI {
 
     public CompanionAI(CompanionEntity companion) {
         this.companion = companion;
-        this.ollamaClient = new OllamaClient(companion.getCompanionName());
+        this.ollamaClient = new OllamaClient(companion::getCompanionName);
         this.personality = new CompanionPersonality(companion);
+        this.movement = new MovementController(companion);
+        this.lod = new CompanionLOD(companion);
     }
 
     public void tick() {
+        lod.update();
+
+        if (dormant != null) {
+            if (lod.getTier() == CompanionLOD.Tier.MINIMAL) {
+                return;
+            }
+            wake();
+        }
+        unwatchedTicks = lod.getTier() == CompanionLOD.Tier.MINIMAL ? unwatchedTicks + 1 : 0;
+        if (shouldGoDormant()) {
+            goDormant();
+            return;
+        }
+
         // Tick personality for random chatter/emotes
-        personality.tick();
+        personality.tick(lod.showsCosmetics());
 
         // Tick Pokemon buddy to follow companion
         tickPokemonBuddy();
@@ -80,38 +133,204 @@ public class CompanionAI {
         // Check if owner just came nearby (for greetings)
         checkOwnerProximity();
 
-        // Check for pending LLM response
-        if (pendingAction != null && pendingAction.isDone()) {
-            try {
-                CompanionAction action = pendingAction.get();
-                executeAction(action);
-            } catch (Exception e) {
-                LLMoblings.LOGGER.error("Error getting LLM response: ", e);
+        // Streamed actions, LLM replies and flavor text that arrived since the last tick
+        Runnable completion;
+        while ((completion = completions.poll()) != null) {
+            completion.run();
+        }
+
+        // Hand the next batch of messages to the LLM once its sender has stopped typing
+        if (pendingAction == null) {
+            CompanionInbox.Batch batch = inbox.poll(serverTick());
+            if (batch != null) {
+                dispatch(batch.message(), batch.sender());
             }
-            pendingAction = null;
         }
 
-        // Execute current state behavior
-        switch (currentState) {
-            case FOLLOWING -> tickFollow();
-            case GOING_TO -> tickGoTo();
-            case MINING -> tickMining();
-            case ATTACKING -> tickAttacking();
-            case DEFENDING -> tickDefending();
-            case AUTONOMOUS -> tickAutonomous();
-            case BUILDING -> tickBuilding();
-            case IDLE -> tickIdle();
+        // Execute current state behavior - far from players, some states decide less often
+        if (lod.isDue() || !isThrottledByLOD(currentState) || isFightingAutonomously()) {
+            CompanionProfiler.Section section = CompanionProfiler.Section.forState(currentState);
+            long sectionStart = CompanionProfiler.start();
+            switch (currentState) {
+                case FOLLOWING -> tickFollow();
+                case GOING_TO -> tickGoTo();
+                case MINING -> tickMining();
+                case ATTACKING -> tickAttacking();
+                case DEFENDING -> tickDefending();
+                case AUTONOMOUS -> tickAutonomous();
+                case BUILDING -> tickBuilding();
+                case IDLE -> tickIdle();
+            }
+            CompanionProfiler.end(section, sectionStart);
+        }
+
+        // Start the next step of a plan once the current one is over
+        if (activePlan != null) {
+            tickPlan();
         }
     }
 
+    private boolean shouldGoDormant() {
+        int after = Config.DORMANT_AFTER_SECONDS.get() * 20;
+        if (after <= 0 || unwatchedTicks < after || pendingAction != null || activePlan != null) {
+            return false;
+        }
+        boolean working = (currentState == AIState.MINING && miningTask != null)
+                || (currentState == AIState.AUTONOMOUS && autonomousTask != null);
+        return working && ChunkLoadingManager.isChunkLoadingEnabled(companion);
+    }
+
+    /**
+     * Nobody has been near for a while: stop ticking the task, release the chunk tickets and let the
+     * chunks unload. What the task would have done is worked out when the companion wakes.
+     */
+    private void goDormant() {
+        long now = companion.level().getGameTime();
+        dormant = currentState == AIState.MINING
+                ? DormantTask.mining(miningTask, companion.blockPosition(), now)
+                : DormantTask.autonomous(autonomousTask, companion.blockPosition(), now);
+        miningTask = null;
+        autonomousTask = null;
+        currentState = AIState.IDLE;
+        movement.stop();
+        ChunkLoadingManager.stopLoadingChunks(companion);
+        LLMoblings.LOGGER.info("[{}] No players nearby, going dormant ({})", companion.getCompanionName(), dormant);
+    }
+
+    /**
+     * A player is near again: take the chunks back, catch up on the simulated work and carry on.
+     */
+    private void wake() {
+        DormantTask task = dormant;
+        dormant = null;
+        unwatchedTicks = 0;
+        ChunkLoadingManager.startLoadingChunks(companion);
+
+        // Given something else to do in the meantime: the new order wins
+        if (currentState != AIState.IDLE || miningTask != null || autonomousTask != null || activePlan != null) {
+            LLMoblings.LOGGER.debug("[{}] Woke with a new job, dropping the dormant one", companion.getCompanionName());
+            return;
+        }
+
+        // Summoned somewhere else after being dismissed: the old job is gone
+        if (companion.blockPosition().distSqr(task.pos()) > 16 * 16) {
+            LLMoblings.LOGGER.debug("[{}] Woke away from the dormant task, dropping it", companion.getCompanionName());
+            return;
+        }
+
+        if (task.state() == AIState.AUTONOMOUS) {
+            autonomousTask = new AutonomousTask(companion, task.radius());
+            currentState = AIState.AUTONOMOUS;
+            return;
+        }
+
+        long now = companion.level().getGameTime();
+        int simulated = task.simulatedBlocks(now);
+        MiningTask resumed = new MiningTask(companion, task.blockName(), task.remaining(), task.radius());
+        if (resumed.isFailed()) {
+            return;
+        }
+        // Caught up over the next ticks by tickMining, not all at once
+        resumed.startCatchUp(simulated);
+        LLMoblings.LOGGER.info("[{}] Woke after {}s dormant: catching up on an estimated {} {}", companion.getCompanionName(),
+                (now - task.since()) / 20, simulated, task.blockName());
+        miningTask = resumed;
+        currentState = AIState.MINING;
+    }
+
+    public boolean isDormant() {
+        return dormant != null;
+    }
+
+    @Nullable
+    public CompoundTag saveDormant() {
+        return dormant != null ? dormant.save() : null;
+    }
+
+    public void loadDormant(CompoundTag tag) {
+        dormant = DormantTask.load(tag);
+    }
+
+    /**
+     * Fights, mining and building keep their pace in every LOD tier.
+     */
+    private static boolean isThrottledByLOD(AIState state) {
+        return switch (state) {
+            case FOLLOWING, GOING_TO, AUTONOMOUS, IDLE -> true;
+            case MINING, ATTACKING, DEFENDING, BUILDING -> false;
+        };
+    }
+
+    // Autonomous hunting and patrol fights keep the combat pace, like ATTACKING and DEFENDING
+    private boolean isFightingAutonomously() {
+        return currentState == AIState.AUTONOMOUS && autonomousTask != null && autonomousTask.isInCombat();
+    }
+
     public void processMessage(String message) {
         processMessage(message, companion.getOwner());
     }
 
     public void processMessage(String message, Player sender) {
-        if (pendingAction != null && !pendingAction.isDone()) {
-            // Already processing a message, queue or ignore
-            sendMessageTo(sender, "I'm still thinking about your last request...");
+        // Spoken to while dormant: wake first, so the reply acts on the restored job rather than being overwritten by it
+        if (dormant != null) {
+            wake();
+        }
+
+        // Unambiguous commands don't need the LLM, and take over from anything still being thought about
+        if (tryFastPath(message, sender)) {
+            return;
+        }
+
+        // "stop", "come here", "never mind": drop whatever is being thought about and act now
+        CompanionAction urgent = IntentClassifier.urgentAction(message, companion.getCompanionName());
+        if (urgent != null) {
+            LLMoblings.LOGGER.info("[{}] Urgent message from {}: {}", companion.getCompanionName(),
+                    sender != null ? sender.getName().getString() : "unknown", urgent.getAction());
+            cancelPending();
+            inbox.clear();
+            this.commandGiver = sender;
+            executeAction(urgent);
+            ollamaClient.recordExchange(message, urgent);
+            return;
+        }
+
+        // Every Ollama backend is down or struggling: answer locally right away instead of waiting it out
+        if (!OllamaBackendPool.get().isAvailable()) {
+            processOffline(message, sender);
+            return;
+        }
+
+        // Nothing else going on: a repeated short command is answered from the cache straight away
+        if (pendingAction == null && inbox.isEmpty() && tryActionCache(message, sender)) {
+            return;
+        }
+
+        long now = serverTick();
+        long mergeWindow = (Config.MESSAGE_MERGE_WINDOW.get() + 49) / 50;
+        if (pendingAction != null && Objects.equals(pendingSender, sender) && dispatchedEarlyAction == null) {
+            // Still thinking about this player's last message and not acting on it yet: think about both together
+            LLMoblings.LOGGER.debug("[{}] Merging a follow-up into the request still in flight", companion.getCompanionName());
+            String previous = pendingMessage;
+            cancelPending();
+            inbox.requeue(previous, sender, now, mergeWindow);
+        }
+        inbox.add(message, sender, now, mergeWindow);
+    }
+
+    /**
+     * The inbox runs on the server tick, the same clock {@link RequestCoalescer} merges requests by.
+     */
+    private long serverTick() {
+        MinecraftServer server = companion.getServer();
+        return server != null ? server.getTickCount() : 0;
+    }
+
+    /**
+     * Send a batch of messages from the inbox to the LLM.
+     */
+    private void dispatch(String message, Player sender) {
+        if (!OllamaBackendPool.get().isAvailable()) {
+            processOffline(message, sender);
             return;
         }
 
@@ -120,8 +339,49 @@ public class CompanionAI {
 
         LLMoblings.LOGGER.info("[{}] Processing message from {}: {}", companion.getCompanionName(),
                 sender != null ? sender.getName().getString() : "unknown", message);
+
+        if (tryActionCache(message, sender)) {
+            return;
+        }
+
         sendMessageToAll("Thinking...");
-        pendingAction = ollamaClient.chat(message);
+        pendingMessage = message;
+        pendingSender = sender;
+        submitChat(message, LLMRequestScheduler.Priority.OWNER_COMMAND, sender, ActionCache.keyFor(companion, message));
+    }
+
+    /**
+     * Repeated short commands are answered from the cache without asking the LLM.
+     */
+    private boolean tryActionCache(String message, Player sender) {
+        String cacheKey = ActionCache.keyFor(companion, message);
+        if (cacheKey == null) {
+            return false;
+        }
+        CompanionAction cached = ActionCache.get(cacheKey, companion);
+        if (cached == null) {
+            return false;
+        }
+        LLMoblings.LOGGER.debug("[{}] Action cache hit: {}", companion.getCompanionName(), cacheKey);
+        LLMTelemetry.recordReply(companion.getCompanionName(), LLMTelemetry.Source.CACHE);
+        this.commandGiver = sender;
+        ollamaClient.recordExchange(message, cached);
+        executeAction(cached);
+        return true;
+    }
+
+    /**
+     * Drop the request still being thought about, aborting its HTTP call, and anything it would still deliver.
+     */
+    private void cancelPending() {
+        if (pendingAction != null) {
+            pendingAction.cancel(true);
+            pendingAction = null;
+        }
+        chatGeneration++;
+        dispatchedEarlyAction = null;
+        pendingMessage = null;
+        pendingSender = null;
     }
 
     /**
@@ -129,6 +389,11 @@ public class CompanionAI {
      * They can chat but not give commands.
      */
     public void processMessageFromStranger(Player stranger, String message) {
+        if (!OllamaBackendPool.get().isAvailable()) {
+            sendMessageTo(stranger, "Sorry, I can't really chat right now.");
+            return;
+        }
+
         if (pendingAction != null && !pendingAction.isDone()) {
             sendMessageTo(stranger, "I'm still thinking about something...");
             return;
@@ -142,7 +407,129 @@ public class CompanionAI {
                 " (not my owner) says: " + message + ". I should be friendly but I only take commands from my owner.]";
 
         sendMessageToAll("Hmm?");
-        pendingAction = ollamaClient.chat(contextMessage);
+        pendingMessage = contextMessage;
+        pendingSender = stranger;
+        submitChat(contextMessage, LLMRequestScheduler.Priority.STRANGER_CHAT, stranger, null);
+    }
+
+    /**
+     * Send the message to the LLM. Nothing blocks here: the streamed action and the final reply
+     * are queued for the server thread as they arrive and handled in {@link #tick()}.
+     */
+    private void submitChat(String message, LLMRequestScheduler.Priority priority, Player sender,
+                            @Nullable String cacheKey) {
+        dispatchedEarlyAction = null;
+        int generation = ++chatGeneration;
+        CompletableFuture<CompanionAction> future = RequestCoalescer.chat(companion, ollamaClient, message, priority, sender,
+                action -> completions.add(() -> {
+                    // Ignore actions streamed for a request that has since been superseded
+                    if (generation == chatGeneration) {
+                        dispatchedEarlyAction = action;
+                        executeAction(action);
+                    }
+                }));
+        pendingAction = future;
+
+        future.whenComplete((action, error) -> {
+            if (error == null && cacheKey != null) {
+                ActionCache.put(cacheKey, companion, action);
+            }
+            completions.add(() -> {
+                if (generation != chatGeneration) {
+                    return;
+                }
+                if (error != null) {
+                    LLMoblings.LOGGER.error("Error getting LLM response: ", error);
+                } else {
+                    completeAction(action);
+                }
+                pendingAction = null;
+                dispatchedEarlyAction = null;
+                pendingMessage = null;
+                pendingSender = null;
+            });
+        });
+    }
+
+    /**
+     * Degraded mode: the cached reply or the keyword parse, with no LLM call and no waiting.
+     */
+    private void processOffline(String message, Player sender) {
+        // Whatever was still being thought about won't be answered any time soon
+        cancelPending();
+
+        this.commandGiver = sender;
+
+        String cacheKey = ActionCache.keyFor(companion, message);
+        CompanionAction action = cacheKey != null ? ActionCache.get(cacheKey, companion) : null;
+        if (action == null) {
+            action = IntentClassifier.parseOffline(message);
+        }
+        LLMoblings.LOGGER.info("[{}] LLM unavailable, handled '{}' locally as {}", companion.getCompanionName(),
+                message, action.getAction());
+        LLMTelemetry.recordReply(companion.getCompanionName(), LLMTelemetry.Source.OFFLINE);
+
+        ollamaClient.recordExchange(message, action);
+        executeAction(action);
+    }
+
+    /**
+     * Run the message straight away if the keyword classifier is confident it is a plain command.
+     */
+    private boolean tryFastPath(String message, Player sender) {
+        if (!Config.FAST_PATH_ENABLED.get()) {
+            return false;
+        }
+        IntentClassifier.Intent intent = IntentClassifier.classify(message);
+        if (intent == null || intent.confidence() < Config.FAST_PATH_MIN_CONFIDENCE.get()) {
+            return false;
+        }
+
+        CompanionAction action = intent.action();
+        LLMoblings.LOGGER.info("[{}] Fast-path command from {}: {} (confidence {})", companion.getCompanionName(),
+                sender != null ? sender.getName().getString() : "unknown", action.getAction(),
+                String.format("%.2f", intent.confidence()));
+        LLMTelemetry.recordReply(companion.getCompanionName(), LLMTelemetry.Source.FAST_PATH);
+
+        // Drop any reply still on its way for an earlier message, and the messages waiting behind it
+        cancelPending();
+        inbox.clear();
+        int generation = chatGeneration;
+
+        this.commandGiver = sender;
+        executeAction(action);
+
+        if (Config.FAST_PATH_FLAVOR.get()) {
+            // Only keep the reply if the LLM understood the same command
+            String actionName = action.getAction();
+            ollamaClient.chat(message, LLMRequestScheduler.Priority.BACKGROUND,
+                            sender != null ? sender.getUUID() : null, null)
+                    .thenAccept(reply -> completions.add(() -> {
+                        String flavor = reply.getMessage();
+                        if (generation == chatGeneration && reply.getAction().equalsIgnoreCase(actionName)
+                                && flavor != null && !flavor.isEmpty()) {
+                            sendMessage(flavor);
+                        }
+                    }));
+        } else {
+            ollamaClient.recordExchange(message, action);
+        }
+        return true;
+    }
+
+    /**
+     * Handle the full LLM reply. If the same action was already dispatched from the stream,
+     * only the message text is still outstanding; if the full reply differs (say, in its count),
+     * the full reply wins.
+     */
+    private void completeAction(CompanionAction action) {
+        if (dispatchedEarlyAction != null && dispatchedEarlyAction.sameCommandAs(action)) {
+            if (action.getMessage() != null && !action.getMessage().isEmpty()) {
+                sendMessage(action.getMessage());
+            }
+            return;
+        }
+        executeAction(action);
     }
 
     private void sendMessageTo(Player player, String message) {
@@ -152,7 +539,15 @@ public class CompanionAI {
         }
     }
 
+    /**
+     * Carry out a new instruction. Whatever plan was running is dropped.
+     */
     private void executeAction(CompanionAction action) {
+        activePlan = null;
+        performAction(action);
+    }
+
+    private void performAction(CompanionAction action) {
         // Send message if present
         if (action.getMessage() != null && !action.getMessage().isEmpty()) {
             sendMessage(action.getMessage());
@@ -202,6 +597,7 @@ public class CompanionAI {
             case "idle" -> {
                 currentState = AIState.IDLE;
             }
+            case "plan" -> startPlan(action);
             case "setbed" -> findAndSetBed();
             case "sethome" -> setHomeHere();
             case "home" -> goHome();
@@ -267,6 +663,74 @@ public class CompanionAI {
         }
     }
 
+    private void startPlan(CompanionAction action) {
+        ActionPlan plan = ActionPlan.fromAction(action);
+        if (plan == null) {
+            LLMoblings.LOGGER.warn("[{}] Plan without usable steps: {}", companion.getCompanionName(), action);
+            currentState = AIState.IDLE;
+            return;
+        }
+        LLMoblings.LOGGER.debug("[{}] Starting plan: {}", companion.getCompanionName(), plan);
+        activePlan = plan;
+        runPlanStep(plan.next());
+    }
+
+    private void runPlanStep(@Nullable ActionPlan.Step step) {
+        if (step == null) {
+            if (activePlan != null && activePlan.size() > 1) {
+                sendMessage("All done!");
+            }
+            activePlan = null;
+            return;
+        }
+        planStepFailed = false;
+        performAction(step.action());
+        planStepState = currentState;
+    }
+
+    /**
+     * A step is over when the companion is back to idle with nothing left to hand over at storage,
+     * or when the step itself put it in an open-ended state (following, defending, autonomous)
+     * that never finishes by itself.
+     */
+    private boolean isPlanStepOver() {
+        if (pendingDepositRequest != null || pendingGearRequest != null) {
+            return false;
+        }
+        return switch (currentState) {
+            case IDLE -> true;
+            case FOLLOWING, DEFENDING, AUTONOMOUS -> currentState == planStepState;
+            case GOING_TO, MINING, ATTACKING, BUILDING -> false;
+        };
+    }
+
+    private void tickPlan() {
+        ActionPlan plan = activePlan;
+        if (planStepFailed) {
+            int left = plan.getRemaining();
+            ActionPlan.Step next = plan.afterFailure();
+            if (next == null) {
+                activePlan = null;
+                if (left > 0) {
+                    sendMessage("I'll stop there and skip the rest of the plan.");
+                }
+                return;
+            }
+            runPlanStep(next);
+            return;
+        }
+        if (isPlanStepOver()) {
+            runPlanStep(plan.next());
+        }
+    }
+
+    /**
+     * The task just started or running gave up; a plan decides from its step's onFail what happens next.
+     */
+    private void onTaskFailed() {
+        planStepFailed = true;
+    }
+
     // State behaviors
     private void tickFollow() {
         // Follow whoever gave the command, or owner if no one specified
@@ -281,10 +745,10 @@ public class CompanionAI {
 
         if (distance > followDist) {
             // Move towards target
-            companion.getNavigation().moveTo(followTarget, 1.0);
+            movement.moveTo(followTarget, 1.0);
         } else if (distance < followDist - 1) {
             // Close enough, stop
-            companion.getNavigation().stop();
+            movement.stop();
         }
 
         // Teleport if too far
@@ -301,6 +765,16 @@ public class CompanionAI {
         }
 
         double distance = companion.position().distanceTo(Vec3.atCenterOf(targetPos));
+        long now = companion.level().getGameTime();
+        if (!targetPos.equals(goToTracked)) {
+            goToTracked = targetPos;
+            goToClosest = distance;
+            goToProgressTime = now;
+        } else if (distance < goToClosest - 1.0) {
+            goToClosest = distance;
+            goToProgressTime = now;
+        }
+
         if (distance < 3.0) {
             // Check for pending gear request first
             if (pendingGearRequest != null && companion.level() instanceof ServerLevel serverLevel) {
@@ -323,6 +797,15 @@ public class CompanionAI {
             sendMessage("I've arrived at the destination.");
             currentState = AIState.IDLE;
             targetPos = null;
+        } else if (now - goToProgressTime > GO_TO_GIVE_UP_TICKS) {
+            sendMessage(pendingDepositRequest != null || pendingGearRequest != null
+                    ? "I can't reach the storage, giving up." : "I can't find a way there, giving up.");
+            pendingDepositRequest = null;
+            pendingGearRequest = null;
+            targetPos = null;
+            companion.getNavigation().stop();
+            currentState = AIState.IDLE;
+            onTaskFailed();
         } else if (companion.getNavigation().isDone()) {
             // Recalculate path
             companion.getNavigation().moveTo(targetPos.getX(), targetPos.getY(), targetPos.getZ(), 1.0);
@@ -335,6 +818,23 @@ public class CompanionAI {
             return;
         }
 
+        // Catching up after waking from dormancy, in slices that go through the tick budget
+        MiningTask task = miningTask;
+        if (task.isCatchingUp()) {
+            CompanionWorkScheduler.submit(companion, CompanionWorkScheduler.Priority.LOW, "catch-up", () -> {
+                if (miningTask == task) {
+                    task.catchUpStep();
+                }
+            });
+            if (task.isCatchingUp()) {
+                return;
+            }
+        }
+        int caughtUp = task.takeCatchUpResult();
+        if (caughtUp > 0) {
+            sendMessage("While nobody was around I mined " + caughtUp + " " + task.getTargetBlockName() + ".");
+        }
+
         // Tick the mining task
         miningTask.tick();
 
@@ -353,16 +853,17 @@ public class CompanionAI {
             personality.doSadEmote();
             miningTask = null;
             currentState = AIState.IDLE;
+            onTaskFailed();
             return;
         }
 
         // Random mining chatter
-        if (companion.tickCount % 200 == 0 && companion.getRandom().nextInt(3) == 0) {
+        if (CompanionWorkScheduler.isDue(companion, 200) && companion.getRandom().nextInt(3) == 0) {
             personality.onTaskStart("mining");
         }
 
         // Progress report every 5 seconds
-        if (companion.tickCount % 100 == 0) {
+        if (CompanionWorkScheduler.isDue(companion, 100)) {
             sendMessage("Mining " + miningTask.getTargetBlockName() + "... (" +
                 miningTask.getMinedCount() + "/" + miningTask.getTargetCount() + ")");
         }
@@ -398,11 +899,11 @@ public class CompanionAI {
             }
         } else {
             // Move towards target aggressively
-            companion.getNavigation().moveTo(targetEntity, 1.4);  // Faster movement in combat
+            movement.moveTo(targetEntity, 1.4);  // Faster movement in combat
         }
 
         // Combat chatter every 5 seconds
-        if (companion.tickCount % 100 == 0) {
+        if (CompanionWorkScheduler.isDue(companion, 100)) {
             String targetName = targetEntity.hasCustomName() ?
                     targetEntity.getCustomName().getString() :
                     targetEntity.getType().getDescription().getString();
@@ -456,7 +957,7 @@ public class CompanionAI {
                         personality.onCombat();
                     }
                 } else {
-                    companion.getNavigation().moveTo(targetEntity, 1.4);
+                    movement.moveTo(targetEntity, 1.4);
                 }
             }
         } else {
@@ -497,18 +998,19 @@ public class CompanionAI {
             personality.doSadEmote();
             buildingTask = null;
             currentState = AIState.IDLE;
+            onTaskFailed();
             return;
         }
 
         // Progress report every 5 seconds
-        if (companion.tickCount % 100 == 0) {
+        if (CompanionWorkScheduler.isDue(companion, 100)) {
             sendMessage(buildingTask.getProgressReport());
         }
     }
 
     private void tickIdle() {
         // Occasionally look around
-        if (companion.getRandom().nextInt(100) == 0) {
+        if (lod.showsCosmetics() && companion.getRandom().nextInt(100) == 0) {
             companion.setYRot(companion.getYRot() + (companion.getRandom().nextFloat() - 0.5F) * 30);
         }
     }
@@ -539,7 +1041,7 @@ public class CompanionAI {
 
     private void stopAndStay() {
         currentState = AIState.IDLE;
-        companion.getNavigation().stop();
+        movement.stop();
         sendMessage("Staying here.");
     }
 
@@ -563,6 +1065,7 @@ public class CompanionAI {
             sendMessage(miningTask.getFailReason());
             personality.doSadEmote();
             miningTask = null;
+            onTaskFailed();
             return;
         }
 
@@ -665,6 +1168,7 @@ public class CompanionAI {
 
         if (blueprint == null) {
             sendMessage("I don't know how to build a " + structureType + ". I can build: cottage");
+            onTaskFailed();
             return;
         }
 
@@ -695,7 +1199,7 @@ public class CompanionAI {
             }
 
             // Make buddy follow companion (every 20 ticks = 1 second)
-            if (companion.tickCount % 20 == 0) {
+            if (CompanionWorkScheduler.isDue(companion, 20)) {
                 double distance = companion.distanceTo(pokemonBuddy);
 
                 // If too far, teleport the buddy
@@ -1249,7 +1753,7 @@ public class CompanionAI {
         Player owner = companion.getOwner();
         if (owner != null) {
             // Run to owner
-            companion.getNavigation().moveTo(owner, 1.5);
+            movement.moveTo(owner, 1.5);
         }
         currentState = AIState.FOLLOWING;
         sendMessage("Retreating!");
@@ -1546,6 +2050,7 @@ public class CompanionAI {
     private void getGearFromME(String material) {
         if (!AE2Integration.isAE2Loaded()) {
             sendMessage("I can't find an ME network here!");
+            onTaskFailed();
             return;
         }
 
@@ -1560,6 +2065,7 @@ public class CompanionAI {
 
         if (meAccessPoints.isEmpty()) {
             sendMessage("I can't find an ME terminal nearby!");
+            onTaskFailed();
             return;
         }
 
@@ -1587,6 +2093,7 @@ public class CompanionAI {
         double distance = companion.position().distanceTo(net.minecraft.world.phys.Vec3.atCenterOf(terminal));
         if (distance < 5.0) {
             retrieveOrCraftGear(serverLevel, terminal, targetItems, material);
+            targetPos = null;
         } else {
             // Store pending gear request for when we arrive
             pendingGearRequest = new GearRequest(terminal, targetItems, material);
@@ -1759,6 +2266,7 @@ public class CompanionAI {
         }
 
         sendMessage("I can't find any storage nearby!");
+        onTaskFailed();
     }
 
     private DepositRequest pendingDepositRequest = null;
@@ -1798,6 +2306,7 @@ public class CompanionAI {
         }
 
         pendingDepositRequest = null;
+        targetPos = null;
         currentState = AIState.IDLE;
     }
 
@@ -2282,6 +2791,26 @@ public class CompanionAI {
         return currentState;
     }
 
+    public MovementController getMovement() {
+        return movement;
+    }
+
+    public CompanionLOD getLevelOfDetail() {
+        return lod;
+    }
+
+    /**
+     * Conversation history to save with the companion, or null if it hasn't talked to anyone.
+     */
+    @Nullable
+    public byte[] saveChatHistory() {
+        return ollamaClient.saveHistory();
+    }
+
+    public void loadChatHistory(byte[] data) {
+        ollamaClient.loadHistory(data);
+    }
+
     public void onCompanionHurt() {
         personality.onHurt();
     }
@@ -1,5 +1,6 @@
 package com.gblfxt.llmoblings.ai;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,6 +25,41 @@ public class CompanionAction {
         return new CompanionAction(action, message, json);
     }
 
+    /**
+     * Copy of this action with a different message (parameters are copied too).
+     */
+    public CompanionAction withMessage(@Nullable String newMessage) {
+        return new CompanionAction(action, newMessage, data.deepCopy());
+    }
+
+    /**
+     * JSON form of this action, as the LLM would have written it.
+     */
+    public JsonObject toJson() {
+        JsonObject json = data.deepCopy();
+        json.addProperty("action", action);
+        if (message != null) {
+            json.addProperty("message", message);
+        } else {
+            json.remove("message");
+        }
+        return json;
+    }
+
+    /**
+     * Whether both are the same command with the same parameters, whatever they say.
+     */
+    public boolean sameCommandAs(CompanionAction other) {
+        return action.equalsIgnoreCase(other.action) && parameters().equals(other.parameters());
+    }
+
+    private JsonObject parameters() {
+        JsonObject parameters = data.deepCopy();
+        parameters.remove("action");
+        parameters.remove("message");
+        return parameters;
+    }
+
     public String getAction() {
         return action;
     }
@@ -49,6 +85,11 @@ public class CompanionAction {
         return data.has(key) ? data.get(key).getAsBoolean() : defaultValue;
     }
 
+    @Nullable
+    public JsonArray getArray(String key) {
+        return data.has(key) && data.get(key).isJsonArray() ? data.getAsJsonArray(key) : null;
+    }
+
     public boolean has(String key) {
         return data.has(key);
     }
@@ -0,0 +1,109 @@
+package com.gblfxt.llmoblings.ai;
+
+import net.minecraft.world.entity.player.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Messages waiting for a companion's attention.
+ * Messages from the same player that arrive within the merge window of each other are combined,
+ * so a quick correction ("mine iron" ... "actually gold") costs one LLM call instead of two.
+ * A batch is released once its sender has been quiet for the window and the companion is free.
+ * Times are server ticks, so every companion that heard a broadcast releases it on the same tick
+ * and {@link RequestCoalescer} can merge the copies into one request.
+ * Only touched from the server thread.
+ */
+public class CompanionInbox {
+
+    // Keeps a flood of chat from piling up unbounded behind a slow request
+    private static final int MAX_BATCHES = 8;
+    private static final int MAX_MERGED_LENGTH = 1000;
+
+    /**
+     * One or more merged messages from a single player.
+     */
+    public record Batch(String message, @Nullable Player sender) {}
+
+    private static final class Pending {
+        private final StringBuilder text;
+        @Nullable
+        private final Player sender;
+        private long readyAt;
+
+        Pending(String text, @Nullable Player sender, long readyAt) {
+            this.text = new StringBuilder(text);
+            this.sender = sender;
+            this.readyAt = readyAt;
+        }
+    }
+
+    private final Deque<Pending> batches = new ArrayDeque<>();
+    private long mergedCount = 0;
+
+    /**
+     * Queue a message, merging it into the newest batch if that one is from the same player.
+     */
+    public void add(String message, @Nullable Player sender, long now, long mergeWindowTicks) {
+        Pending last = batches.peekLast();
+        if (last != null && Objects.equals(last.sender, sender) && last.text.length() + message.length() < MAX_MERGED_LENGTH) {
+            last.text.append(separator(last.text)).append(message);
+            last.readyAt = now + mergeWindowTicks;
+            mergedCount++;
+            return;
+        }
+        if (batches.size() >= MAX_BATCHES) {
+            batches.pollFirst();
+        }
+        batches.addLast(new Pending(message, sender, now + mergeWindowTicks));
+    }
+
+    /**
+     * Put a message whose request was cancelled back at the front, so a follow-up can merge with it.
+     */
+    public void requeue(String message, @Nullable Player sender, long now, long mergeWindowTicks) {
+        Pending first = batches.peekFirst();
+        if (first != null && Objects.equals(first.sender, sender)) {
+            first.text.insert(0, message + separator(message));
+            mergedCount++;
+            return;
+        }
+        batches.addFirst(new Pending(message, sender, now + mergeWindowTicks));
+    }
+
+    /**
+     * Merged messages read as one run of sentences ("mine iron. actually gold"), not as separate lines
+     * the LLM might answer one by one.
+     */
+    private static String separator(CharSequence before) {
+        char last = before.isEmpty() ? ' ' : before.charAt(before.length() - 1);
+        return ".!?,;:".indexOf(last) >= 0 ? " " : ". ";
+    }
+
+    /**
+     * The oldest batch if its sender has stopped typing, or null.
+     */
+    @Nullable
+    public Batch poll(long now) {
+        Pending first = batches.peekFirst();
+        if (first == null || now < first.readyAt) {
+            return null;
+        }
+        batches.pollFirst();
+        return new Batch(first.text.toString(), first.sender);
+    }
+
+    public boolean isEmpty() {
+        return batches.isEmpty();
+    }
+
+    public void clear() {
+        batches.clear();
+    }
+
+    public long getMergedCount() {
+        return mergedCount;
+    }
+}
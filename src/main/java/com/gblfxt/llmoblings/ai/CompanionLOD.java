@@ -0,0 +1,84 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.entity.CompanionEntity;
+import net.minecraft.world.entity.player.Player;
+
+/**
+ * How much AI a companion gets, from the distance to the nearest player.
+ * FULL companions behave as always. Further out, chunk-loaded companions decide less often
+ * and skip cosmetic work (emotes, idle chatter, looking around). Fights, including autonomous
+ * hunting and patrol fights, mining and building keep their pace in every tier.
+ */
+public class CompanionLOD {
+
+    public enum Tier {
+        FULL,
+        REDUCED,
+        MINIMAL
+    }
+
+    // Players move; the tier is re-checked once a second
+    private static final int UPDATE_INTERVAL = 20;
+
+    private final CompanionEntity companion;
+    private Tier tier = Tier.FULL;
+    private boolean checked = false;
+
+    public CompanionLOD(CompanionEntity companion) {
+        this.companion = companion;
+    }
+
+    public void update() {
+        // Checked straight away after loading, so a dormant companion doesn't wake for nobody
+        if (!checked || CompanionWorkScheduler.isDue(companion, UPDATE_INTERVAL)) {
+            tier = computeTier();
+            checked = true;
+        }
+    }
+
+    private Tier computeTier() {
+        if (!Config.AI_LOD_ENABLED.get()) {
+            return Tier.FULL;
+        }
+        Player nearest = companion.level().getNearestPlayer(companion, -1);
+        if (nearest == null) {
+            return Tier.MINIMAL;
+        }
+        double distance = companion.distanceTo(nearest);
+        if (distance > Config.AI_LOD_MINIMAL_DISTANCE.get()) {
+            return Tier.MINIMAL;
+        }
+        return distance > Config.AI_LOD_REDUCED_DISTANCE.get() ? Tier.REDUCED : Tier.FULL;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    /**
+     * Ticks between decisions in the current tier.
+     */
+    public int getInterval() {
+        return switch (tier) {
+            case FULL -> 1;
+            case REDUCED -> Config.AI_LOD_REDUCED_INTERVAL.get();
+            case MINIMAL -> Config.AI_LOD_MINIMAL_INTERVAL.get();
+        };
+    }
+
+    /**
+     * Whether throttled work runs this tick.
+     */
+    public boolean isDue() {
+        int interval = getInterval();
+        return interval <= 1 || CompanionWorkScheduler.isDue(companion, interval);
+    }
+
+    /**
+     * Emotes, idle chatter and looking around are only worth it with someone close enough to see them.
+     */
+    public boolean showsCosmetics() {
+        return tier == Tier.FULL;
+    }
+}
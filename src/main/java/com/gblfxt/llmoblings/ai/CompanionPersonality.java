@@ -506,7 +506,10 @@ public class CompanionPersonality {
 
     // ==================== MAIN TICK ====================
 
-    public void tick() {
+    /**
+     * @param cosmetic whether anyone is near enough to see emotes and hear chatter
+     */
+    public void tick(boolean cosmetic) {
         if (chatCooldown > 0) chatCooldown--;
         if (emoteCooldown > 0) emoteCooldown--;
         if (jokeCooldown > 0) jokeCooldown--;
@@ -520,6 +523,10 @@ public class CompanionPersonality {
             mood = "content";
         }
 
+        if (!cosmetic) {
+            return;
+        }
+
         // Random behaviors with rarity system
         if (random.nextInt(800) == 0) {
             doRandomBehavior();
@@ -0,0 +1,261 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.entity.CompanionEntity;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Splits the time spent in CompanionEntity.tick by companion and by subsystem (each AI state, block
+ * searches, storage scans, building, AE2 calls, item pickup) so a lag spike can be pinned on one of them.
+ * Outside a /companion profile run or a JFR recording a section costs two flag checks; during a
+ * recording each section is also a JFR event. Only touched from the server thread.
+ */
+public class CompanionProfiler {
+
+    public enum Section {
+        TICK("Whole tick"),
+        IDLE("Idle"),
+        FOLLOWING("Following"),
+        GOING_TO("Going to"),
+        MINING("Mining"),
+        ATTACKING("Attacking"),
+        DEFENDING("Defending"),
+        AUTONOMOUS("Autonomous"),
+        BUILDING("Building"),
+        MINING_SEARCH("Mining block search"),
+        PROTECTED_ZONES("Protected zone scan"),
+        STORAGE_SCAN("Storage scan"),
+        BUILDING_TICK("Placing blocks"),
+        AE2("AE2 calls"),
+        ITEM_PICKUP("Item pickup");
+
+        private final String label;
+
+        Section(String label) {
+            this.label = label;
+        }
+
+        public static Section forState(CompanionAI.AIState state) {
+            return switch (state) {
+                case IDLE -> IDLE;
+                case FOLLOWING -> FOLLOWING;
+                case GOING_TO -> GOING_TO;
+                case MINING -> MINING;
+                case ATTACKING -> ATTACKING;
+                case DEFENDING -> DEFENDING;
+                case AUTONOMOUS -> AUTONOMOUS;
+                case BUILDING -> BUILDING;
+            };
+        }
+    }
+
+    private static final int TOP_SPIKES = 5;
+    private static final EventType SECTION_EVENT = EventType.getEventType(SectionEvent.class);
+
+    private static final class Totals {
+        final String name;
+        final long[] nanos = new long[Section.values().length];
+        final long[] calls = new long[Section.values().length];
+        final long[] max = new long[Section.values().length];
+
+        Totals(String name) {
+            this.name = name;
+        }
+    }
+
+    private record Spike(String companion, Section section, long nanos) {}
+
+    private static volatile boolean profiling = false;
+    private static long endTime = 0;
+    private static long ticks = 0;
+    @Nullable
+    private static Consumer<String> onDone = null;
+    private static final Map<UUID, Totals> byCompanion = new HashMap<>();
+    private static final List<Spike> spikes = new ArrayList<>();
+
+    // Companion whose tick is running, so deeper code doesn't need to pass it along
+    @Nullable
+    private static CompanionEntity current = null;
+
+    /**
+     * Start timing a section: returns 0 (nothing to do) unless profiling or recording.
+     */
+    public static long start() {
+        return profiling || SECTION_EVENT.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * End a section started with {@link #start()}, charging it to the companion being ticked.
+     */
+    public static void end(Section section, long start) {
+        if (start == 0 || current == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        if (profiling) {
+            record(current, section, nanos);
+        }
+        if (SECTION_EVENT.isEnabled()) {
+            SectionEvent event = new SectionEvent();
+            if (event.shouldCommit()) {
+                event.companion = current.getCompanionName();
+                event.section = section.label;
+                event.time = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    public static void enter(CompanionEntity companion) {
+        current = companion;
+    }
+
+    public static void exit() {
+        current = null;
+    }
+
+    private static void record(CompanionEntity companion, Section section, long nanos) {
+        Totals totals = byCompanion.computeIfAbsent(companion.getUUID(), id -> new Totals(companion.getCompanionName()));
+        int i = section.ordinal();
+        totals.nanos[i] += nanos;
+        totals.calls[i]++;
+        totals.max[i] = Math.max(totals.max[i], nanos);
+
+        if (section != Section.TICK) {
+            if (spikes.size() < TOP_SPIKES) {
+                spikes.add(new Spike(totals.name, section, nanos));
+            } else if (nanos > spikes.get(spikes.size() - 1).nanos()) {
+                spikes.set(spikes.size() - 1, new Spike(totals.name, section, nanos));
+            } else {
+                return;
+            }
+            spikes.sort(Comparator.comparingLong(Spike::nanos).reversed());
+        }
+    }
+
+    /**
+     * Profile every companion for the given time, then hand the report to {@code done}.
+     * Returns false if a run is already going.
+     */
+    public static boolean begin(int seconds, Consumer<String> done) {
+        if (profiling) {
+            return false;
+        }
+        byCompanion.clear();
+        spikes.clear();
+        ticks = 0;
+        endTime = System.nanoTime() + seconds * 1_000_000_000L;
+        onDone = done;
+        profiling = true;
+        return true;
+    }
+
+    /**
+     * End of a server tick: finish the run once its time is up.
+     */
+    public static void onServerTick() {
+        if (!profiling) {
+            return;
+        }
+        ticks++;
+        if (System.nanoTime() < endTime) {
+            return;
+        }
+        profiling = false;
+        Consumer<String> done = onDone;
+        onDone = null;
+        if (done != null) {
+            done.accept(report());
+        }
+    }
+
+    private static String report() {
+        int sections = Section.values().length;
+        long[] nanos = new long[sections];
+        long[] calls = new long[sections];
+        long[] max = new long[sections];
+        for (Totals totals : byCompanion.values()) {
+            for (int i = 0; i < sections; i++) {
+                nanos[i] += totals.nanos[i];
+                calls[i] += totals.calls[i];
+                max[i] = Math.max(max[i], totals.max[i]);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(String.format("Companion profile: %d ticks, %d companions, %.1f ms/tick in companion code",
+                ticks, byCompanion.size(), millis(nanos[Section.TICK.ordinal()]) / Math.max(1, ticks)));
+        sb.append("\nBy subsystem (states include the sections they call):");
+        for (Section section : Section.values()) {
+            int i = section.ordinal();
+            if (section == Section.TICK || calls[i] == 0) {
+                continue;
+            }
+            sb.append(String.format("\n %s: %.1f ms total, %d calls, avg %.0f us, max %.2f ms",
+                    section.label, millis(nanos[i]), calls[i], nanos[i] / 1000.0 / calls[i], millis(max[i])));
+        }
+
+        sb.append("\nBy companion:");
+        byCompanion.values().stream()
+                .sorted(Comparator.comparingLong((Totals t) -> t.nanos[Section.TICK.ordinal()]).reversed())
+                .forEach(totals -> sb.append(String.format("\n %s: %.1f ms total, max tick %.2f ms, mostly %s",
+                        totals.name, millis(totals.nanos[Section.TICK.ordinal()]),
+                        millis(totals.max[Section.TICK.ordinal()]), heaviest(totals))));
+
+        if (!spikes.isEmpty()) {
+            sb.append("\nTop offenders:");
+            for (Spike spike : spikes) {
+                sb.append(String.format("\n %.2f ms %s (%s)", millis(spike.nanos()), spike.section().label, spike.companion()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String heaviest(Totals totals) {
+        Section heaviest = null;
+        for (Section section : Section.values()) {
+            if (section != Section.TICK
+                    && (heaviest == null || totals.nanos[section.ordinal()] > totals.nanos[heaviest.ordinal()])) {
+                heaviest = section;
+            }
+        }
+        return heaviest == null || totals.nanos[heaviest.ordinal()] == 0 ? "nothing" : heaviest.label;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public static boolean isProfiling() {
+        return profiling;
+    }
+
+    @Name("llmoblings.CompanionSection")
+    @Label("Companion Section")
+    @Category({"LLMoblings", "Companion"})
+    @Description("Time one companion spent in one AI subsystem during a server tick")
+    @StackTrace(false)
+    public static final class SectionEvent extends Event {
+        @Label("Companion")
+        String companion;
+        @Label("Section")
+        String section;
+        @Label("Time")
+        @Timespan
+        long time;
+    }
+}
@@ -0,0 +1,134 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+import net.minecraft.world.entity.Entity;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Spreads the companions' periodic upkeep (auto-equip, eating, chunk loading, map markers...) over
+ * server ticks so it doesn't all land on the same tick.
+ * Each companion runs "every N ticks" work at a phase offset taken from its UUID, and all
+ * companions together get a time budget per tick; work past the budget waits in a queue for the
+ * next tick. Combat work is never queued. Only touched from the server thread.
+ */
+public class CompanionWorkScheduler {
+
+    public enum Priority {
+        // Runs at once, even over budget
+        COMBAT,
+        NORMAL,
+        // Runs after any waiting NORMAL work
+        LOW
+    }
+
+    private record Key(UUID companion, String kind) {}
+
+    private record Job(Entity companion, Key key, Runnable work) {}
+
+    private static final Deque<Job> normal = new ArrayDeque<>();
+    private static final Deque<Job> low = new ArrayDeque<>();
+    // Work already waiting; a companion that is still waiting for its last run doesn't queue another
+    private static final Set<Key> queued = new HashSet<>();
+
+    private static long spentNanos = 0;
+    private static long jobsRun = 0;
+    private static long jobsDeferred = 0;
+    private static int maxQueued = 0;
+
+    /**
+     * Whether this is the companion's tick for work done every {@code period} ticks.
+     * Companions spawned together land on different ticks.
+     */
+    public static boolean isDue(Entity companion, int period) {
+        int phase = Math.floorMod(companion.getUUID().hashCode(), period);
+        return (companion.tickCount + phase) % period == 0;
+    }
+
+    /**
+     * Run the work now if this tick's budget allows, otherwise queue it for a later tick.
+     * {@code kind} names the work, so repeated submissions from one companion don't pile up.
+     */
+    public static void submit(Entity companion, Priority priority, String kind, Runnable work) {
+        Key key = new Key(companion.getUUID(), kind);
+        if (priority == Priority.COMBAT) {
+            run(new Job(companion, key, work));
+            return;
+        }
+        if (queued.contains(key)) {
+            return;
+        }
+        // Queued work goes first, so a NORMAL job may only skip the line over LOW ones
+        boolean waiting = !normal.isEmpty() || (priority == Priority.LOW && !low.isEmpty());
+        if (!waiting && spentNanos < budgetNanos()) {
+            run(new Job(companion, key, work));
+            return;
+        }
+
+        (priority == Priority.NORMAL ? normal : low).addLast(new Job(companion, key, work));
+        queued.add(key);
+        jobsDeferred++;
+        maxQueued = Math.max(maxQueued, normal.size() + low.size());
+    }
+
+    /**
+     * Start of a server tick: reset the budget and run carried-over work, oldest first.
+     * At least one job runs every tick, so the queue always moves.
+     */
+    public static void onTickStart() {
+        spentNanos = 0;
+        long budget = budgetNanos();
+        while (spentNanos < budget) {
+            Job job = normal.isEmpty() ? low.pollFirst() : normal.pollFirst();
+            if (job == null) {
+                break;
+            }
+            queued.remove(job.key());
+            if (!job.companion().isRemoved()) {
+                run(job);
+            }
+        }
+    }
+
+    private static void run(Job job) {
+        long start = System.nanoTime();
+        try {
+            job.work().run();
+        } catch (RuntimeException e) {
+            LLMoblings.LOGGER.error("Companion {} work failed", job.key().kind(), e);
+        }
+        spentNanos += System.nanoTime() - start;
+        jobsRun++;
+    }
+
+    private static long budgetNanos() {
+        return (long) (Config.COMPANION_TICK_BUDGET.get() * 1_000_000);
+    }
+
+    public static void clear() {
+        normal.clear();
+        low.clear();
+        queued.clear();
+    }
+
+    public static int getQueued() {
+        return normal.size() + low.size();
+    }
+
+    public static long getJobsRun() {
+        return jobsRun;
+    }
+
+    public static long getJobsDeferred() {
+        return jobsDeferred;
+    }
+
+    public static int getMaxQueued() {
+        return maxQueued;
+    }
+}
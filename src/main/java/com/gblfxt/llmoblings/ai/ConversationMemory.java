@@ -0,0 +1,224 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.LLMoblings;
+import com.gblfxt.llmoblings.ai.OllamaClient.ChatMessage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fixed-size conversation history for one companion.
+ * Recent turns live in a ring buffer; when it fills up, the oldest block of turns is evicted
+ * and folded into a short rolling summary by a background LLM call. Memory and prompt size
+ * stay constant no matter how long the conversation runs.
+ */
+public class ConversationMemory {
+
+    /**
+     * Produces an updated summary from the previous one and the turns that just aged out.
+     */
+    @FunctionalInterface
+    public interface Summarizer {
+        CompletableFuture<String> summarize(String previousSummary, List<ChatMessage> agedOut);
+    }
+
+    private static final int MAX_SUMMARY_CHARS = 600;
+
+    // Saved form: version, summary, message count, then a role byte and text per message.
+    // Lengths and counts are varints and text is UTF-8, so a saved history is one small byte array.
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte ROLE_USER = 0;
+    private static final byte ROLE_ASSISTANT = 1;
+    // Enough to pick the conversation back up; longer messages are cut when saved
+    private static final int MAX_SAVED_CHARS = 1000;
+
+    private final ChatMessage[] ring;
+    private final int trimTo;
+    private final Summarizer summarizer;
+    private int head = 0;   // Oldest message
+    private int size = 0;
+
+    private String summary = "";
+    // Aged-out turns waiting for the summarizer (bounded - dropped if it can't keep up)
+    private final List<ChatMessage> unsummarized = new ArrayList<>();
+    private boolean summarizing = false;
+
+    /**
+     * @param capacity messages kept verbatim
+     * @param trimTo   messages kept after an eviction; evicting in blocks keeps the prompt prefix stable
+     */
+    public ConversationMemory(int capacity, int trimTo, Summarizer summarizer) {
+        this.ring = new ChatMessage[capacity];
+        this.trimTo = trimTo;
+        this.summarizer = summarizer;
+    }
+
+    public synchronized void add(ChatMessage message) {
+        if (size == ring.length) {
+            List<ChatMessage> evicted = new ArrayList<>();
+            while (size > trimTo - 1 || (size > 0 && get(0).role().equals("assistant"))) {
+                evicted.add(get(0));
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+            }
+            onAgedOut(evicted);
+        }
+        ring[(head + size) % ring.length] = message;
+        size++;
+    }
+
+    private ChatMessage get(int index) {
+        return ring[(head + index) % ring.length];
+    }
+
+    /**
+     * Recent messages, oldest first.
+     */
+    public synchronized List<ChatMessage> recent() {
+        List<ChatMessage> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            messages.add(get(i));
+        }
+        return messages;
+    }
+
+    public synchronized String getSummary() {
+        return summary;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+        head = 0;
+        size = 0;
+        summary = "";
+        unsummarized.clear();
+    }
+
+    /**
+     * The summary and recent messages in the compact saved form, or null if there is nothing to keep.
+     */
+    @Nullable
+    public synchronized byte[] encode() {
+        if (size == 0 && summary.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + size * 128);
+        out.write(FORMAT_VERSION);
+        writeText(out, summary);
+        writeVarInt(out, size);
+        for (int i = 0; i < size; i++) {
+            ChatMessage message = get(i);
+            out.write(message.role().equals("user") ? ROLE_USER : ROLE_ASSISTANT);
+            writeText(out, message.content());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Replace the history with one from {@link #encode()}. Data that can't be read is ignored.
+     */
+    public synchronized void restore(byte[] data) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            if (in.get() != FORMAT_VERSION) {
+                LLMoblings.LOGGER.debug("Ignoring saved conversation in an unknown format");
+                return;
+            }
+            String savedSummary = readText(in);
+            int count = readVarInt(in);
+            List<ChatMessage> messages = new ArrayList<>(Math.min(count, ring.length));
+            for (int i = 0; i < count; i++) {
+                String role = in.get() == ROLE_USER ? "user" : "assistant";
+                messages.add(new ChatMessage(role, readText(in)));
+            }
+
+            clear();
+            summary = savedSummary;
+            for (ChatMessage message : messages.subList(Math.max(0, messages.size() - ring.length), messages.size())) {
+                ring[size++] = message;
+            }
+        } catch (RuntimeException e) {
+            LLMoblings.LOGGER.debug("Ignoring unreadable saved conversation: {}", e.toString());
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String text) {
+        String cut = text.length() > MAX_SAVED_CHARS ? text.substring(0, MAX_SAVED_CHARS) : text;
+        byte[] bytes = cut.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readText(ByteBuffer in) {
+        int length = readVarInt(in);
+        String text = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private void onAgedOut(List<ChatMessage> evicted) {
+        unsummarized.addAll(evicted);
+        if (unsummarized.size() > ring.length) {
+            unsummarized.subList(0, unsummarized.size() - ring.length).clear();
+        }
+        if (!summarizing) {
+            summarizeNext();
+        }
+    }
+
+    private void summarizeNext() {
+        if (unsummarized.isEmpty()) {
+            summarizing = false;
+            return;
+        }
+        summarizing = true;
+        List<ChatMessage> batch = new ArrayList<>(unsummarized);
+        unsummarized.clear();
+
+        summarizer.summarize(summary, batch).whenComplete((updated, error) -> {
+            synchronized (this) {
+                if (error != null) {
+                    LLMoblings.LOGGER.debug("Conversation summary failed, keeping the old one: {}", error.getMessage());
+                } else if (updated != null && !updated.isBlank()) {
+                    String trimmed = updated.trim();
+                    summary = trimmed.length() > MAX_SUMMARY_CHARS ? trimmed.substring(0, MAX_SUMMARY_CHARS) : trimmed;
+                }
+                // More turns may have aged out while this one was running
+                summarizeNext();
+            }
+        });
+    }
+}
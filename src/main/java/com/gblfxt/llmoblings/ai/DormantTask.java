@@ -0,0 +1,64 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.ai.CompanionAI.AIState;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * What a companion was doing when it went dormant, saved with the entity while its chunks are unloaded.
+ * Mining is simulated from this alone: at the measured ticks per block, {@code elapsed / ticksPerBlock}
+ * blocks would have been mined, up to what was left. The result is reconciled with the world on waking.
+ *
+ * @param blockName     mining target as the owner asked for it
+ * @param remaining     blocks still to mine
+ * @param radius        search radius for mining, base radius for autonomous work
+ * @param ticksPerBlock measured mining pace, including searching and walking
+ * @param since         game time the companion went dormant
+ */
+public record DormantTask(AIState state, String blockName, int remaining, int radius, double ticksPerBlock,
+                          BlockPos pos, long since) {
+
+    public static DormantTask mining(MiningTask task, BlockPos pos, long now) {
+        return new DormantTask(AIState.MINING, task.getTargetBlockName(), task.getTargetCount() - task.getMinedCount(),
+                task.getSearchRadius(), task.estimateTicksPerBlock(), pos, now);
+    }
+
+    public static DormantTask autonomous(AutonomousTask task, BlockPos pos, long now) {
+        return new DormantTask(AIState.AUTONOMOUS, "", 0, task.getBaseRadius(), 0, pos, now);
+    }
+
+    /**
+     * Blocks the companion would have mined by {@code now}.
+     */
+    public int simulatedBlocks(long now) {
+        if (state != AIState.MINING || ticksPerBlock <= 0) {
+            return 0;
+        }
+        long elapsed = Math.max(0, now - since);
+        return (int) Math.min(remaining, (long) (elapsed / ticksPerBlock));
+    }
+
+    public CompoundTag save() {
+        CompoundTag tag = new CompoundTag();
+        tag.putString("State", state.name());
+        tag.putString("Block", blockName);
+        tag.putInt("Remaining", remaining);
+        tag.putInt("Radius", radius);
+        tag.putDouble("TicksPerBlock", ticksPerBlock);
+        tag.putLong("Pos", pos.asLong());
+        tag.putLong("Since", since);
+        return tag;
+    }
+
+    @Nullable
+    public static DormantTask load(CompoundTag tag) {
+        try {
+            return new DormantTask(AIState.valueOf(tag.getString("State")), tag.getString("Block"),
+                    tag.getInt("Remaining"), tag.getInt("Radius"), tag.getDouble("TicksPerBlock"),
+                    BlockPos.of(tag.getLong("Pos")), tag.getLong("Since"));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
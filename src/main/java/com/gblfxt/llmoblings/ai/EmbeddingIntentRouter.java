@@ -0,0 +1,423 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Understands commands the keyword classifier can't ("could you grab some timber") without a full
+ * chat completion. At server start a catalogue of example phrasings for each action is embedded with
+ * Ollama's embedding model and kept in memory; a message is embedded the same way and matched to its
+ * nearest example. Only a close match that clearly beats every other action is taken; anything
+ * else goes on to the LLM as before.
+ */
+public class EmbeddingIntentRouter {
+
+    public record Route(CompanionAction action, double similarity, String phrase) {}
+
+    private record Example(String phrase, JsonObject action) {}
+
+    // Second-best action must trail the best by this much, or the message is too ambiguous to route
+    private static final double MIN_MARGIN = 0.03;
+    // Embedding a message is one small forward pass; if it takes longer the LLM is the better bet
+    private static final Duration ROUTE_TIMEOUT = Duration.ofSeconds(2);
+    // Longer messages are rarely a single command
+    private static final int MAX_WORDS = 12;
+
+    private static final Pattern NUMBER = Pattern.compile("\\b(\\d{1,4})\\b");
+    // Similarity can't tell "don't follow me" from "follow me", or see a condition or a second
+    // instruction, so such messages always go to the LLM
+    private static final Pattern NEGATION = Pattern.compile(
+            "\\b(don'?t|do not|doesn'?t|didn'?t|never|not|no|stop|quit|without|except|can'?t|won'?t|shouldn'?t)\\b");
+    private static final Pattern QUALIFIER = Pattern.compile(
+            "\\b(if|unless|until|when|whenever|once|after|before|while|then|and|but|or|instead|also|first)\\b");
+    // A comma or full stop with more words after it: "mine iron, then come back"
+    private static final Pattern CLAUSE_BREAK = Pattern.compile("[,;:.!?]\\s*\\p{L}");
+
+    private static final List<Example> CATALOGUE = new ArrayList<>();
+
+    static {
+        add("{\"action\":\"follow\"}", "follow me", "come along with me", "tag along", "stick with me",
+                "stay close to me", "keep up with me", "walk with me");
+        add("{\"action\":\"stay\"}", "stay here", "wait here for me", "keep still", "hold your position",
+                "stay where you are", "remain here", "park yourself here");
+        add("{\"action\":\"come\"}", "come here", "get over here", "come to me", "come back to me",
+                "return to me", "come find me");
+        add("{\"action\":\"defend\"}", "protect me", "keep me safe", "watch my back", "guard me from monsters",
+                "fight off anything that comes at me");
+        add("{\"action\":\"retreat\"}", "run away", "get out of there", "back off", "flee from the fight",
+                "escape from danger");
+        add("{\"action\":\"status\"}", "how are you doing", "how is your health", "are you hurt",
+                "give me a status report", "how hungry are you");
+        add("{\"action\":\"inventory\"}", "what are you carrying", "what's in your pockets", "show me your items",
+                "what have you got on you", "list your inventory");
+        add("{\"action\":\"equip\"}", "put on your armor", "get your weapon out", "arm yourself",
+                "equip your best gear", "suit up");
+        add("{\"action\":\"home\"}", "go home", "head back to base", "return to your home", "go back to the house");
+        add("{\"action\":\"sethome\"}", "this is your home now", "remember this place as home",
+                "make this your base", "set your home here");
+        add("{\"action\":\"sleep\"}", "go to bed", "get some sleep", "take a nap", "sleep in the bed");
+        add("{\"action\":\"auto\"}", "do your own thing", "take care of yourself", "go survive on your own",
+                "act on your own", "be independent for a while");
+        add("{\"action\":\"explore\"}", "go explore", "scout the area", "look around for a bit",
+                "go see what's out there", "wander around");
+        add("{\"action\":\"scan\"}", "what's around here", "scan the area", "check what is nearby",
+                "any mobs nearby");
+        add("{\"action\":\"deposit\"}", "put your stuff away", "empty your pockets into the chest",
+                "store your items", "unload your inventory", "drop off your loot in storage");
+        add("{\"action\":\"tpaccept\"}", "accept my teleport", "yes you can teleport", "accept the tp");
+        add("{\"action\":\"tpdeny\"}", "deny the teleport", "refuse that teleport", "reject the tp");
+        add("{\"action\":\"mine\",\"block\":\"wood\",\"count\":16}", "grab some timber", "get some wood",
+                "chop down some trees", "collect logs", "cut some lumber", "go chop wood");
+        add("{\"action\":\"mine\",\"block\":\"stone\",\"count\":32}", "get some stone", "collect cobblestone",
+                "dig up some rock", "mine some cobble");
+        add("{\"action\":\"mine\",\"block\":\"coal_ore\",\"count\":16}", "find some coal", "dig up coal",
+                "get me fuel for the furnace", "mine coal");
+        add("{\"action\":\"mine\",\"block\":\"iron_ore\",\"count\":16}", "find some iron", "dig up iron ore",
+                "get me some iron", "mine iron");
+        add("{\"action\":\"mine\",\"block\":\"diamond_ore\",\"count\":8}", "find diamonds", "dig for diamonds",
+                "get me some diamonds", "go diamond hunting");
+        add("{\"action\":\"attack\",\"target\":\"hostile\"}", "kill those monsters", "take out the mobs",
+                "go fight them", "get rid of the zombies", "deal with that creeper");
+    }
+
+    private static void add(String actionJson, String... phrases) {
+        JsonObject action = JsonParser.parseString(actionJson).getAsJsonObject();
+        for (String phrase : phrases) {
+            CATALOGUE.add(new Example(phrase, action));
+        }
+    }
+
+    /**
+     * Every action the catalogue can route to.
+     */
+    static Set<String> catalogueActions() {
+        Set<String> actions = new TreeSet<>();
+        for (Example example : CATALOGUE) {
+            actions.add(example.action().get("action").getAsString());
+        }
+        return actions;
+    }
+
+    private static final Object INSTANCE_LOCK = new Object();
+    private static volatile EmbeddingIntentRouter instance;
+
+    // Null means the server-wide pool
+    @Nullable
+    private final OllamaBackendPool pool;
+    private final String model;
+    @Nullable
+    private volatile Index index = null;
+
+    private final AtomicLong routed = new AtomicLong();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong routeNanos = new AtomicLong();
+
+    /**
+     * A router on its own backend pool, e.g. one pointed at a stub server in tests.
+     * Nothing is routed until {@link #build()} has succeeded.
+     */
+    EmbeddingIntentRouter(@Nullable OllamaBackendPool pool, String model) {
+        this.pool = pool;
+        this.model = model;
+    }
+
+    /**
+     * The server-wide router, or null if it is turned off in the config.
+     */
+    @Nullable
+    public static EmbeddingIntentRouter get() {
+        if (!Config.INTENT_ROUTER_ENABLED.get()) {
+            return null;
+        }
+        if (instance == null) {
+            synchronized (INSTANCE_LOCK) {
+                if (instance == null) {
+                    instance = new EmbeddingIntentRouter(null, Config.OLLAMA_EMBED_MODEL.get());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Embed the catalogue in the background. Until that finishes (or if it fails), every message
+     * goes to the LLM.
+     */
+    public static void start() {
+        EmbeddingIntentRouter router = get();
+        if (router == null) {
+            return;
+        }
+        Thread.ofVirtual().name("LLMoblings-IntentRouter").start(() -> {
+            try {
+                router.build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LLMoblings.LOGGER.warn("Intent router disabled: could not embed the command catalogue with '{}' ({}). " +
+                        "Pull the model with 'ollama pull {}' or set intentRouter = false.", router.model, e.toString(), router.model);
+            }
+        });
+    }
+
+    public static void shutdown() {
+        synchronized (INSTANCE_LOCK) {
+            instance = null;
+        }
+    }
+
+    /**
+     * Embed every catalogue phrase and swap in the new index. Blocking.
+     */
+    public void build() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<String> phrases = new ArrayList<>(CATALOGUE.size());
+        for (Example example : CATALOGUE) {
+            phrases.add(example.phrase());
+        }
+        List<float[]> vectors = embed(phrases, Duration.ofSeconds(Config.OLLAMA_TIMEOUT.get()));
+        if (vectors.size() != phrases.size()) {
+            throw new IOException("expected " + phrases.size() + " embeddings, got " + vectors.size());
+        }
+        index = new Index(vectors);
+        LLMoblings.LOGGER.info("Intent router ready: {} example phrases, {} dimensions, embedded in {} ms",
+                phrases.size(), index.dimensions, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Find the catalogue action for a message, or null if nothing is close enough and the LLM should
+     * answer. Blocking (one embedding request); call from an LLM task, never the server thread.
+     */
+    @Nullable
+    public Route route(String message) throws InterruptedException {
+        Index current = index;
+        if (current == null) {
+            return null;
+        }
+        String text = IntentClassifier.stripFillers(IntentClassifier.normalize(message));
+        if (text.isEmpty() || text.split(" ").length > MAX_WORDS || !isSingleCommand(message, text)) {
+            return null;
+        }
+
+        // The amount is read separately below, so "grab 40 timber" matches "grab some timber"
+        String phrase = NUMBER.matcher(text).replaceAll(" ").replaceAll(" +", " ").trim();
+
+        long start = System.nanoTime();
+        float[] query;
+        try {
+            List<float[]> vectors = embed(List.of(phrase), ROUTE_TIMEOUT);
+            if (vectors.size() != 1 || vectors.get(0).length != current.dimensions) {
+                return null;
+            }
+            query = vectors.get(0);
+        } catch (IOException e) {
+            LLMoblings.LOGGER.debug("Intent router skipped '{}': {}", text, e.getMessage());
+            return null;
+        }
+
+        Route route = current.nearest(query);
+        routeNanos.addAndGet(System.nanoTime() - start);
+        if (route == null || route.similarity() < Config.INTENT_ROUTER_MIN_SIMILARITY.get()) {
+            passed.incrementAndGet();
+            return null;
+        }
+
+        // A number in the message is the amount to fetch ("grab 40 timber")
+        Matcher number = NUMBER.matcher(text);
+        if (route.action().getInt("count", 0) > 0 && number.find()) {
+            route.action().setParameter("count", Integer.parseInt(number.group(1)));
+        }
+        // Say what was understood, so a wrong match is obvious rather than silently acted on
+        routed.incrementAndGet();
+        return new Route(route.action().withMessage("On it - sounded like \"" + route.phrase() + "\" to me."),
+                route.similarity(), route.phrase());
+    }
+
+    /**
+     * Whether the message is one plain instruction: no negation, no condition, no second clause.
+     */
+    static boolean isSingleCommand(String message, String normalized) {
+        return !NEGATION.matcher(normalized).find() && !QUALIFIER.matcher(normalized).find()
+                && !CLAUSE_BREAK.matcher(message.trim()).find();
+    }
+
+    private List<float[]> embed(List<String> inputs, Duration timeout) throws IOException, InterruptedException {
+        OllamaWire.Body body = new OllamaWire.Body().raw("{\"model\":").string(model).raw(",\"input\":[");
+        for (int i = 0; i < inputs.size(); i++) {
+            if (i > 0) body.raw(",");
+            body.string(inputs.get(i));
+        }
+        body.raw("],\"keep_alive\":").string(Config.OLLAMA_KEEP_ALIVE.get()).raw("}");
+
+        OllamaBackendPool pool = this.pool != null ? this.pool : OllamaBackendPool.get();
+        OllamaBackendPool.Backend target = pool.select(null, List.of());
+        if (target == null) {
+            throw new OllamaBackendPool.UnavailableException("No Ollama backend is available");
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(target.uri("/api/embed"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(body.publisher())
+                .build();
+
+        long start = System.nanoTime();
+        boolean reported = false;
+        target.begin();
+        try {
+            HttpResponse<InputStream> response = pool.getHttpClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream in = response.body()) {
+                if (response.statusCode() == 200) {
+                    List<float[]> vectors = OllamaWire.readEmbeddings(new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                    pool.onSuccess(target, System.nanoTime() - start);
+                    return vectors;
+                }
+                String error = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                reported = true;
+                if (response.statusCode() >= 500) {
+                    pool.onFailure(target, new IOException(error));
+                } else {
+                    // A missing embedding model is a setting problem, not a sick backend
+                    pool.onCancelled(target);
+                }
+                throw new IOException("status " + response.statusCode() + " - " + error);
+            }
+        } catch (InterruptedException | InterruptedIOException e) {
+            if (!reported) {
+                pool.onCancelled(target);
+            }
+            throw new InterruptedException("Embedding request cancelled");
+        } catch (IOException e) {
+            if (!reported) {
+                pool.onFailure(target, e);
+            }
+            throw e;
+        } finally {
+            target.end();
+        }
+    }
+
+    public long getRoutedCount() {
+        return routed.get();
+    }
+
+    public long getPassedCount() {
+        return passed.get();
+    }
+
+    public double getAverageRouteMillis() {
+        long total = routed.get() + passed.get();
+        return total > 0 ? routeNanos.get() / 1e6 / total : 0;
+    }
+
+    /**
+     * The catalogue's vectors, unit length, back to back in one array. Matching is a dot product
+     * against each row; the loop is written so the JIT can vectorize it.
+     */
+    static final class Index {
+        private final float[] vectors;
+        private final int dimensions;
+        private final int size;
+
+        Index(List<float[]> embeddings) {
+            this.size = embeddings.size();
+            this.dimensions = embeddings.get(0).length;
+            this.vectors = new float[size * dimensions];
+            for (int i = 0; i < size; i++) {
+                float[] vector = embeddings.get(i);
+                if (vector.length != dimensions) {
+                    throw new IllegalArgumentException("embeddings have different lengths");
+                }
+                normalize(vector);
+                System.arraycopy(vector, 0, vectors, i * dimensions, dimensions);
+            }
+        }
+
+        /**
+         * The closest example, provided it clearly beats the closest example of any other action.
+         */
+        @Nullable
+        Route nearest(float[] query) {
+            normalize(query);
+            int best = -1;
+            float bestScore = -2;
+            float[] scores = new float[size];
+            for (int row = 0; row < size; row++) {
+                scores[row] = dot(query, row * dimensions);
+                if (scores[row] > bestScore) {
+                    bestScore = scores[row];
+                    best = row;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+
+            JsonObject bestAction = CATALOGUE.get(best).action();
+            float runnerUp = -2;
+            for (int row = 0; row < size; row++) {
+                if (CATALOGUE.get(row).action() != bestAction && scores[row] > runnerUp) {
+                    runnerUp = scores[row];
+                }
+            }
+            if (bestScore - runnerUp < MIN_MARGIN) {
+                return null;
+            }
+            return new Route(CompanionAction.fromJson(bestAction.deepCopy()), bestScore, CATALOGUE.get(best).phrase());
+        }
+
+        private float dot(float[] query, int offset) {
+            // Four independent sums so the additions don't wait on each other
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i + 3 < dimensions; i += 4) {
+                s0 += query[i] * vectors[offset + i];
+                s1 += query[i + 1] * vectors[offset + i + 1];
+                s2 += query[i + 2] * vectors[offset + i + 2];
+                s3 += query[i + 3] * vectors[offset + i + 3];
+            }
+            for (; i < dimensions; i++) {
+                s0 += query[i] * vectors[offset + i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        private static void normalize(float[] vector) {
+            double sum = 0;
+            for (float v : vector) {
+                sum += v * v;
+            }
+            if (sum == 0) {
+                return;
+            }
+            float scale = (float) (1 / Math.sqrt(sum));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+    }
+}
@@ -0,0 +1,699 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keyword-based understanding of player messages, without the LLM.
+ * classify() runs first on the server thread and only answers when the whole message is an
+ * unambiguous command; parseFromKeywords() is the looser fallback for replies the LLM garbled.
+ */
+public class IntentClassifier {
+
+    public record Intent(CompanionAction action, double confidence) {}
+
+    private record Rule(Pattern pattern, double confidence, Function<Matcher, CompanionAction> builder) {}
+
+    private static final Pattern PUNCTUATION = Pattern.compile("[^a-z0-9' ]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern LEADING_FILLER = Pattern.compile(
+            "^(please|pls|hey|ok|okay|alright|now|so|and|can you|could you|would you|will you|go ahead and) ");
+    private static final Pattern TRAILING_FILLER = Pattern.compile(
+            " (please|pls|now|thanks|thank you|for me|for us|right now)$");
+    private static final Pattern POLITE_QUESTION = Pattern.compile("^(can|could|would|will) you ");
+
+    private static final Pattern COORDINATES = Pattern.compile("(?:at\\s+)?([-]?\\d+)[,\\s]+([-]?\\d+)[,\\s]+([-]?\\d+)");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern FIRST_NUMBER = Pattern.compile("\\d+\\s*");
+    private static final Pattern INTO_BACKPACK = Pattern.compile("\\s*(in|into|to)\\s*(my\\s+)?backpack.*");
+    private static final Pattern FROM_BACKPACK = Pattern.compile("\\s*(from|out of)\\s*(my\\s+)?backpack.*");
+
+    // Said while the companion is still thinking about something else, these take over at once
+    private static final Set<String> URGENT_ACTIONS = Set.of("stay", "come", "follow", "retreat");
+    // Matched against the whole message: "don't stop mining" or "cancel that and mine gold" are not urgent
+    private static final Pattern STOP = Pattern.compile("stop( it| that| now| everything)?");
+    private static final Pattern NEVER_MIND = Pattern.compile("never ?mind|nvm|cancel( that| it)?|forget (it|that)");
+
+    private static final double FULL_MATCH = 0.95;
+    private static final double PARAMETER_MATCH = 0.9;
+
+    private static final Set<String> HOSTILE_WORDS = Set.of(
+            "them", "it", "that", "those", "mob", "mobs", "monster", "monsters",
+            "hostile", "hostiles", "enemy", "enemies", "everything");
+    private static final Set<String> NOT_BLOCKS = Set.of(
+            "out", "away", "back", "down", "up", "here", "over", "there", "it", "that", "this", "everything");
+
+    private static final List<Rule> RULES = new ArrayList<>();
+
+    static {
+        simple("follow( me| us)?|come with me|come along|let'?s go|with me", "follow");
+        simple("stay( here| put| there)?|wait( here| there)?|stop( following( me)?| moving| here)?|halt|hold (on|position)", "stay");
+        simple("come( here| back| to me)?|(get )?over here", "come");
+        simple("defend( me| us)?|protect( me| us)?|guard( me| us)?|cover me", "defend");
+        simple("retreat|run( away)?|fall back|flee", "retreat");
+        simple("status( report)?|report|health", "status");
+        simple("inventory|inv|what do you have|what are you carrying|show( me)?( your)? (inventory|items)", "inventory");
+        simple("equip|gear up|arm yourself|equip( your)?( best)? (gear|armor|armour|weapon|sword)", "equip");
+        simple("(go |head |return )?home", "home");
+        simple("set ?home( here)?|set your home( here)?|this is (your|our) home", "sethome");
+        simple("set ?bed|set your bed|find (a |your )?bed", "setbed");
+        simple("sleep|go to (sleep|bed)", "sleep");
+        simple("tp ?accept|accept( the)? (tp|teleport)( request)?", "tpaccept");
+        simple("tp ?deny|deny( the)? (tp|teleport)( request)?", "tpdeny");
+        simple("(go |be )?(auto|autonomous|independent)|survive|(you're |you are )?on your own|do your (own )?thing", "auto");
+        simple("(go )?explore( the area| around)?|look around|wander( around)?", "explore");
+        simple("scan( the area| around)?", "scan");
+        simple("(put away|stash|store)( your| all your)? (items|stuff|loot)|empty your inventory", "deposit");
+
+        rule("deposit( (everything|all( your)? items|your items|your stuff))?", FULL_MATCH, m -> {
+            CompanionAction action = new CompanionAction("deposit", null);
+            if (m.group(2) != null && (m.group(2).equals("everything") || m.group(2).startsWith("all"))) {
+                action.setParameter("keepGear", "false");
+            }
+            return action;
+        });
+
+        rule("(?:take the |use the |go )?(elevator|lift) (up|down)|go (up|down)( the)? (elevator|lift)", FULL_MATCH, m -> {
+            CompanionAction action = new CompanionAction("elevator", null);
+            action.setParameter("direction", m.group(2) != null ? m.group(2) : m.group(3));
+            return action;
+        });
+
+        rule("(cobblestats|pokemon stats|check pokemon|mon stats)( (brief|full))?", FULL_MATCH, m -> {
+            CompanionAction action = new CompanionAction("cobblestats", null);
+            action.setParameter("detail", m.group(3) != null ? m.group(3) : "full");
+            return action;
+        });
+
+        rule("((check|open|show|list) )?((my|your|the) )?backpack( contents)?", FULL_MATCH, m -> {
+            CompanionAction action = new CompanionAction("backpack", null);
+            action.setParameter("subaction", m.group(2) == null || m.group(2).equals("check") ? "info" : "list");
+            return action;
+        });
+
+        rule("(organize|sort)( (my|your|the))? backpack", FULL_MATCH, m -> {
+            CompanionAction action = new CompanionAction("backpack", null);
+            action.setParameter("subaction", "organize");
+            return action;
+        });
+
+        rule("(mine|gather|collect|dig|chop)( me| us)?( some| a few| (\\d{1,4}))? ([a-z_]+( [a-z_]+)?)", PARAMETER_MATCH, m -> {
+            String block = m.group(5);
+            if (NOT_BLOCKS.contains(block.split(" ")[0])) {
+                return null;
+            }
+            block = singular(block);
+            if (block.equals("tree")) {
+                block = "wood";
+            }
+            // "collect your stuff" isn't a block; the LLM can work out what was meant
+            if (!TargetNames.isMineable(block)) {
+                return null;
+            }
+            CompanionAction action = new CompanionAction("mine", null);
+            action.setParameter("block", block.replace(' ', '_'));
+            action.setParameter("count", m.group(4) != null ? Integer.parseInt(m.group(4)) : 16);
+            return action;
+        });
+
+        rule("(attack|kill|fight)(?: (?:the|that|those|all|all the|nearby|all nearby))?(?: ([a-z_]+))?", PARAMETER_MATCH, m -> {
+            String target = attackTarget(m.group(2));
+            // "kill me", "fight me" and "kill time" aren't about mobs
+            if (!target.equals("hostile") && !TargetNames.isAttackable(target)) {
+                return null;
+            }
+            CompanionAction action = new CompanionAction("attack", null);
+            action.setParameter("target", target);
+            return action;
+        });
+    }
+
+    private static void simple(String regex, String actionName) {
+        rule(regex, FULL_MATCH, m -> new CompanionAction(actionName, null));
+    }
+
+    private static void rule(String regex, double confidence, Function<Matcher, CompanionAction> builder) {
+        RULES.add(new Rule(Pattern.compile(regex), confidence, builder));
+    }
+
+    /**
+     * Classify a command from someone allowed to give orders.
+     * Returns null unless the whole message matches one known command form.
+     */
+    @Nullable
+    public static Intent classify(String message) {
+        String text = normalize(message);
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        double confidence = 1.0;
+        // "can you follow me?" is still a command, but slightly less certain
+        if (POLITE_QUESTION.matcher(text).find()) {
+            confidence -= 0.05;
+        }
+        text = stripFillers(text);
+
+        for (Rule rule : RULES) {
+            Matcher matcher = rule.pattern().matcher(text);
+            if (matcher.matches()) {
+                CompanionAction action = rule.builder().apply(matcher);
+                if (action == null) {
+                    continue;
+                }
+                // A question mark on a bare command could be chat ("home?")
+                double penalty = message.trim().endsWith("?") && !text.contains(" ") ? 0.1 : 0.0;
+                return new Intent(action, rule.confidence() * confidence - penalty);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The action for an urgent message ("stop", "come here", "never mind"), or null if the message
+     * isn't urgent. Only a message that is nothing but the command (give or take the companion's name
+     * and fillers) counts; urgent messages cancel whatever the companion is still thinking about.
+     */
+    @Nullable
+    public static CompanionAction urgentAction(String message, String companionName) {
+        Intent intent = classify(message);
+        if (intent != null) {
+            return URGENT_ACTIONS.contains(intent.action().getAction()) ? intent.action() : null;
+        }
+        String text = stripFillers(stripName(stripFillers(normalize(message)), normalize(companionName)));
+        if (STOP.matcher(text).matches()) {
+            return new CompanionAction("stay", null);
+        }
+        if (NEVER_MIND.matcher(text).matches()) {
+            return new CompanionAction("idle", "Okay, never mind.");
+        }
+        return null;
+    }
+
+    // "Bob, stop" and "stop it Bob"
+    private static String stripName(String text, String name) {
+        if (name.isEmpty()) {
+            return text;
+        }
+        if (text.startsWith(name + " ")) {
+            return text.substring(name.length() + 1);
+        }
+        if (text.endsWith(" " + name)) {
+            return text.substring(0, text.length() - name.length() - 1);
+        }
+        return text;
+    }
+
+    static String normalize(String message) {
+        String lower = PUNCTUATION.matcher(message.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return WHITESPACE.matcher(lower).replaceAll(" ").trim();
+    }
+
+    static String stripFillers(String text) {
+        String previous;
+        do {
+            previous = text;
+            text = LEADING_FILLER.matcher(text).replaceFirst("");
+            text = TRAILING_FILLER.matcher(text).replaceFirst("");
+        } while (!text.equals(previous));
+        return text;
+    }
+
+    private static String attackTarget(@Nullable String word) {
+        if (word == null || HOSTILE_WORDS.contains(word)) {
+            return "hostile";
+        }
+        return singular(word);
+    }
+
+    // Block and entity ids are singular ("zombies" -> "zombie", "diamonds" -> "diamond")
+    static String singular(String word) {
+        if (word.endsWith("ches") || word.endsWith("shes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    /**
+     * Fallback parser that extracts action from plain text using keywords.
+     */
+    public static CompanionAction parseFromKeywords(String text) {
+        CompanionAction action = parseFromKeywords(text, Keywords.MATCHER.match(text));
+        if (action.getAction().equals("idle")) {
+            LLMoblings.LOGGER.info("No action keyword found, defaulting to idle");
+        }
+        return action;
+    }
+
+    /**
+     * Best local answer while the LLM can't be reached: only a message that is plainly a command, as
+     * confident as the fast path requires, is acted on. Anything else is chat the companion can't
+     * follow right now, so it says so rather than guessing from loose keywords.
+     */
+    public static CompanionAction parseOffline(String text) {
+        Intent intent = classify(text);
+        if (intent != null && intent.confidence() >= Config.FAST_PATH_MIN_CONFIDENCE.get()) {
+            return intent.action();
+        }
+        return new CompanionAction("idle", "I can't think straight right now - simple commands like \"follow me\" or \"mine 10 iron\" still work.");
+    }
+
+    /**
+     * Keyword decision chain, given the keywords found in the text. Earlier checks win.
+     */
+    static CompanionAction parseFromKeywords(String text, KeywordMatcher.Hits hits) {
+        // Check for action keywords
+        if (hits.any(Keywords.FOLLOW)) {
+            return new CompanionAction("follow", text);
+        }
+        if (hits.any(Keywords.EXPLORE)) {
+            return new CompanionAction("explore", text);
+        }
+        if (hits.any(Keywords.AUTO)) {
+            return new CompanionAction("auto", text);
+        }
+        if (hits.any(Keywords.DEFEND)) {
+            return new CompanionAction("defend", text);
+        }
+        if (hits.any(Keywords.ATTACK)) {
+            return new CompanionAction("attack", text);
+        }
+        if (hits.any(Keywords.HUNT)) {
+            return new CompanionAction("auto", text);  // Auto mode handles hunting
+        }
+        if (hits.any(Keywords.GEAR)) {
+            return new CompanionAction("auto", text);  // Auto mode handles equipping
+        }
+        if (hits.any(Keywords.STAY)) {
+            return new CompanionAction("stay", text);
+        }
+        if (hits.any(Keywords.COME)) {
+            return new CompanionAction("come", text);
+        }
+        if (hits.any(Keywords.HOME)) {
+            return new CompanionAction("home", text);
+        }
+        if (hits.any(Keywords.SCAN)) {
+            return new CompanionAction("scan", text);
+        }
+        if (hits.any(Keywords.STATUS)) {
+            return new CompanionAction("status", text);
+        }
+        if (hits.any(Keywords.TP_ACCEPT)) {
+            return new CompanionAction("tpaccept", text);
+        }
+        if (hits.any(Keywords.TP_DENY)) {
+            return new CompanionAction("tpdeny", text);
+        }
+        if (hits.any(Keywords.TPA)) {
+            // Try to extract player name from the first form that matched
+            String target = "";
+            for (int id : Keywords.TPA) {
+                if (hits.has(id)) {
+                    target = firstWord(text, hits.indexOf(id) + Keywords.MATCHER.keyword(id).length());
+                    break;
+                }
+            }
+            CompanionAction action = new CompanionAction("tpa", text);
+            action.setParameter("target", target);
+            return action;
+        }
+
+        // Portal/dimension travel commands
+        if (hits.any(Keywords.PORTAL)) {
+            CompanionAction action = new CompanionAction("portal", text);
+            // Determine if they want to go through or just follow
+            if (hits.any(Keywords.PORTAL_ENTER)) {
+                action.setParameter("action", "enter");
+            } else if (hits.any(Keywords.PORTAL_FOLLOW)) {
+                action.setParameter("action", "follow");
+            } else if (hits.any(Keywords.PORTAL_STAY)) {
+                action.setParameter("action", "stay");
+            } else {
+                // Default to enter if they mention portal
+                action.setParameter("action", "enter");
+            }
+            return action;
+        }
+
+        // ME network gear retrieval
+        if (hits.any(Keywords.IRON_GEAR)) {
+            CompanionAction action = new CompanionAction("getgear", text);
+            action.setParameter("material", "iron");
+            return action;
+        }
+        if (hits.any(Keywords.DIAMOND_GEAR)) {
+            CompanionAction action = new CompanionAction("getgear", text);
+            action.setParameter("material", "diamond");
+            return action;
+        }
+        if (hits.any(Keywords.ME_GEAR)) {
+            CompanionAction action = new CompanionAction("getgear", text);
+            action.setParameter("material", "iron");  // Default to iron
+            return action;
+        }
+
+        // Deposit items
+        if (hits.any(Keywords.DEPOSIT)) {
+            CompanionAction action = new CompanionAction("deposit", text);
+            // Check if they want to deposit everything including gear
+            if (hits.any(Keywords.DEPOSIT_ALL)) {
+                action.setParameter("keepGear", "false");
+            }
+            return action;
+        }
+
+        // Build structures
+        if (hits.has(Keywords.BUILD) && hits.any(Keywords.STRUCTURE)) {
+            CompanionAction action = new CompanionAction("build", text);
+            action.setParameter("structure", "cottage");
+
+            // Check for "here" keyword
+            if (hits.any(Keywords.HERE)) {
+                action.setParameter("here", "true");
+            }
+
+            // Try to extract coordinates if present (pattern: "at X Y Z" or "X, Y, Z")
+            Matcher matcher = COORDINATES.matcher(text);
+            if (matcher.find()) {
+                action.setParameter("x", matcher.group(1));
+                action.setParameter("y", matcher.group(2));
+                action.setParameter("z", matcher.group(3));
+            }
+            return action;
+        }
+
+        // Pokemon buddy commands
+        if (hits.any(Keywords.POKEMON)) {
+            CompanionAction action = new CompanionAction("pokemon", text);
+
+            if (hits.any(Keywords.POKEMON_RELEASE)) {
+                action.setParameter("subaction", "release");
+            } else if (hits.any(Keywords.POKEMON_STATUS)) {
+                action.setParameter("subaction", "status");
+            } else {
+                action.setParameter("subaction", "find");
+
+                // Try to extract Pokemon name
+                for (int id : Keywords.POKEMON_NAME_AFTER) {
+                    if (hits.has(id)) {
+                        String word = firstWord(text, hits.indexOf(id) + Keywords.MATCHER.keyword(id).length());
+                        if (!word.isEmpty()) {
+                            // Capitalize first letter
+                            String pokeName = word.substring(0, 1).toUpperCase() + word.substring(1).toLowerCase();
+                            action.setParameter("name", pokeName);
+                            break;
+                        }
+                    }
+                }
+            }
+            return action;
+        }
+
+        // Building Gadgets commands
+        if (hits.has(Keywords.GADGET)) {
+            CompanionAction action = new CompanionAction("gadget", text);
+
+            // Determine subaction
+            if (hits.any(Keywords.GADGET_EQUIP)) {
+                action.setParameter("subaction", "equip");
+            } else if (hits.any(Keywords.GADGET_SETBLOCK) || (hits.has(Keywords.SET) && hits.has(Keywords.TO))) {
+                action.setParameter("subaction", "setblock");
+                // Try to extract block name
+                for (int id : Keywords.GADGET_BLOCK_AFTER) {
+                    if (hits.has(id)) {
+                        String word = firstWord(text, hits.indexOf(id) + Keywords.MATCHER.keyword(id).length());
+                        if (!word.isEmpty()) {
+                            action.setParameter("block", word.toLowerCase());
+                            break;
+                        }
+                    }
+                }
+            } else if (hits.has(Keywords.RANGE)) {
+                action.setParameter("subaction", "setrange");
+                // Try to extract range number
+                Matcher rangeMatcher = NUMBER.matcher(text);
+                if (rangeMatcher.find()) {
+                    action.setParameter("range", rangeMatcher.group());
+                }
+            } else if (hits.any(Keywords.GADGET_CONFIGURE)) {
+                action.setParameter("subaction", "configure");
+                // Try to extract block and range
+                Matcher rangeMatcher = NUMBER.matcher(text);
+                if (rangeMatcher.find()) {
+                    action.setParameter("range", rangeMatcher.group());
+                }
+                // Common block names
+                for (int i = 0; i < Keywords.GADGET_BLOCKS.length; i++) {
+                    if (hits.any(Keywords.GADGET_BLOCK_NAMES[i])) {
+                        action.setParameter("block", Keywords.GADGET_BLOCKS[i]);
+                        break;
+                    }
+                }
+            } else if (hits.any(Keywords.GADGET_BUILD)) {
+                action.setParameter("subaction", "build");
+            } else {
+                action.setParameter("subaction", "info");
+            }
+            return action;
+        }
+
+        // Sophisticated Backpacks commands
+        if (hits.has(Keywords.BACKPACK) || hits.has(Keywords.PACK) && !hits.has(Keywords.MODPACK)) {
+            CompanionAction action = new CompanionAction("backpack", text);
+
+            // Determine subaction
+            if (hits.any(Keywords.BACKPACK_STORE)) {
+                if (hits.any(Keywords.ALL_OR_EVERYTHING)) {
+                    action.setParameter("subaction", "storeall");
+                } else {
+                    action.setParameter("subaction", "store");
+                    // Try to extract item name
+                    for (int id : Keywords.BACKPACK_STORE_AFTER) {
+                        if (hits.has(id)) {
+                            String rest = text.substring(hits.indexOf(id) + Keywords.MATCHER.keyword(id).length()).trim();
+                            // Remove "in backpack" etc
+                            rest = INTO_BACKPACK.matcher(rest).replaceAll("").trim();
+                            if (!rest.isEmpty()) {
+                                action.setParameter("item", firstWord(rest, 0).toLowerCase());
+                                break;
+                            }
+                        }
+                    }
+                }
+            } else if (hits.any(Keywords.BACKPACK_GET)) {
+                action.setParameter("subaction", "get");
+                // Try to extract item name and count
+                for (int id : Keywords.BACKPACK_GET_AFTER) {
+                    if (hits.has(id)) {
+                        String rest = text.substring(hits.indexOf(id) + Keywords.MATCHER.keyword(id).length()).trim();
+                        rest = FROM_BACKPACK.matcher(rest).replaceAll("").trim();
+                        if (!rest.isEmpty()) {
+                            // Try to extract count
+                            Matcher countMatcher = NUMBER.matcher(rest);
+                            if (countMatcher.find()) {
+                                action.setParameter("count", countMatcher.group());
+                                rest = FIRST_NUMBER.matcher(rest).replaceFirst("").trim();
+                            }
+                            String word = firstWord(rest, 0);
+                            if (!word.isEmpty()) {
+                                action.setParameter("item", word.toLowerCase());
+                                break;
+                            }
+                        }
+                    }
+                }
+            } else if (hits.any(Keywords.BACKPACK_LIST)) {
+                action.setParameter("subaction", "list");
+            } else if (hits.any(Keywords.BACKPACK_ORGANIZE)) {
+                action.setParameter("subaction", "organize");
+            } else {
+                action.setParameter("subaction", "info");
+            }
+            return action;
+        }
+
+        // Elevator commands
+        if (hits.any(Keywords.ELEVATOR) ||
+            (hits.has(Keywords.GO) && (hits.has(Keywords.UP) || hits.has(Keywords.DOWN)) && hits.has(Keywords.FLOOR))) {
+            CompanionAction action = new CompanionAction("elevator", text);
+            if (hits.any(Keywords.ELEVATOR_UP)) {
+                action.setParameter("direction", "up");
+            } else if (hits.any(Keywords.ELEVATOR_DOWN)) {
+                action.setParameter("direction", "down");
+            } else {
+                action.setParameter("direction", "up"); // Default to up
+            }
+            return action;
+        }
+
+        // Pokemon stats commands (Cobblemon)
+        if (hits.any(Keywords.COBBLESTATS) ||
+            (hits.has(Keywords.STATS) && (hits.has(Keywords.POKEMON_WORD) || hits.has(Keywords.COBBLE)))) {
+            CompanionAction action = new CompanionAction("cobblestats", text);
+
+            // Check if they want brief or full stats
+            if (hits.any(Keywords.STATS_BRIEF)) {
+                action.setParameter("detail", "brief");
+            } else if (hits.any(Keywords.STATS_FULL)) {
+                action.setParameter("detail", "full");
+            } else {
+                action.setParameter("detail", "full"); // Default to full
+            }
+
+            // Check if they specified a Pokemon name
+            String[] words = WHITESPACE.split(text);
+            for (int i = 0; i < words.length; i++) {
+                String word = words[i].toLowerCase();
+                if (word.equals("on") || word.equals("for") || word.equals("of")) {
+                    if (i + 1 < words.length) {
+                        action.setParameter("target", words[i + 1]);
+                        break;
+                    }
+                }
+            }
+
+            return action;
+        }
+
+        // Default to idle with the response as message
+        return new CompanionAction("idle", text);
+    }
+
+    /**
+     * First whitespace-separated word of the text after the given index ("" if none).
+     */
+    private static String firstWord(String text, int from) {
+        int start = from;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+            end++;
+        }
+        return text.substring(start, end);
+    }
+
+    /**
+     * Every keyword the fallback parser looks for, compiled into one matcher at class load.
+     */
+    static final class Keywords {
+        private static final List<String> WORDS = new ArrayList<>();
+        private static final Map<String, Integer> IDS = new HashMap<>();
+
+        static final int[] FOLLOW = of("follow");
+        static final int[] EXPLORE = of("explor", "look around", "wander");
+        static final int[] AUTO = of("auto", "independent", "on my own");
+        static final int[] DEFEND = of("defend", "protect");
+        static final int[] ATTACK = of("attack", "fight", "kill");
+        static final int[] HUNT = of("hunt", "food", "eat");
+        static final int[] GEAR = of("gear", "equip", "armor", "weapon");
+        static final int[] STAY = of("stay", "stop", "wait");
+        static final int[] COME = of("come", "here");
+        static final int[] HOME = of("home");
+        static final int[] SCAN = of("scan");
+        static final int[] STATUS = of("status", "health", "inventory");
+        static final int[] TP_ACCEPT = of("tpaccept", "tp accept", "accept teleport", "accept tp");
+        static final int[] TP_DENY = of("tpdeny", "tp deny", "deny teleport", "deny tp");
+        static final int[] TPA = of("tpa ", "teleport to ", "tp to ");
+
+        static final int[] PORTAL = of("portal", "nether", "the end", "dimension", "through the");
+        static final int[] PORTAL_ENTER = of("go through", "enter", "use", "step through", "take the", "use the");
+        static final int[] PORTAL_FOLLOW = of("follow", "come with", "follow me");
+        static final int[] PORTAL_STAY = of("stay", "wait", "don't");
+
+        static final int[] IRON_GEAR = of("get iron", "iron set", "iron gear", "iron armor", "craft iron");
+        static final int[] DIAMOND_GEAR = of("get diamond", "diamond set", "diamond gear", "diamond armor", "craft diamond");
+        static final int[] ME_GEAR = of("get gear from me", "me network", "from ae2", "from terminal");
+
+        static final int[] DEPOSIT = of("deposit", "store", "stash", "put away", "put items", "empty inventory");
+        static final int[] DEPOSIT_ALL = of("everything", "all items", "including gear");
+
+        static final int BUILD = one("build");
+        static final int[] STRUCTURE = of("house", "cottage", "home", "shelter");
+        static final int[] HERE = of("here", "this spot", "right here");
+
+        static final int[] POKEMON = of("pokemon", "buddy", "poke");
+        static final int[] POKEMON_RELEASE = of("release", "bye", "dismiss", "let go");
+        static final int[] POKEMON_STATUS = of("status", "check", "how is");
+        static final int[] POKEMON_NAME_AFTER = of("with", "bond with", "find", "get");
+
+        static final int GADGET = one("gadget");
+        static final int[] GADGET_EQUIP = of("equip", "hold");
+        static final int[] GADGET_SETBLOCK = of("set block", "setblock");
+        static final int SET = one("set");
+        static final int TO = one("to");
+        static final int[] GADGET_BLOCK_AFTER = of("to ", "block ", "with ");
+        static final int RANGE = one("range");
+        static final int[] GADGET_CONFIGURE = of("config", "setup");
+        static final String[] GADGET_BLOCKS = {"stone", "cobblestone", "oak_planks", "spruce_planks", "birch_planks",
+                "brick", "glass", "dirt", "sand", "gravel", "iron_block", "gold_block"};
+        static final int[][] GADGET_BLOCK_NAMES = new int[GADGET_BLOCKS.length][];
+        static final int[] GADGET_BUILD = of("use", "build", "place");
+
+        static final int BACKPACK = one("backpack");
+        static final int PACK = one("pack");
+        static final int MODPACK = one("modpack");
+        static final int[] BACKPACK_STORE = of("store", "stash", "put in");
+        static final int[] ALL_OR_EVERYTHING = of("all", "everything");
+        static final int[] BACKPACK_STORE_AFTER = of("store ", "stash ", "put ");
+        static final int[] BACKPACK_GET = of("get", "take", "retrieve", "grab");
+        static final int[] BACKPACK_GET_AFTER = of("get ", "take ", "retrieve ", "grab ");
+        static final int[] BACKPACK_LIST = of("list", "contents", "what's in", "show me");
+        static final int[] BACKPACK_ORGANIZE = of("organize", "sort");
+
+        static final int[] ELEVATOR = of("elevator", "lift");
+        static final int GO = one("go");
+        static final int UP = one("up");
+        static final int DOWN = one("down");
+        static final int FLOOR = one("floor");
+        static final int[] ELEVATOR_UP = of("up", "ascend", "higher");
+        static final int[] ELEVATOR_DOWN = of("down", "descend", "lower");
+
+        static final int[] COBBLESTATS = of("cobblestats", "pokemon stats", "check pokemon", "pokemon ivs",
+                "pokemon evs", "mon stats");
+        static final int STATS = one("stats");
+        static final int POKEMON_WORD = one("pokemon");
+        static final int COBBLE = one("cobble");
+        static final int[] STATS_BRIEF = of("brief", "quick", "short");
+        static final int[] STATS_FULL = of("full", "detailed", "all");
+
+        static {
+            for (int i = 0; i < GADGET_BLOCKS.length; i++) {
+                GADGET_BLOCK_NAMES[i] = of(GADGET_BLOCKS[i].replace("_", " "), GADGET_BLOCKS[i]);
+            }
+        }
+
+        static final KeywordMatcher MATCHER = new KeywordMatcher(WORDS);
+
+        private static int one(String word) {
+            return IDS.computeIfAbsent(word, w -> {
+                WORDS.add(w);
+                return WORDS.size() - 1;
+            });
+        }
+
+        private static int[] of(String... words) {
+            int[] ids = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                ids[i] = one(words[i]);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.gblfxt.llmoblings.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Finds every keyword of a fixed set in one pass over the text (Aho-Corasick).
+ * Built once; matching is case-insensitive and allocation-light, so it is cheap enough
+ * to run on the server thread for every chat message.
+ */
+public class KeywordMatcher {
+    private static final int ASCII = 128;
+
+    private final String[] keywords;
+    private final int[] charClass = new int[ASCII];
+    private final int classCount;
+    private final int[] transitions;     // state * classCount + class -> next state
+    private final int[][] outputs;       // state -> keyword ids ending here
+
+    public KeywordMatcher(List<String> keywordList) {
+        this.keywords = keywordList.stream().map(k -> k.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+
+        // Only characters that appear in a keyword need their own column; everything else is class 0
+        int classes = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ASCII) {
+                    throw new IllegalArgumentException("Keywords must be ASCII: " + keyword);
+                }
+                if (charClass[c] == 0) {
+                    charClass[c] = classes++;
+                }
+            }
+        }
+        this.classCount = classes;
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(newRow());
+        out.add(new ArrayList<>());
+        for (int id = 0; id < keywords.length; id++) {
+            int state = 0;
+            for (int i = 0; i < keywords[id].length(); i++) {
+                int cls = charClass[keywords[id].charAt(i)];
+                if (trie.get(state)[cls] < 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(newRow());
+                    out.add(new ArrayList<>());
+                }
+                state = trie.get(state)[cls];
+            }
+            out.get(state).add(id);
+        }
+
+        // Failure links, folded straight into a full transition table
+        int stateCount = trie.size();
+        int[] fail = new int[stateCount];
+        this.transitions = new int[stateCount * classCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < classCount; cls++) {
+            int child = trie.get(0)[cls];
+            if (child > 0) {
+                transitions[cls] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            out.get(state).addAll(out.get(fail[state]));
+            for (int cls = 0; cls < classCount; cls++) {
+                int child = trie.get(state)[cls];
+                int fallback = transitions[fail[state] * classCount + cls];
+                if (child > 0) {
+                    fail[child] = fallback;
+                    transitions[state * classCount + cls] = child;
+                    queue.add(child);
+                } else {
+                    transitions[state * classCount + cls] = fallback;
+                }
+            }
+        }
+
+        this.outputs = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            outputs[state] = out.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[classCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    public String keyword(int id) {
+        return keywords[id];
+    }
+
+    /**
+     * Scan the text once and record where each keyword first occurs.
+     */
+    public Hits match(CharSequence text) {
+        // Stored as position + 1 so a fresh array already means "not found"
+        int[] first = new int[keywords.length];
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int cls = c < ASCII ? charClass[c] : 0;
+            state = transitions[state * classCount + cls];
+            for (int id : outputs[state]) {
+                if (first[id] == 0) {
+                    first[id] = i - keywords[id].length() + 2;
+                }
+            }
+        }
+        return new Hits(first);
+    }
+
+    /**
+     * Answers "is this keyword in the message, and where" after a single scan.
+     */
+    public static class Hits {
+        private final int[] first;
+
+        Hits(int[] first) {
+            this.first = first;
+        }
+
+        public int indexOf(int id) {
+            return first[id] - 1;
+        }
+
+        public boolean has(int id) {
+            return indexOf(id) >= 0;
+        }
+
+        public boolean any(int[] ids) {
+            for (int id : ids) {
+                if (has(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Owns all LLM traffic for the server.
+ * Requests run on virtual threads (never the common ForkJoin pool) with a bounded number in flight,
+ * so a request waiting seconds on Ollama doesn't hold a platform thread and hundreds can be in flight.
+ * Waiting requests are ordered by priority, then by a per-player fair-queueing ticket so one
+ * chatty player can't starve everyone else. When the queue is full, requests are rejected immediately.
+ */
+public class LLMRequestScheduler {
+
+    public enum Priority {
+        OWNER_COMMAND,   // Owner or teammate giving a command
+        STRANGER_CHAT,   // Non-owner chatter
+        BACKGROUND       // Housekeeping work nobody is waiting on
+    }
+
+    private static final UUID NO_PLAYER = new UUID(0L, 0L);
+    private static final Object INSTANCE_LOCK = new Object();
+    private static volatile LLMRequestScheduler instance;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxQueued;
+    private final int maxQueuedPerPlayer;
+
+    // Fair queueing: each player's requests get increasing tickets starting from the global clock
+    private final Map<UUID, Long> lastTicket = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicInteger> queuedPerPlayer = new ConcurrentHashMap<>();
+    // Jobs submitted but not yet picked up; reserved before execute so the bound holds under concurrent submits
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private long virtualClock = 0;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+
+    /**
+     * A private scheduler, separate from the server-wide one (used by the load benchmark).
+     * Stop it with {@link #close()}.
+     */
+    LLMRequestScheduler(int maxInFlight, int maxQueued, int maxQueuedPerPlayer) {
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerPlayer = maxQueuedPerPlayer;
+
+        ThreadFactory factory = Thread.ofVirtual().name("LLMoblings-LLM-", 1).factory();
+
+        this.executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), factory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static LLMRequestScheduler get() {
+        if (instance == null) {
+            synchronized (INSTANCE_LOCK) {
+                if (instance == null) {
+                    instance = new LLMRequestScheduler(
+                            Config.LLM_MAX_IN_FLIGHT.get(),
+                            Config.LLM_MAX_QUEUED.get(),
+                            Config.LLM_MAX_QUEUED_PER_PLAYER.get());
+                    LLMoblings.LOGGER.info("LLM scheduler started ({} in flight, {} queued max)",
+                            Config.LLM_MAX_IN_FLIGHT.get(), Config.LLM_MAX_QUEUED.get());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the scheduler and drop anything still queued. A new one is created on next use.
+     */
+    public static void shutdown() {
+        synchronized (INSTANCE_LOCK) {
+            if (instance != null) {
+                int dropped = instance.close();
+                instance = null;
+                LLMoblings.LOGGER.info("LLM scheduler stopped ({} queued requests dropped)", dropped);
+            }
+        }
+    }
+
+    /**
+     * Stop this scheduler, interrupting running tasks. Queued tasks are dropped and their futures
+     * fail with {@link CancellationException}. Returns how many were dropped.
+     */
+    int close() {
+        List<Runnable> pending = executor.shutdownNow();
+        for (Runnable runnable : pending) {
+            if (runnable instanceof Job<?> job) {
+                job.drop();
+            }
+        }
+        return pending.size();
+    }
+
+    /**
+     * Queue a blocking LLM task. The returned future fails with {@link RejectedExecutionException}
+     * straight away if the queue (or the player's share of it) is full. Cancelling the future takes
+     * the task out of the queue, freeing its slot, or interrupts it if it is running (which aborts its
+     * HTTP request).
+     */
+    public <T> CompletableFuture<T> submit(@Nullable UUID player, Priority priority, Supplier<T> task) {
+        UUID key = player != null ? player : NO_PLAYER;
+        submitted.incrementAndGet();
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return reject("LLM queue is full");
+        }
+
+        AtomicInteger playerQueued = queuedPerPlayer.computeIfAbsent(key, k -> new AtomicInteger());
+        if (playerQueued.incrementAndGet() > maxQueuedPerPlayer && player != null) {
+            playerQueued.decrementAndGet();
+            queued.decrementAndGet();
+            return reject("Too many queued requests for player " + player);
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Job<T> job = new Job<>(key, priority, nextTicket(key), sequence.incrementAndGet(), task, future);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                job.cancel();
+            }
+        });
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            playerQueued.decrementAndGet();
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> CompletableFuture<T> reject(String reason) {
+        rejected.incrementAndGet();
+        return CompletableFuture.failedFuture(new RejectedExecutionException(reason));
+    }
+
+    private synchronized long nextTicket(UUID player) {
+        long ticket = Math.max(virtualClock, lastTicket.getOrDefault(player, 0L)) + 1;
+        lastTicket.put(player, ticket);
+        return ticket;
+    }
+
+    private synchronized void advanceClock(long ticket) {
+        virtualClock = Math.max(virtualClock, ticket);
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getInFlightCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * Average time a request waited in the queue before a worker picked it up.
+     */
+    public double getAverageQueueWaitMillis() {
+        long count = started.get();
+        return count == 0 ? 0 : queueWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public static boolean isRejection(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof RejectedExecutionException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private final class Job<T> implements Runnable, Comparable<Job<?>> {
+        private final UUID player;
+        private final Priority priority;
+        private final long ticket;
+        private final long seq;
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future;
+        private final long queuedAt = System.nanoTime();
+        // Worker running the task, guarded by this job's lock so an interrupt never hits the worker's next task
+        private Thread runner;
+
+        Job(UUID player, Priority priority, long ticket, long seq, Supplier<T> task, CompletableFuture<T> future) {
+            this.player = player;
+            this.priority = priority;
+            this.ticket = ticket;
+            this.seq = seq;
+            this.task = task;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            dequeued();
+            advanceClock(ticket);
+
+            if (future.isDone()) {
+                return;  // Cancelled while waiting
+            }
+            started.incrementAndGet();
+            long waited = System.nanoTime() - queuedAt;
+            queueWaitNanos.addAndGet(waited);
+            if (LLMRequestScheduler.this == instance) {
+                LLMTelemetry.recordQueueWait(waited);
+            }
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted();  // Clear a cancellation that arrived as the task finished
+                }
+            }
+        }
+
+        // Dropped from the queue at shutdown: nobody will run it, so don't leave the caller waiting
+        void drop() {
+            dequeued();
+            future.completeExceptionally(new CancellationException("LLM scheduler stopped"));
+        }
+
+        private void dequeued() {
+            queuedPerPlayer.get(player).decrementAndGet();
+            queued.decrementAndGet();
+        }
+
+        // Still queued: take it out so it stops counting against the bounds; otherwise a worker has it
+        void cancel() {
+            if (executor.remove(this)) {
+                dequeued();
+            } else {
+                interrupt();
+            }
+        }
+
+        synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int cmp = priority.compareTo(other.priority);
+            if (cmp != 0) return cmp;
+            cmp = Long.compare(ticket, other.ticket);
+            if (cmp != 0) return cmp;
+            return Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.gblfxt.llmoblings.ai;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Where the time goes on the LLM path: queue wait, time to response headers and to the first token,
+ * total call time, token counts and generation speed, plus where each reply came from (the model's
+ * JSON, the keyword fallback, the intent router, ...). Recorded from the request threads into
+ * lock-free histograms, shown with /companion llm stats, and emitted as JFR events so a recording
+ * (e.g. vanilla's /jfr start) lines them up with server tick times.
+ */
+public class LLMTelemetry {
+
+    public enum Source {
+        LLM("model JSON"),
+        KEYWORD_FALLBACK("keyword fallback"),
+        ROUTED("intent router"),
+        OFFLINE("offline"),
+        FAST_PATH("fast path"),
+        CACHE("action cache");
+
+        private final String label;
+
+        Source(String label) {
+            this.label = label;
+        }
+    }
+
+    public static final Histogram QUEUE_WAIT = new Histogram("Queue wait", "ms");
+    public static final Histogram HEADERS = new Histogram("Headers", "ms");
+    public static final Histogram FIRST_TOKEN = new Histogram("First token", "ms");
+    public static final Histogram CALL_TIME = new Histogram("Call total", "ms");
+    public static final Histogram PROMPT_TOKENS = new Histogram("Prompt tokens", "");
+    public static final Histogram OUTPUT_TOKENS = new Histogram("Output tokens", "");
+    public static final Histogram PROMPT_RATE = new Histogram("Prompt eval", "tok/s");
+    public static final Histogram GENERATION_RATE = new Histogram("Generation", "tok/s");
+
+    private static final Histogram[] HISTOGRAMS = {QUEUE_WAIT, HEADERS, FIRST_TOKEN, CALL_TIME,
+            PROMPT_TOKENS, OUTPUT_TOKENS, PROMPT_RATE, GENERATION_RATE};
+
+    private static final AtomicLongArray replies = new AtomicLongArray(Source.values().length);
+    private static final AtomicLong calls = new AtomicLong();
+    private static final AtomicLong failedCalls = new AtomicLong();
+
+    // Set by the scheduler when a request thread picks up a job, read when that job's events are written
+    private static final ThreadLocal<Long> queueWait = ThreadLocal.withInitial(() -> 0L);
+
+    /**
+     * The current request thread's job waited this long in the scheduler queue.
+     */
+    static void recordQueueWait(long nanos) {
+        queueWait.set(nanos);
+        QUEUE_WAIT.record(nanos / 1_000_000);
+    }
+
+    static long currentQueueWait() {
+        return queueWait.get();
+    }
+
+    /**
+     * One HTTP call to Ollama that returned a reply. Times are nanoseconds from sending the request;
+     * {@code firstTokenNanos} is 0 when no text arrived.
+     */
+    static void recordCall(CallEvent event, String companion, String endpoint, OllamaBackendPool.Backend backend,
+                           String model, long headersNanos, long firstTokenNanos, long totalNanos,
+                           OllamaWire.Chunk stats) {
+        calls.incrementAndGet();
+        HEADERS.record(headersNanos / 1_000_000);
+        if (firstTokenNanos > 0) {
+            FIRST_TOKEN.record(firstTokenNanos / 1_000_000);
+        }
+        CALL_TIME.record(totalNanos / 1_000_000);
+        PROMPT_TOKENS.record(stats.promptEvalCount);
+        OUTPUT_TOKENS.record(stats.evalCount);
+        double promptRate = rate(stats.promptEvalCount, stats.promptEvalDuration);
+        double generationRate = rate(stats.evalCount, stats.evalDuration);
+        if (promptRate > 0) {
+            PROMPT_RATE.record(Math.round(promptRate));
+        }
+        if (generationRate > 0) {
+            GENERATION_RATE.record(Math.round(generationRate));
+        }
+
+        if (event.shouldCommit()) {
+            event.companion = companion;
+            event.endpoint = endpoint;
+            event.backend = backend.toString();
+            event.model = model;
+            event.queueWait = currentQueueWait();
+            event.timeToHeaders = headersNanos;
+            event.timeToFirstToken = firstTokenNanos;
+            event.promptTokens = stats.promptEvalCount;
+            event.outputTokens = stats.evalCount;
+            event.promptTokensPerSecond = (float) promptRate;
+            event.tokensPerSecond = (float) generationRate;
+            event.commit();
+        }
+    }
+
+    /**
+     * A call that failed or was cancelled before a reply came back.
+     */
+    static void recordFailedCall(CallEvent event, String companion, String endpoint, OllamaBackendPool.Backend backend,
+                                 String model, Throwable error) {
+        failedCalls.incrementAndGet();
+        if (event.shouldCommit()) {
+            event.companion = companion;
+            event.endpoint = endpoint;
+            event.backend = backend.toString();
+            event.model = model;
+            event.queueWait = currentQueueWait();
+            event.error = error.toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * Where a companion's answer to a message came from.
+     */
+    public static void recordReply(String companion, Source source) {
+        replies.incrementAndGet(source.ordinal());
+        ReplyEvent event = new ReplyEvent();
+        if (event.shouldCommit()) {
+            event.companion = companion;
+            event.source = source.label;
+            event.commit();
+        }
+    }
+
+    private static double rate(long tokens, long durationNanos) {
+        return tokens > 0 && durationNanos > 0 ? tokens * 1e9 / durationNanos : 0;
+    }
+
+    public static long getReplies(Source source) {
+        return replies.get(source.ordinal());
+    }
+
+    public static long getCalls() {
+        return calls.get();
+    }
+
+    public static long getFailedCalls() {
+        return failedCalls.get();
+    }
+
+    /**
+     * Share of model replies that weren't valid JSON and went through the keyword fallback.
+     */
+    public static double getFallbackRate() {
+        long llm = getReplies(Source.LLM) + getReplies(Source.KEYWORD_FALLBACK);
+        return llm > 0 ? (double) getReplies(Source.KEYWORD_FALLBACK) / llm : 0;
+    }
+
+    public static Histogram[] getHistograms() {
+        return HISTOGRAMS;
+    }
+
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        for (int i = 0; i < replies.length(); i++) {
+            replies.set(i, 0);
+        }
+        calls.set(0);
+        failedCalls.set(0);
+    }
+
+    public static String describeReplies() {
+        StringBuilder sb = new StringBuilder();
+        for (Source source : Source.values()) {
+            if (!sb.isEmpty()) sb.append(", ");
+            sb.append(getReplies(source)).append(" ").append(source.label);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Log-linear buckets in the style of HdrHistogram: exact below 16, then 16 buckets per power of two,
+     * so any value is within about 6% of its bucket. Each bucket is an atomic counter; recording never
+     * locks, and reading while others record gives a consistent enough picture for a status command.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // Values up to 2^40 get their own bucket; larger ones share the top one
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+        private final String name;
+        private final String unit;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public Histogram(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        public void record(long value) {
+            long v = Math.max(0, value);
+            counts.incrementAndGet(bucketOf(v));
+            count.incrementAndGet();
+            sum.addAndGet(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) Math.min(SUB_BUCKETS - 1, (value >>> shift) - SUB_BUCKETS);
+            return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Largest value that lands in the bucket.
+         */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        }
+
+        /**
+         * The value below which {@code p} (0 to 1) of recorded values fall, or 0 if nothing was recorded.
+         */
+        public long percentile(double p) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(p * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long total = count.get();
+            return total > 0 ? (double) sum.get() / total : 0;
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        @Override
+        public String toString() {
+            String suffix = unit.isEmpty() ? "" : " " + unit;
+            return String.format("%s: p50 %d%s, p95 %d%s, p99 %d%s, max %d%s (%d samples)", name,
+                    percentile(0.50), suffix, percentile(0.95), suffix, percentile(0.99), suffix,
+                    getMax(), suffix, getCount());
+        }
+    }
+
+    @Name("llmoblings.LLMCall")
+    @Label("LLM Call")
+    @Category({"LLMoblings", "LLM"})
+    @Description("One HTTP request to an Ollama backend")
+    @StackTrace(false)
+    public static final class CallEvent extends Event {
+        @Label("Companion")
+        String companion;
+        @Label("Endpoint")
+        String endpoint;
+        @Label("Backend")
+        String backend;
+        @Label("Model")
+        String model;
+        @Label("Queue Wait")
+        @Timespan
+        long queueWait;
+        @Label("Time to Headers")
+        @Timespan
+        long timeToHeaders;
+        @Label("Time to First Token")
+        @Timespan
+        long timeToFirstToken;
+        @Label("Prompt Tokens")
+        long promptTokens;
+        @Label("Output Tokens")
+        long outputTokens;
+        @Label("Prompt Tokens per Second")
+        float promptTokensPerSecond;
+        @Label("Output Tokens per Second")
+        float tokensPerSecond;
+        @Label("Error")
+        @Nullable
+        String error;
+    }
+
+    @Name("llmoblings.CompanionReply")
+    @Label("Companion Reply")
+    @Category({"LLMoblings", "LLM"})
+    @Description("Where a companion's answer to a chat message came from")
+    @StackTrace(false)
+    public static final class ReplyEvent extends Event {
+        @Label("Companion")
+        String companion;
+        @Label("Source")
+        String source;
+    }
+}
@@ -5,7 +5,6 @@ import com.gblfxt.llmoblings.LLMoblings;
 import com.gblfxt.llmoblings.entity.CompanionEntity;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.registries.BuiltInRegistries;
-import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.Container;
 import net.minecraft.world.entity.item.ItemEntity;
@@ -45,6 +44,26 @@ public class MiningTask {
     // Mining speeds (ticks to break)
     private static final int BASE_MINING_TICKS = 30; // About 1.5 seconds base
 
+    // Measured pace (game ticks per block, searching and walking included) by requested block and
+    // tool tier, used to simulate mining while the companion is dormant
+    private static final Map<String, Double> TICKS_PER_BLOCK = new HashMap<>();
+    private static final double DEFAULT_TICKS_PER_BLOCK = 100;
+    private static final int MIN_OWN_SAMPLES = 3;
+    private final long startTime;
+    private long lastBreakTime;
+
+    // Catching up on blocks simulated while dormant, a little per tick: the search volume is scanned
+    // a slice at a time, then the blocks found are mined a few at a time, nearest first
+    private static final int CATCH_UP_SCAN_PER_STEP = 4096;
+    private static final int CATCH_UP_MINED_PER_STEP = 4;
+    private int catchUpRemaining = 0;
+    private int catchUpMined = 0;
+    private boolean catchUpReported = true;
+    private BlockPos catchUpCenter = null;
+    private Iterator<BlockPos> catchUpScan = null;
+    private final List<BlockPos> catchUpFound = new ArrayList<>();
+    private int catchUpNext = 0;
+
     // Ultimine-style mining queue
     private final Queue<BlockPos> miningQueue = new LinkedList<>();
     private boolean isVeinMining = false;
@@ -57,9 +76,13 @@ public class MiningTask {
         this.targetCount = count;
         this.searchRadius = searchRadius;
         this.homePos = companion.blockPosition();
+        this.startTime = companion.level().getGameTime();
+        this.lastBreakTime = startTime;
 
         resolveTargetBlocks();
+        long scanStart = CompanionProfiler.start();
         scanProtectedZones();
+        CompanionProfiler.end(CompanionProfiler.Section.PROTECTED_ZONES, scanStart);
 
         if (targetBlocks.isEmpty()) {
             failed = true;
@@ -182,58 +205,7 @@ public class MiningTask {
     }
 
     private void resolveTargetBlocks() {
-        // Try to match block by name (partial matching for convenience)
-        String searchTerm = targetBlockName.replace(" ", "_");
-
-        // Common aliases
-        Map<String, String> aliases = Map.of(
-            "wood", "oak_log",
-            "logs", "oak_log",
-            "stone", "stone",
-            "cobble", "cobblestone",
-            "dirt", "dirt",
-            "iron", "iron_ore",
-            "gold", "gold_ore",
-            "diamond", "diamond_ore",
-            "coal", "coal_ore",
-            "copper", "copper_ore"
-        );
-
-        if (aliases.containsKey(searchTerm)) {
-            searchTerm = aliases.get(searchTerm);
-        }
-
-        // Search all registered blocks
-        for (var entry : BuiltInRegistries.BLOCK.entrySet()) {
-            ResourceLocation id = entry.getKey().location();
-            String blockId = id.getPath();
-
-            // Match if the block ID contains our search term
-            if (blockId.contains(searchTerm) || searchTerm.contains(blockId)) {
-                targetBlocks.add(entry.getValue());
-            }
-        }
-
-        // Special handling for "log" to get all log types
-        if (searchTerm.contains("log") || searchTerm.equals("wood")) {
-            for (var entry : BuiltInRegistries.BLOCK.entrySet()) {
-                String blockId = entry.getKey().location().getPath();
-                if (blockId.endsWith("_log") || blockId.endsWith("_wood")) {
-                    targetBlocks.add(entry.getValue());
-                }
-            }
-        }
-
-        // Special handling for ores
-        if (searchTerm.contains("ore")) {
-            for (var entry : BuiltInRegistries.BLOCK.entrySet()) {
-                String blockId = entry.getKey().location().getPath();
-                if (blockId.contains(searchTerm.replace("_ore", "")) && blockId.contains("ore")) {
-                    targetBlocks.add(entry.getValue());
-                }
-            }
-        }
-
+        targetBlocks.addAll(TargetNames.resolveBlocks(targetBlockName));
         LLMoblings.LOGGER.debug("Resolved '{}' to {} block types", targetBlockName, targetBlocks.size());
     }
 
@@ -249,7 +221,9 @@ public class MiningTask {
         }
 
         // Pick up nearby items
+        long pickupStart = CompanionProfiler.start();
         pickupNearbyItems();
+        CompanionProfiler.end(CompanionProfiler.Section.ITEM_PICKUP, pickupStart);
 
         // Get next target from queue or find new one
         if (currentTarget == null || !isValidTarget(currentTarget)) {
@@ -264,7 +238,9 @@ public class MiningTask {
 
             // If queue is empty, find a new vein/tree
             if (currentTarget == null) {
+                long searchStart = CompanionProfiler.start();
                 currentTarget = findNearestTargetBlock();
+                CompanionProfiler.end(CompanionProfiler.Section.MINING_SEARCH, searchStart);
                 miningProgress = 0;
                 ticksAtCurrentBlock = 0;
                 isVeinMining = false;
@@ -343,6 +319,7 @@ public class MiningTask {
                 // Break the block
                 breakBlock(currentTarget);
                 minedCount++;
+                recordPace();
                 currentTarget = null;
                 miningProgress = 0;
 
@@ -547,6 +524,116 @@ public class MiningTask {
         LLMoblings.LOGGER.debug("Companion mined {} at {}", state.getBlock(), pos);
     }
 
+    private void recordPace() {
+        long now = companion.level().getGameTime();
+        double ticks = now - lastBreakTime;
+        lastBreakTime = now;
+        TICKS_PER_BLOCK.merge(paceKey(), ticks, (average, sample) -> average * 0.8 + sample * 0.2);
+    }
+
+    private String paceKey() {
+        return targetBlockName + "@" + UltimineHelper.getHeldToolTier(companion);
+    }
+
+    /**
+     * Game ticks this companion takes per block: its own pace once it has mined a few,
+     * otherwise what was measured for this block and tool before.
+     */
+    public double estimateTicksPerBlock() {
+        if (minedCount >= MIN_OWN_SAMPLES) {
+            return (double) (lastBreakTime - startTime) / minedCount;
+        }
+        return TICKS_PER_BLOCK.getOrDefault(paceKey(), DEFAULT_TICKS_PER_BLOCK);
+    }
+
+    /**
+     * Catch up on up to {@code count} blocks simulated while dormant, with the drops going straight into
+     * the companion's inventory. Only blocks that are really there and safe to mine are taken, so the
+     * world caps the estimate. The work is done by {@link #catchUpStep()}, spread over ticks.
+     */
+    public void startCatchUp(int count) {
+        if (count <= 0 || completed || failed) {
+            return;
+        }
+        int radius = Math.min(searchRadius, ChunkLoadingManager.getWorkingRadius());
+        catchUpCenter = companion.blockPosition();
+        catchUpScan = BlockPos.betweenClosed(catchUpCenter.offset(-radius, -radius, -radius),
+                catchUpCenter.offset(radius, radius, radius)).iterator();
+        catchUpFound.clear();
+        catchUpNext = 0;
+        catchUpRemaining = count;
+        catchUpMined = 0;
+        catchUpReported = false;
+    }
+
+    public boolean isCatchingUp() {
+        return catchUpRemaining > 0 && !completed && !failed;
+    }
+
+    /**
+     * One bounded slice of the catch-up: scan part of the volume, or mine a few of the blocks found.
+     */
+    public void catchUpStep() {
+        if (!isCatchingUp() || !(companion.level() instanceof ServerLevel serverLevel)) {
+            catchUpRemaining = 0;
+            return;
+        }
+
+        if (catchUpScan != null) {
+            for (int i = 0; i < CATCH_UP_SCAN_PER_STEP && catchUpScan.hasNext(); i++) {
+                BlockPos pos = catchUpScan.next();
+                if (targetBlocks.contains(serverLevel.getBlockState(pos).getBlock())) {
+                    catchUpFound.add(pos.immutable());
+                }
+            }
+            if (!catchUpScan.hasNext()) {
+                catchUpScan = null;
+                catchUpFound.sort(Comparator.comparingDouble(catchUpCenter::distSqr));
+            }
+            return;
+        }
+
+        int mined = 0;
+        while (mined < CATCH_UP_MINED_PER_STEP && catchUpRemaining > 0 && catchUpNext < catchUpFound.size()) {
+            BlockPos pos = catchUpFound.get(catchUpNext++);
+            BlockState state = serverLevel.getBlockState(pos);
+            if (!targetBlocks.contains(state.getBlock()) || !isSafeToMine(pos)) {
+                continue;
+            }
+            for (ItemStack drop : Block.getDrops(state, serverLevel, pos, null, companion, ItemStack.EMPTY)) {
+                ItemStack remaining = companion.addToInventory(drop);
+                if (!remaining.isEmpty()) {
+                    serverLevel.addFreshEntity(new ItemEntity(serverLevel, companion.getX(), companion.getY(), companion.getZ(), remaining));
+                }
+            }
+            serverLevel.destroyBlock(pos, false, companion);
+            mined++;
+            minedCount++;
+            catchUpMined++;
+            catchUpRemaining--;
+        }
+        if (minedCount >= targetCount) {
+            completed = true;
+        }
+        if (catchUpNext >= catchUpFound.size()) {
+            catchUpRemaining = 0;
+        }
+        if (!isCatchingUp()) {
+            catchUpFound.clear();
+        }
+    }
+
+    /**
+     * Blocks mined by a catch-up that has finished, reported once; -1 while one is running or already reported.
+     */
+    public int takeCatchUpResult() {
+        if (catchUpReported || isCatchingUp()) {
+            return -1;
+        }
+        catchUpReported = true;
+        return catchUpMined;
+    }
+
     private void pickupNearbyItems() {
         AABB pickupBox = companion.getBoundingBox().inflate(3.0);
         List<ItemEntity> items = companion.level().getEntitiesOfClass(ItemEntity.class, pickupBox);
@@ -591,6 +678,10 @@ public class MiningTask {
         return targetBlockName;
     }
 
+    public int getSearchRadius() {
+        return searchRadius;
+    }
+
     public BlockPos getCurrentTarget() {
         return currentTarget;
     }
@@ -0,0 +1,187 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.entity.CompanionEntity;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Moves a companion towards an entity without running A* every tick.
+ * The current path is kept while the target stays near its end. A new one is computed when the target
+ * has moved more than a couple of blocks, or on a backoff schedule when the path can't reach it.
+ * Companions of the same owner chasing the same target join one freshly computed path instead of each
+ * computing their own. Only touched from the server thread.
+ */
+public class MovementController {
+
+    // Target moved this far from where the path was aimed: repath
+    private static final double REPATH_DISTANCE = 2.0;
+    // A path ending this close to the target still gets there
+    private static final double END_TOLERANCE = 2.5;
+    private static final int MIN_REPATH_TICKS = 5;
+    private static final int MAX_REPATH_TICKS = 40;
+    // How long another companion may join a computed path, and from how far away
+    private static final int SHARE_TICKS = 10;
+    private static final double SHARE_JOIN_DISTANCE = 4.0;
+    private static final int MAX_SHARED = 64;
+
+    private record ShareKey(UUID owner, int target) {}
+
+    private record SharedPath(Path path, Vec3 targetPos, long gameTime) {}
+
+    private static final Map<ShareKey, SharedPath> shared = new HashMap<>();
+
+    private final CompanionEntity companion;
+    @Nullable
+    private Path path = null;
+    private int targetId = -1;
+    private Vec3 pathTargetPos = Vec3.ZERO;
+    private int lastRepathTick = 0;
+    private int nextRepathTick = 0;
+    private int backoff = MIN_REPATH_TICKS;
+
+    private long pathComputations = 0;
+    private long pathsJoined = 0;
+
+    public MovementController(CompanionEntity companion) {
+        this.companion = companion;
+    }
+
+    /**
+     * Head for the target, reusing the current path if it still leads there. Call every tick.
+     */
+    public void moveTo(Entity target, double speed) {
+        PathNavigation navigation = companion.getNavigation();
+        int now = companion.tickCount;
+        Vec3 targetPos = target.position();
+
+        if (target.getId() == targetId) {
+            boolean moved = targetPos.distanceToSqr(pathTargetPos) > REPATH_DISTANCE * REPATH_DISTANCE;
+            if (path != null && navigation.getPath() == path && !path.isDone()) {
+                navigation.setSpeedModifier(speed);
+                if (!moved && endsNear(path, targetPos)) {
+                    return;
+                }
+            }
+            boolean due = now >= nextRepathTick || (moved && now - lastRepathTick >= MIN_REPATH_TICKS);
+            if (!due) {
+                return;
+            }
+        } else {
+            backoff = MIN_REPATH_TICKS;
+        }
+
+        repath(navigation, target, targetPos, speed, now);
+    }
+
+    /**
+     * Stop moving and forget the target, so the next {@link #moveTo} paths straight away.
+     */
+    public void stop() {
+        companion.getNavigation().stop();
+        path = null;
+        targetId = -1;
+    }
+
+    private void repath(PathNavigation navigation, Entity target, Vec3 targetPos, double speed, int now) {
+        Path newPath = joinShared(target, targetPos);
+        if (newPath == null) {
+            newPath = navigation.createPath(target, 1);
+            pathComputations++;
+            share(target, targetPos, newPath);
+        } else {
+            pathsJoined++;
+        }
+
+        // Unreachable targets are retried less and less often
+        boolean reaches = newPath != null && newPath.canReach() && endsNear(newPath, targetPos);
+        backoff = reaches ? MIN_REPATH_TICKS : Math.min(backoff * 2, MAX_REPATH_TICKS);
+        lastRepathTick = now;
+        nextRepathTick = now + backoff;
+        targetId = target.getId();
+        pathTargetPos = targetPos;
+        path = newPath;
+        if (newPath != null) {
+            navigation.moveTo(newPath, speed);
+        }
+    }
+
+    /**
+     * A path another companion of the same owner just computed to this target, starting from
+     * its node nearest to us; null if there is none close enough.
+     */
+    @Nullable
+    private Path joinShared(Entity target, Vec3 targetPos) {
+        UUID owner = companion.getOwnerUUID();
+        if (owner == null) {
+            return null;
+        }
+        SharedPath entry = shared.get(new ShareKey(owner, target.getId()));
+        if (entry == null || companion.level().getGameTime() - entry.gameTime() > SHARE_TICKS
+                || entry.targetPos().distanceToSqr(targetPos) > REPATH_DISTANCE * REPATH_DISTANCE) {
+            return null;
+        }
+
+        Path source = entry.path();
+        int nearest = -1;
+        double best = SHARE_JOIN_DISTANCE * SHARE_JOIN_DISTANCE;
+        for (int i = 0; i < source.getNodeCount(); i++) {
+            Node node = source.getNode(i);
+            double distance = companion.distanceToSqr(node.x + 0.5, node.y, node.z + 0.5);
+            if (distance < best) {
+                best = distance;
+                nearest = i;
+            }
+        }
+        return nearest < 0 ? null : copy(source, nearest);
+    }
+
+    private void share(Entity target, Vec3 targetPos, @Nullable Path computed) {
+        UUID owner = companion.getOwnerUUID();
+        if (owner == null || computed == null || computed.getNodeCount() == 0) {
+            return;
+        }
+        long gameTime = companion.level().getGameTime();
+        if (shared.size() >= MAX_SHARED) {
+            shared.values().removeIf(entry -> gameTime - entry.gameTime() > SHARE_TICKS);
+        }
+        // Navigation advances (and may trim) the path it follows, so share a copy
+        shared.put(new ShareKey(owner, target.getId()), new SharedPath(copy(computed, 0), targetPos, gameTime));
+    }
+
+    private static Path copy(Path source, int from) {
+        List<Node> nodes = new ArrayList<>(source.getNodeCount() - from);
+        for (int i = from; i < source.getNodeCount(); i++) {
+            nodes.add(source.getNode(i));
+        }
+        return new Path(nodes, source.getTarget(), source.canReach());
+    }
+
+    private static boolean endsNear(Path path, Vec3 targetPos) {
+        Node end = path.getEndNode();
+        return end != null && targetPos.distanceToSqr(end.x + 0.5, end.y, end.z + 0.5) <= END_TOLERANCE * END_TOLERANCE;
+    }
+
+    /**
+     * A* searches this companion has run for {@link #moveTo}.
+     */
+    public long getPathComputations() {
+        return pathComputations;
+    }
+
+    /**
+     * Paths taken over from another companion of the same owner instead of computed.
+     */
+    public long getPathsJoined() {
+        return pathsJoined;
+    }
+}
@@ -0,0 +1,481 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+import com.gblfxt.llmoblings.LLMoblings;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Ollama servers LLM requests are spread over.
+ * Each companion sticks to the backend it used last so that server's prompt cache stays warm,
+ * unless the backend is down or much busier than the least-loaded one. Backends are health-checked
+ * in the background with /api/tags, and each has a {@link CircuitBreaker} that takes it out of
+ * rotation when too many requests to it fail or run slow.
+ */
+public class OllamaBackendPool {
+    private static final Gson GSON = new Gson();
+
+    // A companion stays on its backend until that one has this many more requests in flight than the idlest
+    private static final int STICKY_SLACK = 2;
+    // Short, so a dead box is failed over quickly instead of waiting out the request timeout
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+    private static final int HTTP_THREADS = 2;
+    // How often a replaced pool checks whether its last requests are done
+    private static final long RETIRE_POLL_MILLIS = 250;
+
+    private static final Object INSTANCE_LOCK = new Object();
+    private static volatile OllamaBackendPool instance;
+
+    private final List<Backend> backends;
+    private final HttpClient httpClient;
+    private final ExecutorService httpExecutor;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private ScheduledExecutorService prober;
+
+    public OllamaBackendPool(List<Backend> backends) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one Ollama backend is required");
+        }
+        this.backends = List.copyOf(backends);
+        // Requests block on virtual threads; the client only needs a couple of platform threads for its I/O callbacks
+        AtomicInteger threadId = new AtomicInteger();
+        this.httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "LLMoblings-HTTP-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(httpExecutor)
+                .build();
+    }
+
+    public static OllamaBackendPool get() {
+        if (instance == null) {
+            synchronized (INSTANCE_LOCK) {
+                if (instance == null) {
+                    instance = fromConfig();
+                    LLMoblings.LOGGER.info("Ollama backends: {}", instance.backends);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Build the pool from the backends list, or from host/port/model when the list is empty.
+     */
+    private static OllamaBackendPool fromConfig() {
+        String defaultModel = Config.OLLAMA_MODEL.get();
+        List<Backend> backends = new ArrayList<>();
+        for (String spec : Config.OLLAMA_BACKENDS.get()) {
+            try {
+                backends.add(Backend.parse(spec, defaultModel));
+            } catch (IllegalArgumentException e) {
+                LLMoblings.LOGGER.error("Ignoring Ollama backend '{}': {}", spec, e.getMessage());
+            }
+        }
+        if (backends.isEmpty()) {
+            backends.add(new Backend(Config.OLLAMA_HOST.get(), Config.OLLAMA_PORT.get(), defaultModel));
+        }
+        return new OllamaBackendPool(backends);
+    }
+
+    /**
+     * Drop the current pool (and its health checks). A new one is built from config on next use.
+     */
+    public static void shutdown() {
+        synchronized (INSTANCE_LOCK) {
+            if (instance != null) {
+                instance.close();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the pool from current config, keeping health checks running if they were.
+     * New requests go to the new pool straight away; the old one is retired once its running
+     * requests are done, so a reload never cuts off a reply half-way.
+     */
+    public static void reload() {
+        OllamaBackendPool old;
+        synchronized (INSTANCE_LOCK) {
+            old = instance;
+            if (old == null) {
+                return;
+            }
+            instance = fromConfig();
+            LLMoblings.LOGGER.info("Ollama backends: {}", instance.backends);
+        }
+        boolean probing = old.prober != null;
+        old.retire(Duration.ofSeconds(Config.OLLAMA_TIMEOUT.get()));
+        if (probing) {
+            get().startHealthChecks(Config.OLLAMA_HEALTH_CHECK_INTERVAL.get());
+        }
+    }
+
+    /**
+     * Stop this pool's health checks and HTTP threads.
+     */
+    public void close() {
+        stopHealthChecks();
+        httpExecutor.shutdown();
+    }
+
+    /**
+     * Stop health checks now, and the HTTP threads once no request is running on this pool any more
+     * (or after {@code grace}, by when any request still going has timed out).
+     */
+    void retire(Duration grace) {
+        stopHealthChecks();
+        long deadline = System.nanoTime() + grace.toNanos();
+        Thread.ofVirtual().name("LLMoblings-HTTP-Retire").start(() -> {
+            try {
+                while (getOutstanding() > 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(RETIRE_POLL_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            httpExecutor.shutdown();
+        });
+    }
+
+    boolean isClosed() {
+        return httpExecutor.isShutdown();
+    }
+
+    private int getOutstanding() {
+        int total = 0;
+        for (Backend backend : backends) {
+            total += backend.outstanding.get();
+        }
+        return total;
+    }
+
+    public List<Backend> getBackends() {
+        return backends;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Pick a backend for a request and claim its circuit breaker (the half-open trial, if that's
+     * where it is). The caller must report the outcome with {@link #onSuccess} or {@link #onFailure}.
+     *
+     * @param preferred the backend this companion used last, kept if it is still a good choice
+     * @param exclude   backends that already failed this request
+     * @return the backend to use, or null if none is available
+     */
+    @Nullable
+    public Backend select(@Nullable Backend preferred, Collection<Backend> exclude) {
+        Set<Backend> skip = new HashSet<>(exclude);
+        while (true) {
+            Backend backend = choose(preferred, skip);
+            if (backend == null || backend.breaker.tryAcquire()) {
+                return backend;
+            }
+            // Someone else got the half-open trial first
+            skip.add(backend);
+        }
+    }
+
+    @Nullable
+    private Backend choose(@Nullable Backend preferred, Collection<Backend> exclude) {
+        // Start the scan at a rotating offset so ties spread new companions across backends
+        int start = Math.floorMod(rotation.getAndIncrement(), backends.size());
+        Backend best = null;
+        for (int i = 0; i < backends.size(); i++) {
+            Backend candidate = backends.get((start + i) % backends.size());
+            if (isUsable(candidate, exclude) && (best == null || isBetter(candidate, best))) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        if (preferred != null && preferred != best && backends.contains(preferred) && isUsable(preferred, exclude)
+                && (preferred.healthy || !best.healthy)
+                && preferred.outstanding.get() <= best.outstanding.get() + STICKY_SLACK) {
+            return preferred;
+        }
+        return best;
+    }
+
+    private static boolean isUsable(Backend backend, Collection<Backend> exclude) {
+        return !exclude.contains(backend) && backend.breaker.isAvailable();
+    }
+
+    private static boolean isBetter(Backend a, Backend b) {
+        if (a.healthy != b.healthy) {
+            return a.healthy;
+        }
+        if (a.outstanding.get() != b.outstanding.get()) {
+            return a.outstanding.get() < b.outstanding.get();
+        }
+        return a.breaker.getFailureRate() < b.breaker.getFailureRate();
+    }
+
+    /**
+     * Whether any backend would take a request right now. When this is false, asking the LLM
+     * would only fail, so callers should answer locally instead.
+     */
+    public boolean isAvailable() {
+        for (Backend backend : backends) {
+            if (backend.breaker.isAvailable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Model a companion's next request will most likely use, for budgeting the prompt before sending.
+     */
+    public String modelFor(@Nullable Backend preferred) {
+        Backend backend = choose(preferred, List.of());
+        return backend != null ? backend.model : backends.get(0).model;
+    }
+
+    public void onSuccess(Backend backend, long latencyNanos) {
+        backend.lastLatencyMs = latencyNanos / 1_000_000;
+        backend.breaker.onSuccess(latencyNanos);
+        backend.healthy = true;
+        backend.status = "ok";
+    }
+
+    public void onCancelled(Backend backend) {
+        backend.breaker.onCancelled();
+    }
+
+    public void onFailure(Backend backend, Throwable error) {
+        backend.failures.incrementAndGet();
+        backend.status = error.getClass().getSimpleName();
+        if (error instanceof ConnectException || error instanceof HttpConnectTimeoutException) {
+            // Nothing is listening there; no point waiting for more failures to prove it
+            backend.healthy = false;
+            backend.breaker.trip("can't connect");
+        } else {
+            backend.breaker.onFailure(error.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Probe every backend every {@code intervalSeconds} on a background thread (0 disables probing;
+     * failed backends then only come back when a request to them succeeds).
+     */
+    public synchronized void startHealthChecks(int intervalSeconds) {
+        if (prober != null || intervalSeconds <= 0) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LLMoblings-Ollama-Probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probeAll, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopHealthChecks() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    /**
+     * Check every backend now. A backend is healthy if /api/tags answers and lists its model.
+     */
+    public void probeAll() {
+        for (Backend backend : backends) {
+            probe(backend);
+        }
+    }
+
+    private void probe(Backend backend) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(backend.uri("/api/tags"))
+                .timeout(PROBE_TIMEOUT)
+                .GET()
+                .build();
+
+        boolean wasHealthy = backend.healthy;
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                backend.healthy = false;
+                backend.status = "HTTP " + response.statusCode();
+            } else if (!hasModel(response.body(), backend.model)) {
+                backend.healthy = false;
+                backend.status = "model " + backend.model + " not pulled";
+            } else {
+                backend.healthy = true;
+                backend.status = "ok";
+                backend.breaker.onProbeSuccess();
+            }
+        } catch (Exception e) {
+            backend.healthy = false;
+            backend.status = e.getClass().getSimpleName();
+        }
+
+        if (wasHealthy != backend.healthy) {
+            if (backend.healthy) {
+                LLMoblings.LOGGER.info("Ollama backend {} is back up", backend);
+            } else {
+                LLMoblings.LOGGER.warn("Ollama backend {} is down: {}", backend, backend.status);
+            }
+        }
+    }
+
+    private static boolean hasModel(String tagsBody, String model) {
+        JsonObject tags = GSON.fromJson(tagsBody, JsonObject.class);
+        if (tags == null || !tags.has("models")) {
+            return false;
+        }
+        // Ollama lists "llama3" as "llama3:latest"
+        String tagged = model.contains(":") ? model : model + ":latest";
+        for (JsonElement entry : tags.getAsJsonArray("models")) {
+            String name = entry.getAsJsonObject().get("name").getAsString();
+            if (name.equals(model) || name.equals(tagged)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Thrown when every backend is down or has its circuit breaker open.
+     */
+    public static class UnavailableException extends IOException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One Ollama server and the model to ask it for.
+     */
+    public static final class Backend {
+        private final String host;
+        private final int port;
+        private final String model;
+        private final CircuitBreaker breaker;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile boolean healthy = true;
+        private volatile String status = "unchecked";
+        private volatile long lastLatencyMs = 0;
+
+        public Backend(String host, int port, String model) {
+            this(host, port, model, CircuitBreaker.fromConfig(host + ":" + port));
+        }
+
+        public Backend(String host, int port, String model, CircuitBreaker breaker) {
+            this.host = host;
+            this.port = port;
+            this.model = model;
+            this.breaker = breaker;
+        }
+
+        /**
+         * Parse "host:port" or "host:port=model" (the model defaults to the configured one).
+         */
+        public static Backend parse(String spec, String defaultModel) {
+            String address = spec.trim();
+            String model = defaultModel;
+            int eq = address.indexOf('=');
+            if (eq >= 0) {
+                model = address.substring(eq + 1).trim();
+                address = address.substring(0, eq).trim();
+            }
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0 || model.isEmpty()) {
+                throw new IllegalArgumentException("expected host:port or host:port=model");
+            }
+            try {
+                return new Backend(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)), model);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad port in " + spec);
+            }
+        }
+
+        public URI uri(String path) {
+            return URI.create(String.format("http://%s:%d%s", host, port, path));
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public CircuitBreaker getBreaker() {
+            return breaker;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        public long getLastLatencyMs() {
+            return lastLatencyMs;
+        }
+
+        void begin() {
+            outstanding.incrementAndGet();
+            requests.incrementAndGet();
+        }
+
+        void end() {
+            outstanding.decrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port + " (" + model + ")";
+        }
+    }
+}
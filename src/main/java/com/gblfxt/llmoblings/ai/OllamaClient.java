@@ -3,295 +3,609 @@ package com.gblfxt.llmoblings.ai;
 import com.gblfxt.llmoblings.Config;
 import com.gblfxt.llmoblings.LLMoblings;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import org.jetbrains.annotations.Nullable;
 
-import java.net.URI;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class OllamaClient {
     private static final Gson GSON = new Gson();
-    private static volatile HttpClient httpClient;
-    private static final Object HTTP_CLIENT_LOCK = new Object();
 
-    private final List<ChatMessage> conversationHistory = new ArrayList<>();
-    private final String systemPrompt;
+    // History is trimmed in blocks rather than one message at a time, so the prompt prefix
+    // sent to Ollama stays byte-identical for several turns and its KV cache keeps hitting
+    private static final int MAX_HISTORY = 20;
+    private static final int HISTORY_TRIM_TO = 10;
 
-    public OllamaClient(String companionName) {
-        this.systemPrompt = buildSystemPrompt(companionName);
+    // Room left in the context window for the reply
+    private static final int NUM_PREDICT = 256;
+
+    // Cuts off replies that are still streaming when their request timeout is up
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "LLMoblings-Ollama-Deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        DEADLINES.setRemoveOnCancelPolicy(true);
     }
 
-    private static HttpClient getHttpClient() {
-        if (httpClient == null) {
-            synchronized (HTTP_CLIENT_LOCK) {
-                if (httpClient == null) {
-                    int timeout = Config.OLLAMA_TIMEOUT.get();
-                    httpClient = HttpClient.newBuilder()
-                            .connectTimeout(Duration.ofSeconds(timeout))
-                            .build();
-                }
-            }
-        }
-        return httpClient;
+    private static final AtomicLong totalCalls = new AtomicLong();
+    private static final AtomicLong totalPromptEvalTokens = new AtomicLong();
+    private static final AtomicLong totalEvalTokens = new AtomicLong();
+
+    private final ConversationMemory memory;
+    // History loaded with the entity, decoded on first use rather than while the world loads
+    @Nullable
+    private byte[] savedHistory = null;
+    // Read on every request: the entity's name is only known after it has loaded
+    private final Supplier<String> nameSource;
+    @Nullable
+    private volatile Persona persona = null;
+
+    // Token context from the last /api/generate call (context mode only), and the model it belongs to.
+    // Swapped as one value: requests run on their own threads and clearHistory runs on the server thread
+    private record GenerateContext(int[] tokens, String model) {}
+
+    @Nullable
+    private volatile GenerateContext generateContext = null;
+
+    // Backend this companion talked to last; reused while it's healthy to keep its prompt cache warm
+    @Nullable
+    private volatile OllamaBackendPool.Backend backend = null;
+
+    // Private pool and scheduler (load benchmark only); null means the server-wide ones
+    @Nullable
+    private final OllamaBackendPool pool;
+    @Nullable
+    private final LLMRequestScheduler scheduler;
+
+    /**
+     * The shared system prompt finished with this companion's name: the system message, and the
+     * encoded name line that completes the prompt's JSON.
+     */
+    private record Persona(String name, SystemPromptBuilder.SystemPrompt shared, ChatMessage systemMessage,
+                           byte[] tail) {}
+
+    public OllamaClient(Supplier<String> nameSource) {
+        this(nameSource, null, null);
+    }
+
+    OllamaClient(Supplier<String> nameSource, @Nullable OllamaBackendPool pool, @Nullable LLMRequestScheduler scheduler) {
+        this.nameSource = nameSource;
+        this.pool = pool;
+        this.scheduler = scheduler;
+        this.memory = new ConversationMemory(MAX_HISTORY, HISTORY_TRIM_TO, this::summarize);
     }
 
     /**
-     * Rebuilds the HTTP client with current config values.
+     * Rebuilds the HTTP client and backend list with current config values.
      * Call this if config changes at runtime.
      */
     public static void refreshHttpClient() {
-        synchronized (HTTP_CLIENT_LOCK) {
-            httpClient = null;
-        }
+        OllamaBackendPool.reload();
+    }
+
+    private OllamaBackendPool pool() {
+        return pool != null ? pool : OllamaBackendPool.get();
+    }
+
+    private LLMRequestScheduler scheduler() {
+        return scheduler != null ? scheduler : LLMRequestScheduler.get();
+    }
+
+    /**
+     * The server-wide intent router, if it is on; clients with a private pool (the load benchmark) always ask the LLM.
+     */
+    @Nullable
+    private EmbeddingIntentRouter router() {
+        return pool == null ? EmbeddingIntentRouter.get() : null;
+    }
+
+    private String companionName() {
+        return nameSource.get();
     }
 
-    private String buildSystemPrompt(String companionName) {
-        return """
-You are %s, an AI companion in a heavily modded Minecraft world. You're helpful, knowledgeable, and have a friendly personality. You understand both vanilla Minecraft and the many mods installed.
-
-CRITICAL: You MUST respond with ONLY valid JSON. No other text. No explanations. Just JSON.
-
-=== YOUR KNOWLEDGE ===
-
-VANILLA MINECRAFT:
-- Mobs: Zombies, Skeletons, Creepers (explode!), Spiders, Endermen (don't look at them), Blazes, Ghasts, Wither, Ender Dragon
-- Dimensions: Overworld, Nether (fire, lava, fortresses), The End (dragon, end cities)
-- Resources: Coal, Iron, Gold, Diamond, Netherite (best gear), Emeralds (trading)
-- Enchanting: Sharpness, Protection, Efficiency, Fortune, Silk Touch, Mending (repairs with XP)
-- Farming: Wheat, Carrots, Potatoes, Beetroot, Melons, Pumpkins, Sugar Cane, Nether Wart
-- Villagers: Trade emeralds for items, have professions (Farmer, Librarian, Armorer, etc.)
-
-TECH MODS (I can help with these!):
-- Applied Energistics 2 (AE2): ME network for massive item storage, autocrafting with patterns, channels, terminals
-- Mekanism: Ore processing (5x!), jetpacks, digital miner, fusion reactor, machines
-- Create: Mechanical contraptions, trains, rotational power, cogwheels, deployers
-- Ender IO: Conduits for items/fluids/power, SAG Mill, Alloy Smelter, capacitors
-- ComputerCraft: Programmable turtles and computers with Lua
-
-MAGIC MODS:
-- Ars Nouveau: Spell crafting with glyphs, source generation, familiars, magical equipment
-- Apotheosis: Enhanced enchanting, boss spawners, adventure module with gems
-- Occultism: Spirit summoning, dimensional storage, familiar rings
-
-COBBLEMON (Pokemon mod!):
-- Catch Pokemon with Pokeballs, train them, battle trainers
-- Pokemon spawn in biomes matching their type
-- Apricorns grow on trees for crafting Pokeballs
-- PC storage for Pokemon, healing stations
-
-STORAGE & QoL:
-- Sophisticated Backpacks/Storage: Upgradeable backpacks and storage
-- Iron Chests: Bigger chests (copper, iron, gold, diamond, obsidian)
-- Waystones: Fast travel network
-
-FOOD & FARMING:
-- Farmer's Delight: Cooking, cutting board, stove, lots of food recipes
-- Mystical Agriculture: Grow resources as crops (diamond seeds, etc.)
-- Cooking for Blockheads: Kitchen multiblock
-
-ADVENTURE:
-- Alex's Mobs: Many new creatures (elephants, gorillas, crocodiles, etc.)
-- Alex's Caves: New cave biomes with unique mobs and loot
-- Artifacts: Special equipment with unique abilities (I can use these!)
-  * Tablet of Flying: Lets me fly! Give me one and I'll soar through the skies
-  * Cloud in a Bottle: Double jump ability
-  * Bunny Hoppers: Speed and jump boost
-  * Helium Flamingo: Another flying item
-
-=== AVAILABLE ACTIONS ===
-
-MOVEMENT:
-- {"action": "follow"} - Follow the player
-- {"action": "stay"} - Stop and stay in place
-- {"action": "goto", "x": 100, "y": 64, "z": 200} - Go to coordinates
-- {"action": "come"} - Come to player's location
-
-COMBAT:
-- {"action": "attack", "target": "zombie"} - Attack specific mob
-- {"action": "defend"} - Defend player from hostiles
-- {"action": "retreat"} - Run away from danger
-
-RESOURCES:
-- {"action": "mine", "block": "diamond_ore", "count": 10} - Mine blocks
-- {"action": "gather", "item": "oak_log", "count": 64} - Gather items
-- {"action": "farm"} - Farm nearby crops
-
-INVENTORY:
-- {"action": "equip"} - Equip best weapon from inventory
-- {"action": "inventory"} - Report inventory contents
-- {"action": "give", "item": "diamond", "count": 5} - Give items to player
-
-ME NETWORK:
-- {"action": "getgear", "material": "iron"} - Get iron set from ME (craft if needed)
-- {"action": "getgear", "material": "diamond"} - Get diamond set from ME
-- {"action": "deposit"} - Deposit all items into ME network or nearby chest (keeps gear)
-- {"action": "deposit", "keepGear": false} - Deposit everything including weapons/armor
-
-UTILITY:
-- {"action": "status"} - Report health/hunger/inventory
-- {"action": "scan", "radius": 32} - Scan for resources/mobs
-- {"action": "auto"} - Go fully autonomous (hunt, equip, patrol)
-- {"action": "idle"} - Just chat, no action
-
-HOME:
-- {"action": "home"} - Teleport home
-- {"action": "sethome"} - Set current location as home
-- {"action": "sleep"} - Sleep in nearest bed
-
-TELEPORT:
-- {"action": "tpa", "target": "player"} - Teleport to player
-- {"action": "tpaccept"} - Accept teleport request
-- {"action": "tpdeny"} - Deny teleport request
-
-BUILDING:
-- {"action": "build", "structure": "cottage", "here": true} - Build a cottage at current location
-- {"action": "build", "structure": "cottage", "x": 100, "y": 64, "z": 200} - Build at specific coords
-- I can gather materials myself (mine stone, chop trees) or use ME network/chests!
-
-POKEMON BUDDY (Cobblemon):
-- {"action": "pokemon", "subaction": "find"} - Bond with nearest player's Pokemon
-- {"action": "pokemon", "subaction": "find", "name": "Pikachu"} - Bond with specific Pokemon
-- {"action": "pokemon", "subaction": "release"} - Release current Pokemon buddy
-- {"action": "pokemon", "subaction": "status"} - Check on Pokemon buddy
-- My Pokemon buddy will follow me on adventures!
-
-BUILDING GADGETS (if mod is installed):
-- {"action": "gadget", "subaction": "info"} - Check what gadget I have and its settings
-- {"action": "gadget", "subaction": "equip"} - Equip a building gadget from inventory
-- {"action": "gadget", "subaction": "setblock", "block": "stone"} - Set the block the gadget places
-- {"action": "gadget", "subaction": "setrange", "range": 5} - Set the gadget's build range
-- {"action": "gadget", "subaction": "configure", "block": "cobblestone", "range": 3} - Configure both at once
-- {"action": "gadget", "subaction": "build"} - Use the gadget to place blocks
-- Building Gadget types: building, exchanging, copy-paste, destruction
-- I can configure the gadget's block type and range, then use it to build!
-
-SOPHISTICATED BACKPACKS (if mod is installed):
-- {"action": "backpack", "subaction": "info"} - Check my backpack status (slots used, capacity)
-- {"action": "backpack", "subaction": "store", "item": "cobblestone"} - Store specific item in backpack
-- {"action": "backpack", "subaction": "storeall"} - Store all non-essential items in backpack
-- {"action": "backpack", "subaction": "get", "item": "diamond", "count": 10} - Get items from backpack
-- {"action": "backpack", "subaction": "list"} - List what's in my backpack
-- Backpack tiers: Leather (27), Copper (36), Iron (45), Gold (54), Diamond (72), Netherite (81)
-- I can use my backpack to carry way more stuff on adventures!
-
-=== RESPONSE RULES ===
-1. ONLY output JSON - never plain text
-2. Always include "action" field
-3. Use "message" for dialogue (be friendly and helpful!)
-4. For chat/questions: {"action": "idle", "message": "your response"}
-5. Be honest about what you CAN'T do - don't pretend to have items you don't have
-
-=== EXAMPLES ===
-"explore" -> {"action": "explore", "message": "I'll scout the area!"}
-"get iron armor" -> {"action": "getgear", "material": "iron", "message": "Heading to the ME terminal!"}
-"what's AE2?" -> {"action": "idle", "message": "Applied Energistics 2 is a tech mod for digital storage! You can store millions of items in an ME network and autocraft anything with patterns."}
-"know any good enchants?" -> {"action": "idle", "message": "For weapons: Sharpness V, Looting III, Mending. For armor: Protection IV, Unbreaking III, Mending. Apotheosis adds even crazier ones!"}
-"seen any Pokemon?" -> {"action": "idle", "message": "Cobblemon Pokemon spawn based on biome! Water types near water, fire types in deserts/nether. Check the Cobblepedia for spawn info!"}
-"defend me" -> {"action": "defend", "message": "I've got your back!"}
-"build a house here" -> {"action": "build", "structure": "cottage", "here": true, "message": "I'll build you a cozy cottage right here!"}
-"build me a cottage at 100 64 200" -> {"action": "build", "structure": "cottage", "x": 100, "y": 64, "z": 200, "message": "On my way to build at those coordinates!"}
-"find a pokemon buddy" -> {"action": "pokemon", "subaction": "find", "message": "Let me find a Pokemon to adventure with!"}
-"bond with Pikachu" -> {"action": "pokemon", "subaction": "find", "name": "Pikachu", "message": "I'll bond with Pikachu!"}
-"release your buddy" -> {"action": "pokemon", "subaction": "release", "message": "Okay, saying goodbye to my Pokemon friend!"}
-"equip your gadget" -> {"action": "gadget", "subaction": "equip", "message": "Getting my Building Gadget ready!"}
-"set gadget to stone" -> {"action": "gadget", "subaction": "setblock", "block": "stone", "message": "Setting my gadget to place stone!"}
-"configure gadget for oak planks range 5" -> {"action": "gadget", "subaction": "configure", "block": "oak_planks", "range": 5, "message": "Configuring gadget for oak planks with range 5!"}
-"use the gadget" -> {"action": "gadget", "subaction": "build", "message": "Here we go! *uses gadget*"}
-"check your backpack" -> {"action": "backpack", "subaction": "info", "message": "Let me check my backpack!"}
-"store the cobblestone in your backpack" -> {"action": "backpack", "subaction": "store", "item": "cobblestone", "message": "Putting the cobblestone in my backpack!"}
-"stash everything in backpack" -> {"action": "backpack", "subaction": "storeall", "message": "Storing everything in my backpack!"}
-"get diamonds from backpack" -> {"action": "backpack", "subaction": "get", "item": "diamond", "message": "Getting diamonds from my backpack!"}
-"what's in your backpack" -> {"action": "backpack", "subaction": "list", "message": "Let me see what I've got in here..."}
-""".formatted(companionName);
+    private Persona persona() {
+        String name = companionName();
+        SystemPromptBuilder.SystemPrompt shared = SystemPromptBuilder.get();
+        Persona current = persona;
+        if (current == null || !current.name().equals(name) || current.shared() != shared) {
+            String nameLine = "Your name is " + name + ".\n";
+            current = new Persona(name, shared, new ChatMessage("system", shared.text() + nameLine),
+                    OllamaWire.quote(nameLine, false, true));
+            persona = current;
+        }
+        return current;
     }
 
+
     public CompletableFuture<CompanionAction> chat(String userMessage) {
-        return CompletableFuture.supplyAsync(() -> {
+        return chat(userMessage, LLMRequestScheduler.Priority.OWNER_COMMAND, null, null);
+    }
+
+    /**
+     * Send a message to the LLM through the server-wide scheduler. When streaming is enabled,
+     * {@code onEarlyAction} is called from the request thread as soon as the action can be
+     * determined from the partial reply, before the message text has finished generating.
+     * Cancelling the returned future aborts the request.
+     */
+    public CompletableFuture<CompanionAction> chat(String userMessage, LLMRequestScheduler.Priority priority,
+                                                   @Nullable UUID requester,
+                                                   @Nullable Consumer<CompanionAction> onEarlyAction) {
+        CompletableFuture<CompanionAction> request = scheduler().submit(requester, priority, () -> {
+            // The turn joins the history only together with its reply: a cancelled request (an urgent
+            // stop, or a follow-up merged into it) must leave no unanswered turn behind
+            ChatMessage userTurn = new ChatMessage("user", userMessage);
             try {
-                // Add user message to history
-                conversationHistory.add(new ChatMessage("user", userMessage));
+                restoreHistory();
+
+                // A reworded plain command: answer from the embedding index instead of a full completion
+                EmbeddingIntentRouter router = priority == LLMRequestScheduler.Priority.OWNER_COMMAND ? router() : null;
+                EmbeddingIntentRouter.Route route = router != null ? router.route(userMessage) : null;
+                if (route != null) {
+                    LLMoblings.LOGGER.debug("[{}] Routed '{}' to {} (similarity {}, like \"{}\")", companionName(),
+                            userMessage, route.action().getAction(), String.format("%.2f", route.similarity()), route.phrase());
+                    remember(userTurn, GSON.toJson(route.action().toJson()));
+                    recordReply(LLMTelemetry.Source.ROUTED);
+                    return route.action();
+                }
 
                 // Build request
-                String response = sendChatRequest();
-
-                // Add assistant response to history
-                conversationHistory.add(new ChatMessage("assistant", response));
+                String response = Config.OLLAMA_USE_CONTEXT.get()
+                        ? sendGenerateRequest(userMessage, onEarlyAction)
+                        : sendChatRequest(userTurn, onEarlyAction);
+                remember(userTurn, response);
 
                 // Parse response into action
                 return parseResponse(response);
+            } catch (InterruptedException e) {
+                // The companion cancelled the request; nobody is waiting for this reply
+                LLMoblings.LOGGER.debug("[{}] LLM request cancelled", companionName());
+                return new CompanionAction("idle", null);
+            } catch (OllamaBackendPool.UnavailableException e) {
+                // Every backend is down or failed this request: fall back to the keyword parser
+                LLMoblings.LOGGER.warn("[{}] {}; parsing the message locally", companionName(), e.getMessage());
+                CompanionAction action = IntentClassifier.parseOffline(userMessage);
+                recordReply(LLMTelemetry.Source.OFFLINE);
+                remember(userTurn, GSON.toJson(action.toJson()));
+                return action;
             } catch (Exception e) {
                 LLMoblings.LOGGER.error("Ollama chat error: ", e);
                 return new CompanionAction("idle", "Sorry, I'm having trouble thinking right now.");
             }
         });
+
+        CompletableFuture<CompanionAction> reply = request.exceptionally(e -> {
+            if (LLMRequestScheduler.isRejection(e)) {
+                LLMoblings.LOGGER.warn("LLM request rejected: {}", e.getMessage());
+                return new CompanionAction("idle", "Lots of people are talking to me right now - ask me again in a moment!");
+            }
+            LLMoblings.LOGGER.error("Ollama chat error: ", e);
+            return new CompanionAction("idle", "Sorry, I'm having trouble thinking right now.");
+        });
+        // Cancelling the reply cancels the request itself (dropping it from the queue or aborting the HTTP call)
+        reply.whenComplete((action, error) -> {
+            if (reply.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return reply;
+    }
+
+    private void remember(ChatMessage userTurn, String reply) {
+        synchronized (memory) {
+            memory.add(userTurn);
+            memory.add(new ChatMessage("assistant", reply));
+        }
+    }
+
+    private String sendChatRequest(ChatMessage userTurn, @Nullable Consumer<CompanionAction> onEarlyAction) throws Exception {
+        String model = pool().modelFor(backend);
+        boolean stream = Config.OLLAMA_STREAM.get();
+
+        // System prompt, summary of older turns, then as much recent history as fits the context
+        Persona persona = persona();
+        List<ChatMessage> history = memory.recent();
+        history.add(userTurn);
+        PromptAssembler.Prompt prompt = PromptAssembler.assemble(model, persona.systemMessage(), memory.getSummary(),
+                history, promptBudget());
+        if (prompt.droppedMessages() > 0) {
+            LLMoblings.LOGGER.debug("[{}] Left {} old messages out to fit {} context tokens",
+                    companionName(), prompt.droppedMessages(), Config.OLLAMA_NUM_CTX.get());
+        }
+
+        Reply last = send("/api/chat", stream, true, target -> {
+            OllamaWire.Body body = new OllamaWire.Body().raw("{\"model\":").string(target).raw(",\"messages\":[");
+            boolean first = true;
+            for (ChatMessage msg : prompt.messages()) {
+                if (!first) body.raw(",");
+                first = false;
+                if (msg == persona.systemMessage()) {
+                    body.raw("{\"role\":\"system\",\"content\":").segment(persona.shared().json()).segment(persona.tail()).raw("}");
+                } else {
+                    body.segment(msg.json());
+                }
+            }
+            body.raw("]");
+            return finishBody(body, stream, 0.7, NUM_PREDICT);
+        }, onEarlyAction);
+        recordUsage(last, prompt.rawTokens());
+        return replyOrDefault(last);
+    }
+
+    /**
+     * Context mode: send only the new turn and let Ollama continue from the token context
+     * it returned last time, so earlier turns are never re-evaluated.
+     */
+    private String sendGenerateRequest(String userMessage, @Nullable Consumer<CompanionAction> onEarlyAction) throws Exception {
+        String model = pool().modelFor(backend);
+        boolean stream = Config.OLLAMA_STREAM.get();
+        int budget = promptBudget();
+
+        // A token context only means something to the model that produced it
+        GenerateContext carried = generateContext;
+        if (carried != null && !model.equals(carried.model())) {
+            carried = null;
+        }
+
+        // Start over from the system prompt once the carried context would overflow the window
+        int messageTokens = TokenEstimator.estimate(model, userMessage) + TokenEstimator.MESSAGE_OVERHEAD;
+        if (carried != null && carried.tokens().length + messageTokens > budget) {
+            LLMoblings.LOGGER.debug("[{}] Context reached {} tokens, starting a fresh one", companionName(), carried.tokens().length);
+            carried = null;
+        }
+
+        int[] context = carried != null ? carried.tokens() : null;
+        String contextModel = carried != null ? carried.model() : null;
+        Persona persona = persona();
+        int rawTokens;
+        if (context == null) {
+            rawTokens = TokenEstimator.estimateRaw(persona.systemMessage().content()) + TokenEstimator.MESSAGE_OVERHEAD;
+        } else {
+            rawTokens = 0;  // Mostly cached context; not useful for calibration
+        }
+        int available = (int) ((budget - (context != null ? context.length : 0))
+                / TokenEstimator.getRatio(model)) - rawTokens;
+        String prompt = PromptAssembler.shorten(userMessage, Math.max(16, available));
+        byte[] promptJson = OllamaWire.encodeString(prompt);
+
+        Reply last = send("/api/generate", stream, true, target -> {
+            OllamaWire.Body body = new OllamaWire.Body().raw("{\"model\":").string(target);
+            if (context != null && target.equals(contextModel)) {
+                body.raw(",\"context\":").intArray(context);
+            } else {
+                // No context yet, or failing over to a different model: start from the system prompt
+                body.raw(",\"system\":").segment(persona.shared().json()).segment(persona.tail());
+            }
+            body.raw(",\"prompt\":").segment(promptJson);
+            return finishBody(body, stream, 0.7, NUM_PREDICT);
+        }, onEarlyAction);
+        recordUsage(last, rawTokens > 0 ? rawTokens + TokenEstimator.estimateRaw(prompt) : 0);
+
+        int[] tokens = last.stats().context;
+        generateContext = tokens != null ? new GenerateContext(tokens, last.model()) : null;
+        return replyOrDefault(last);
     }
 
-    private String sendChatRequest() throws Exception {
-        String host = Config.OLLAMA_HOST.get();
-        int port = Config.OLLAMA_PORT.get();
-        String model = Config.OLLAMA_MODEL.get();
+    private static String replyOrDefault(Reply last) {
+        return last.content().isEmpty() ? "{\"action\": \"idle\", \"message\": \"I didn't get a proper response.\"}" : last.content();
+    }
+
+    /**
+     * The fields every generation request ends with, closing the body.
+     */
+    private static OllamaWire.Body finishBody(OllamaWire.Body body, boolean stream, double temperature, int numPredict) {
+        return body.raw(",\"stream\":").bool(stream)
+                .raw(",\"keep_alive\":").string(Config.OLLAMA_KEEP_ALIVE.get())
+                .raw(",\"options\":{\"temperature\":" + temperature + ",\"num_predict\":").number(numPredict)
+                // Always the same context size, or Ollama reloads the model to reallocate it
+                .raw(",\"num_ctx\":").number(Config.OLLAMA_NUM_CTX.get())
+                .raw("}}");
+    }
+
+    /**
+     * Tokens available for the prompt: the context window minus room for the reply and a small margin.
+     */
+    private static int promptBudget() {
+        int numCtx = Config.OLLAMA_NUM_CTX.get();
+        return numCtx - NUM_PREDICT - numCtx / 20;
+    }
+
+    /**
+     * A finished reply: the full text (for both /api/chat and /api/generate), the model that answered,
+     * the final response object's counters, and when the headers and the first text arrived
+     * (nanoseconds after sending; 0 if no text came).
+     */
+    record Reply(String content, String model, OllamaWire.Chunk stats, long headersNanos, long firstTokenNanos) {}
+
+    /**
+     * POST to Ollama and return the reply. The body is built for each attempt from the model of the
+     * backend it goes to. If a backend can't be reached or times out, the request moves on to the
+     * next one, unless an early action was already handed out from its partial reply.
+     * Only {@code sticky} requests (the companion's own chat) move it to the backend that answered;
+     * background work such as summaries must not pull it off the backend holding its prompt cache.
+     */
+    private Reply send(String path, boolean stream, boolean sticky, Function<String, OllamaWire.Body> bodyForModel,
+                       @Nullable Consumer<CompanionAction> onEarlyAction) throws Exception {
+        OllamaBackendPool pool = pool();
+        List<OllamaBackendPool.Backend> failed = new ArrayList<>();
+        AtomicBoolean dispatched = new AtomicBoolean(false);
+        Consumer<CompanionAction> earlyListener = onEarlyAction == null ? null : action -> {
+            dispatched.set(true);
+            onEarlyAction.accept(action);
+        };
+
+        while (true) {
+            OllamaBackendPool.Backend target = pool.select(backend, failed);
+            if (target == null) {
+                throw new OllamaBackendPool.UnavailableException(failed.isEmpty()
+                        ? "No Ollama backend is available" : "Every Ollama backend failed this request");
+            }
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(target.uri(path))
+                    .timeout(Duration.ofSeconds(Config.OLLAMA_TIMEOUT.get()))
+                    .header("Content-Type", "application/json")
+                    .POST(bodyForModel.apply(target.getModel()).publisher())
+                    .build();
+
+            LLMTelemetry.CallEvent event = new LLMTelemetry.CallEvent();
+            event.begin();
+            long start = System.nanoTime();
+            target.begin();
+            try {
+                Reply reply = readResponse(pool.getHttpClient(), request, target.getModel(), stream ? earlyListener : null);
+                long elapsed = System.nanoTime() - start;
+                pool.onSuccess(target, elapsed);
+                if (sticky) {
+                    backend = target;
+                }
+                if (this.pool == null) {
+                    LLMTelemetry.recordCall(event, companionName(), path, target, reply.model(),
+                            reply.headersNanos(), reply.firstTokenNanos(), elapsed, reply.stats());
+                }
+                return reply;
+            } catch (IOException e) {
+                recordFailedCall(event, path, target, e);
+                if (Thread.currentThread().isInterrupted() || e instanceof InterruptedIOException
+                        || e.getCause() instanceof InterruptedException) {
+                    // Cancelled by the companion, not the backend's fault
+                    pool.onCancelled(target);
+                    throw new InterruptedException("LLM request cancelled");
+                }
+                pool.onFailure(target, e);
+                failed.add(target);
+                if (dispatched.get()) {
+                    throw e;
+                }
+                LLMoblings.LOGGER.warn("[{}] Ollama backend {} failed ({}), trying another", companionName(), target, e.toString());
+            } catch (InterruptedException e) {
+                recordFailedCall(event, path, target, e);
+                pool.onCancelled(target);
+                throw e;
+            } catch (RequestError e) {
+                // The backend is up and answered; the request itself was wrong
+                recordFailedCall(event, path, target, e);
+                pool.onCancelled(target);
+                throw e;
+            } catch (Exception e) {
+                recordFailedCall(event, path, target, e);
+                pool.onFailure(target, e);
+                throw e;
+            } finally {
+                target.end();
+            }
+        }
+    }
+
+    private void recordFailedCall(LLMTelemetry.CallEvent event, String path, OllamaBackendPool.Backend target, Throwable error) {
+        if (pool == null) {
+            LLMTelemetry.recordFailedCall(event, companionName(), path, target, target.getModel(), error);
+        }
+    }
+
+    private void recordReply(LLMTelemetry.Source source) {
+        if (pool == null) {
+            LLMTelemetry.recordReply(companionName(), source);
+        }
+    }
+
+    /**
+     * Server errors count against the backend (and are failed over); client errors are our fault.
+     */
+    private static void checkStatus(int status, String body) throws IOException {
+        if (status >= 500) {
+            throw new IOException("Ollama request failed: " + status + " - " + body);
+        }
+        if (status != 200) {
+            throw new RequestError("Ollama request failed: " + status + " - " + body);
+        }
+    }
+
+    /**
+     * A 4xx reply: a bug in the request (or a missing model), not an outage, so the circuit breaker ignores it.
+     */
+    private static class RequestError extends RuntimeException {
+        RequestError(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Log how much of the prompt Ollama actually had to evaluate. When the prefix cache hits,
+     * prompt_eval_count only covers the new tokens at the end.
+     */
+    private void recordUsage(Reply last, int rawPromptEstimate) {
+        OllamaWire.Chunk stats = last.stats();
+        TokenEstimator.calibrate(last.model(), rawPromptEstimate, stats.promptEvalCount);
+        long calls = totalCalls.incrementAndGet();
+        long totalPrompt = totalPromptEvalTokens.addAndGet(stats.promptEvalCount);
+        totalEvalTokens.addAndGet(stats.evalCount);
+
+        LLMoblings.LOGGER.debug("[{}] Ollama call: {} prompt tokens evaluated, {} generated " +
+                        "(load {} ms, prompt {} ms, generate {} ms; avg {} prompt tokens/call)",
+                companionName(), stats.promptEvalCount, stats.evalCount,
+                stats.loadDuration / 1_000_000, stats.promptEvalDuration / 1_000_000,
+                stats.evalDuration / 1_000_000, totalPrompt / calls);
+    }
+
+    /**
+     * Load the model on every backend ahead of the first chat so nobody waits for it, and keep it resident.
+     */
+    public static void preloadModel() {
+        OllamaBackendPool pool = OllamaBackendPool.get();
+        for (OllamaBackendPool.Backend target : pool.getBackends()) {
+            JsonObject requestBody = new JsonObject();
+            requestBody.addProperty("model", target.getModel());
+            requestBody.addProperty("keep_alive", Config.OLLAMA_KEEP_ALIVE.get());
+            // Load with the same context size chat requests will ask for
+            JsonObject options = new JsonObject();
+            options.addProperty("num_ctx", Config.OLLAMA_NUM_CTX.get());
+            requestBody.add("options", options);
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(target.uri("/api/generate"))
+                    .timeout(Duration.ofSeconds(Config.OLLAMA_TIMEOUT.get()))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(requestBody)))
+                    .build();
+
+            LLMRequestScheduler.get().submit(null, LLMRequestScheduler.Priority.BACKGROUND, () -> {
+                target.begin();
+                try {
+                    HttpResponse<String> response = pool.getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+                    LLMoblings.LOGGER.info("Preloaded model on {} (status {}, keep_alive {})",
+                            target, response.statusCode(), Config.OLLAMA_KEEP_ALIVE.get());
+                } catch (Exception e) {
+                    LLMoblings.LOGGER.warn("Could not preload model on {}: {}", target, e.getMessage());
+                } finally {
+                    target.end();
+                }
+                return null;
+            });
+        }
+    }
 
-        String url = String.format("http://%s:%d/api/chat", host, port);
+    public static long getTotalCalls() {
+        return totalCalls.get();
+    }
 
-        // Build messages array
-        JsonArray messages = new JsonArray();
+    public static long getTotalPromptEvalTokens() {
+        return totalPromptEvalTokens.get();
+    }
 
-        // System prompt
-        JsonObject systemMsg = new JsonObject();
-        systemMsg.addProperty("role", "system");
-        systemMsg.addProperty("content", systemPrompt);
-        messages.add(systemMsg);
+    public static long getTotalEvalTokens() {
+        return totalEvalTokens.get();
+    }
 
-        // Conversation history (keep last 20 messages for context)
-        int startIdx = Math.max(0, conversationHistory.size() - 20);
-        for (int i = startIdx; i < conversationHistory.size(); i++) {
-            ChatMessage msg = conversationHistory.get(i);
-            JsonObject msgObj = new JsonObject();
-            msgObj.addProperty("role", msg.role());
-            msgObj.addProperty("content", msg.content());
-            messages.add(msgObj);
+    /**
+     * Read the reply straight off the connection with a streaming JSON reader, keeping only the text
+     * and the final counters. When {@code onEarlyAction} is given the reply is Ollama's NDJSON stream,
+     * and the action is handed out as soon as the partial JSON reply contains it.
+     * The request's timeout covers the whole reply: HttpClient only applies it to the headers, so a
+     * backend that stalls mid-stream has its connection closed when the time is up.
+     */
+    static Reply readResponse(HttpClient client, HttpRequest request, String model,
+                              @Nullable Consumer<CompanionAction> onEarlyAction) throws IOException, InterruptedException {
+        long sent = System.nanoTime();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        long headersNanos = System.nanoTime() - sent;
+
+        // Closing the body also aborts the request if we stop reading early
+        try (InputStream body = response.body()) {
+            Duration timeout = request.timeout().orElse(Duration.ofSeconds(Config.OLLAMA_TIMEOUT.get()));
+            AtomicBoolean overdue = new AtomicBoolean(false);
+            ScheduledFuture<?> deadline = DEADLINES.schedule(() -> {
+                overdue.set(true);
+                try {
+                    body.close();  // Wakes the blocked read below
+                } catch (IOException ignored) {
+                }
+            }, timeout.toNanos() - headersNanos, TimeUnit.NANOSECONDS);
+            try {
+                return readBody(body, response.statusCode(), sent, headersNanos, model, onEarlyAction);
+            } catch (IOException | RuntimeException e) {
+                if (overdue.get()) {
+                    throw new HttpTimeoutException("Ollama reply not finished after " + timeout.toSeconds() + "s");
+                }
+                throw e;
+            } finally {
+                deadline.cancel(false);
+            }
         }
+    }
 
-        // Build request body
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("model", model);
-        requestBody.add("messages", messages);
-        requestBody.addProperty("stream", false);
-
-        // Options for faster response
-        JsonObject options = new JsonObject();
-        options.addProperty("temperature", 0.7);
-        options.addProperty("num_predict", 256);
-        requestBody.add("options", options);
-
-        int timeout = Config.OLLAMA_TIMEOUT.get();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(timeout))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(requestBody)))
-                .build();
-
-        HttpResponse<String> response = getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Ollama request failed: " + response.statusCode() + " - " + response.body());
+    private static Reply readBody(InputStream body, int status, long sent, long headersNanos, String model,
+                                  @Nullable Consumer<CompanionAction> onEarlyAction) throws IOException {
+        if (status != 200) {
+            checkStatus(status, new String(body.readAllBytes(), StandardCharsets.UTF_8));
         }
 
-        String responseBody = response.body();
-        JsonObject json = GSON.fromJson(responseBody, JsonObject.class);
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        reader.setLenient(true);  // A stream is several top-level objects in a row
+
+        StringBuilder content = new StringBuilder();
+        StreamingActionParser parser = new StreamingActionParser();
+        boolean dispatched = false;
+        OllamaWire.Chunk last = new OllamaWire.Chunk();
+        long firstTokenNanos = 0;
+
+        OllamaWire.Chunk chunk;
+        while ((chunk = OllamaWire.readChunk(reader)) != null) {
+            if (chunk.error != null) {
+                throw new RuntimeException("Ollama stream error: " + chunk.error);
+            }
 
-        if (json.has("message") && json.getAsJsonObject("message").has("content")) {
-            return json.getAsJsonObject("message").get("content").getAsString();
+            String piece = chunk.text;
+            if (piece != null) {
+                if (firstTokenNanos == 0 && !piece.isEmpty()) {
+                    firstTokenNanos = System.nanoTime() - sent;
+                }
+                content.append(piece);
+                if (onEarlyAction != null && !dispatched) {
+                    parser.feed(piece);
+                    if (parser.isActionReady()) {
+                        CompanionAction early = parser.getEarlyAction();
+                        if (early != null) {
+                            LLMoblings.LOGGER.debug("Early action from stream after {} chars: {}", content.length(), early.getAction());
+                            onEarlyAction.accept(early);
+                            dispatched = true;
+                        }
+                    }
+                }
+            }
+
+            if (chunk.done) {
+                // The final chunk carries the token counts and timings
+                last = chunk;
+                break;
+            }
         }
 
-        return "{\"action\": \"idle\", \"message\": \"I didn't get a proper response.\"}";
+        return new Reply(content.toString(), model, last, headersNanos, firstTokenNanos);
     }
 
     private CompanionAction parseResponse(String response) {
@@ -342,356 +656,141 @@ SOPHISTICATED BACKPACKS (if mod is installed):
 
             JsonObject json = GSON.fromJson(jsonStr, JsonObject.class);
             LLMoblings.LOGGER.debug("Parsed LLM action: {}", json.get("action"));
+            recordReply(LLMTelemetry.Source.LLM);
             return CompanionAction.fromJson(json);
         } catch (Exception e) {
             LLMoblings.LOGGER.warn("Failed to parse LLM response as JSON, trying keyword fallback: {}", response);
             // Try keyword-based fallback parsing
-            return parseFromKeywords(response);
+            recordReply(LLMTelemetry.Source.KEYWORD_FALLBACK);
+            return IntentClassifier.parseFromKeywords(response);
         }
     }
 
     /**
-     * Fallback parser that extracts action from plain text using keywords.
+     * Record an exchange that was answered by another companion's request.
      */
-    private CompanionAction parseFromKeywords(String text) {
-        String lower = text.toLowerCase();
+    public void recordExchange(String userMessage, CompanionAction reply) {
+        restoreHistory();
+        remember(new ChatMessage("user", userMessage), GSON.toJson(reply.toJson()));
+    }
 
-        // Check for action keywords
-        if (lower.contains("follow")) {
-            return new CompanionAction("follow", text);
-        }
-        if (lower.contains("explor") || lower.contains("look around") || lower.contains("wander")) {
-            return new CompanionAction("explore", text);
-        }
-        if (lower.contains("auto") || lower.contains("independent") || lower.contains("on my own")) {
-            return new CompanionAction("auto", text);
-        }
-        if (lower.contains("defend") || lower.contains("protect")) {
-            return new CompanionAction("defend", text);
-        }
-        if (lower.contains("attack") || lower.contains("fight") || lower.contains("kill")) {
-            return new CompanionAction("attack", text);
-        }
-        if (lower.contains("hunt") || lower.contains("food") || lower.contains("eat")) {
-            return new CompanionAction("auto", text);  // Auto mode handles hunting
-        }
-        if (lower.contains("gear") || lower.contains("equip") || lower.contains("armor") || lower.contains("weapon")) {
-            return new CompanionAction("auto", text);  // Auto mode handles equipping
-        }
-        if (lower.contains("stay") || lower.contains("stop") || lower.contains("wait")) {
-            return new CompanionAction("stay", text);
-        }
-        if (lower.contains("come") || lower.contains("here")) {
-            return new CompanionAction("come", text);
-        }
-        if (lower.contains("home")) {
-            return new CompanionAction("home", text);
-        }
-        if (lower.contains("scan")) {
-            return new CompanionAction("scan", text);
-        }
-        if (lower.contains("status") || lower.contains("health") || lower.contains("inventory")) {
-            return new CompanionAction("status", text);
-        }
-        if (lower.contains("tpaccept") || lower.contains("tp accept") || lower.contains("accept teleport") || lower.contains("accept tp")) {
-            return new CompanionAction("tpaccept", text);
-        }
-        if (lower.contains("tpdeny") || lower.contains("tp deny") || lower.contains("deny teleport") || lower.contains("deny tp")) {
-            return new CompanionAction("tpdeny", text);
+    /**
+     * Turns in the history right now, oldest first.
+     */
+    List<ChatMessage> getHistory() {
+        restoreHistory();
+        return memory.recent();
+    }
+
+    /**
+     * Conversation history and summary in compact form for the entity's NBT, or null if there is none.
+     */
+    @Nullable
+    public byte[] saveHistory() {
+        synchronized (memory) {
+            // Never chatted since loading: the saved bytes are still current
+            return savedHistory != null ? savedHistory : memory.encode();
         }
-        if (lower.contains("tpa ") || lower.contains("teleport to ") || lower.contains("tp to ")) {
-            // Try to extract player name
-            String target = "";
-            if (lower.contains("tpa ")) {
-                int idx = lower.indexOf("tpa ") + 4;
-                target = text.substring(idx).trim().split("\\s+")[0];
-            } else if (lower.contains("teleport to ")) {
-                int idx = lower.indexOf("teleport to ") + 12;
-                target = text.substring(idx).trim().split("\\s+")[0];
-            } else if (lower.contains("tp to ")) {
-                int idx = lower.indexOf("tp to ") + 6;
-                target = text.substring(idx).trim().split("\\s+")[0];
-            }
-            CompanionAction action = new CompanionAction("tpa", text);
-            action.setParameter("target", target);
-            return action;
+    }
+
+    /**
+     * Keep saved history to restore when the companion is next talked to.
+     */
+    public void loadHistory(byte[] data) {
+        synchronized (memory) {
+            savedHistory = data;
         }
+    }
 
-        // Portal/dimension travel commands
-        if (lower.contains("portal") || lower.contains("nether") || lower.contains("the end") ||
-            lower.contains("dimension") || lower.contains("through the")) {
-            CompanionAction action = new CompanionAction("portal", text);
-            // Determine if they want to go through or just follow
-            if (lower.contains("go through") || lower.contains("enter") || lower.contains("use") ||
-                lower.contains("step through") || lower.contains("take the") || lower.contains("use the")) {
-                action.setParameter("action", "enter");
-            } else if (lower.contains("follow") || lower.contains("come with") || lower.contains("follow me")) {
-                action.setParameter("action", "follow");
-            } else if (lower.contains("stay") || lower.contains("wait") || lower.contains("don't")) {
-                action.setParameter("action", "stay");
-            } else {
-                // Default to enter if they mention portal
-                action.setParameter("action", "enter");
+    private void restoreHistory() {
+        synchronized (memory) {
+            if (savedHistory != null) {
+                memory.restore(savedHistory);
+                savedHistory = null;
             }
-            return action;
         }
+    }
 
-        // ME network gear retrieval
-        if (lower.contains("get iron") || lower.contains("iron set") || lower.contains("iron gear") ||
-            lower.contains("iron armor") || lower.contains("craft iron")) {
-            CompanionAction action = new CompanionAction("getgear", text);
-            action.setParameter("material", "iron");
-            return action;
-        }
-        if (lower.contains("get diamond") || lower.contains("diamond set") || lower.contains("diamond gear") ||
-            lower.contains("diamond armor") || lower.contains("craft diamond")) {
-            CompanionAction action = new CompanionAction("getgear", text);
-            action.setParameter("material", "diamond");
-            return action;
-        }
-        if (lower.contains("get gear from me") || lower.contains("me network") || lower.contains("from ae2") ||
-            lower.contains("from terminal")) {
-            CompanionAction action = new CompanionAction("getgear", text);
-            action.setParameter("material", "iron");  // Default to iron
-            return action;
+    public void clearHistory() {
+        synchronized (memory) {
+            savedHistory = null;
+            memory.clear();
         }
+        generateContext = null;
+    }
 
-        // Deposit items
-        if (lower.contains("deposit") || lower.contains("store") || lower.contains("stash") ||
-            lower.contains("put away") || lower.contains("put items") || lower.contains("empty inventory")) {
-            CompanionAction action = new CompanionAction("deposit", text);
-            // Check if they want to deposit everything including gear
-            if (lower.contains("everything") || lower.contains("all items") || lower.contains("including gear")) {
-                action.setParameter("keepGear", "false");
-            }
-            return action;
+    /**
+     * Fold turns that aged out of the history into the rolling summary, at background priority.
+     */
+    CompletableFuture<String> summarize(String previousSummary, List<ChatMessage> agedOut) {
+        if (!Config.SUMMARIZE_HISTORY.get()) {
+            return CompletableFuture.completedFuture(previousSummary);
         }
 
-        // Build structures
-        if (lower.contains("build") && (lower.contains("house") || lower.contains("cottage") ||
-            lower.contains("home") || lower.contains("shelter"))) {
-            CompanionAction action = new CompanionAction("build", text);
-            action.setParameter("structure", "cottage");
+        StringBuilder prompt = new StringBuilder();
+        if (!previousSummary.isEmpty()) {
+            prompt.append("Summary so far: ").append(previousSummary).append("\n\n");
+        }
+        prompt.append("New turns:\n");
+        for (ChatMessage msg : agedOut) {
+            String content = msg.content().length() > 300 ? msg.content().substring(0, 300) : msg.content();
+            prompt.append(msg.role().equals("user") ? "Player: " : companionName() + ": ").append(content).append("\n");
+        }
 
-            // Check for "here" keyword
-            if (lower.contains("here") || lower.contains("this spot") || lower.contains("right here")) {
-                action.setParameter("here", "true");
-            }
+        String system = "You keep a running summary of a conversation between Minecraft players and " +
+                "their AI companion " + companionName() + ". Reply with only the updated summary in at most three " +
+                "sentences. Keep what matters later: names, places, coordinates, requests, promises and preferences.";
+        int rawTokens = TokenEstimator.estimateRaw(system)
+                + TokenEstimator.estimateRaw(prompt.toString()) + TokenEstimator.MESSAGE_OVERHEAD * 2;
 
-            // Try to extract coordinates if present (pattern: "at X Y Z" or "X, Y, Z")
-            java.util.regex.Pattern coordPattern = java.util.regex.Pattern.compile(
-                "(?:at\\s+)?([-]?\\d+)[,\\s]+([-]?\\d+)[,\\s]+([-]?\\d+)");
-            java.util.regex.Matcher matcher = coordPattern.matcher(text);
-            if (matcher.find()) {
-                action.setParameter("x", matcher.group(1));
-                action.setParameter("y", matcher.group(2));
-                action.setParameter("z", matcher.group(3));
+        return scheduler().submit(null, LLMRequestScheduler.Priority.BACKGROUND, () -> {
+            try {
+                Reply last = send("/api/generate", false, false, target -> finishBody(new OllamaWire.Body()
+                        .raw("{\"model\":").string(target)
+                        .raw(",\"system\":").string(system)
+                        .raw(",\"prompt\":").string(prompt.toString()), false, 0.2, 160), null);
+                recordUsage(last, rawTokens);
+                return last.content();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
             }
-            return action;
-        }
+        });
+    }
 
-        // Pokemon buddy commands
-        if (lower.contains("pokemon") || lower.contains("buddy") || lower.contains("poke")) {
-            CompanionAction action = new CompanionAction("pokemon", text);
+    /**
+     * One turn of the conversation. Its /api/chat encoding is made on first use and reused
+     * every turn the message stays in the history.
+     */
+    public static final class ChatMessage {
+        private final String role;
+        private final String content;
+        private volatile byte[] json;
 
-            if (lower.contains("release") || lower.contains("bye") || lower.contains("dismiss") ||
-                lower.contains("let go")) {
-                action.setParameter("subaction", "release");
-            } else if (lower.contains("status") || lower.contains("check") || lower.contains("how is")) {
-                action.setParameter("subaction", "status");
-            } else {
-                action.setParameter("subaction", "find");
-
-                // Try to extract Pokemon name
-                String[] pokemonKeywords = {"with", "bond with", "find", "get"};
-                for (String keyword : pokemonKeywords) {
-                    int idx = lower.indexOf(keyword);
-                    if (idx >= 0) {
-                        String afterKeyword = text.substring(idx + keyword.length()).trim();
-                        String[] words = afterKeyword.split("\\s+");
-                        if (words.length > 0 && !words[0].isEmpty()) {
-                            // Capitalize first letter
-                            String pokeName = words[0].substring(0, 1).toUpperCase() + words[0].substring(1).toLowerCase();
-                            action.setParameter("name", pokeName);
-                            break;
-                        }
-                    }
-                }
-            }
-            return action;
+        public ChatMessage(String role, String content) {
+            this.role = role;
+            this.content = content;
         }
 
-        // Building Gadgets commands
-        if (lower.contains("gadget")) {
-            CompanionAction action = new CompanionAction("gadget", text);
-
-            // Determine subaction
-            if (lower.contains("equip") || lower.contains("hold")) {
-                action.setParameter("subaction", "equip");
-            } else if (lower.contains("set block") || lower.contains("setblock") ||
-                       (lower.contains("set") && lower.contains("to"))) {
-                action.setParameter("subaction", "setblock");
-                // Try to extract block name
-                String[] blockKeywords = {"to ", "block ", "with "};
-                for (String keyword : blockKeywords) {
-                    int idx = lower.indexOf(keyword);
-                    if (idx >= 0) {
-                        String afterKeyword = text.substring(idx + keyword.length()).trim();
-                        String[] words = afterKeyword.split("\\s+");
-                        if (words.length > 0 && !words[0].isEmpty()) {
-                            action.setParameter("block", words[0].toLowerCase().replace(" ", "_"));
-                            break;
-                        }
-                    }
-                }
-            } else if (lower.contains("range")) {
-                action.setParameter("subaction", "setrange");
-                // Try to extract range number
-                java.util.regex.Matcher rangeMatcher = java.util.regex.Pattern.compile("\\d+").matcher(text);
-                if (rangeMatcher.find()) {
-                    action.setParameter("range", rangeMatcher.group());
-                }
-            } else if (lower.contains("config") || lower.contains("setup")) {
-                action.setParameter("subaction", "configure");
-                // Try to extract block and range
-                java.util.regex.Matcher rangeMatcher = java.util.regex.Pattern.compile("\\d+").matcher(text);
-                if (rangeMatcher.find()) {
-                    action.setParameter("range", rangeMatcher.group());
-                }
-                // Common block names
-                String[] blocks = {"stone", "cobblestone", "oak_planks", "spruce_planks", "birch_planks",
-                                   "brick", "glass", "dirt", "sand", "gravel", "iron_block", "gold_block"};
-                for (String block : blocks) {
-                    if (lower.contains(block.replace("_", " ")) || lower.contains(block)) {
-                        action.setParameter("block", block);
-                        break;
-                    }
-                }
-            } else if (lower.contains("use") || lower.contains("build") || lower.contains("place")) {
-                action.setParameter("subaction", "build");
-            } else {
-                action.setParameter("subaction", "info");
-            }
-            return action;
+        public String role() {
+            return role;
         }
 
-        // Sophisticated Backpacks commands
-        if (lower.contains("backpack") || lower.contains("pack") && !lower.contains("modpack")) {
-            CompanionAction action = new CompanionAction("backpack", text);
-
-            // Determine subaction
-            if (lower.contains("store") || lower.contains("stash") || lower.contains("put in")) {
-                if (lower.contains("all") || lower.contains("everything")) {
-                    action.setParameter("subaction", "storeall");
-                } else {
-                    action.setParameter("subaction", "store");
-                    // Try to extract item name
-                    String[] storeKeywords = {"store ", "stash ", "put "};
-                    for (String keyword : storeKeywords) {
-                        int idx = lower.indexOf(keyword);
-                        if (idx >= 0) {
-                            String afterKeyword = text.substring(idx + keyword.length()).trim();
-                            // Remove "in backpack" etc
-                            afterKeyword = afterKeyword.replaceAll("\\s*(in|into|to)\\s*(my\\s+)?backpack.*", "").trim();
-                            if (!afterKeyword.isEmpty()) {
-                                String[] words = afterKeyword.split("\\s+");
-                                if (words.length > 0) {
-                                    action.setParameter("item", words[0].toLowerCase().replace(" ", "_"));
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
-            } else if (lower.contains("get") || lower.contains("take") || lower.contains("retrieve") ||
-                       lower.contains("grab")) {
-                action.setParameter("subaction", "get");
-                // Try to extract item name and count
-                String[] getKeywords = {"get ", "take ", "retrieve ", "grab "};
-                for (String keyword : getKeywords) {
-                    int idx = lower.indexOf(keyword);
-                    if (idx >= 0) {
-                        String afterKeyword = text.substring(idx + keyword.length()).trim();
-                        afterKeyword = afterKeyword.replaceAll("\\s*(from|out of)\\s*(my\\s+)?backpack.*", "").trim();
-                        if (!afterKeyword.isEmpty()) {
-                            // Try to extract count
-                            java.util.regex.Matcher countMatcher = java.util.regex.Pattern.compile("(\\d+)").matcher(afterKeyword);
-                            if (countMatcher.find()) {
-                                action.setParameter("count", countMatcher.group(1));
-                                afterKeyword = afterKeyword.replaceFirst("\\d+\\s*", "").trim();
-                            }
-                            String[] words = afterKeyword.split("\\s+");
-                            if (words.length > 0 && !words[0].isEmpty()) {
-                                action.setParameter("item", words[0].toLowerCase().replace(" ", "_"));
-                                break;
-                            }
-                        }
-                    }
-                }
-            } else if (lower.contains("list") || lower.contains("contents") || lower.contains("what's in") ||
-                       lower.contains("show me")) {
-                action.setParameter("subaction", "list");
-            } else if (lower.contains("organize") || lower.contains("sort")) {
-                action.setParameter("subaction", "organize");
-            } else {
-                action.setParameter("subaction", "info");
-            }
-            return action;
+        public String content() {
+            return content;
         }
 
-        // Elevator commands
-        if (lower.contains("elevator") || lower.contains("lift") ||
-            (lower.contains("go") && (lower.contains("up") || lower.contains("down")) && lower.contains("floor"))) {
-            CompanionAction action = new CompanionAction("elevator", text);
-            if (lower.contains("up") || lower.contains("ascend") || lower.contains("higher")) {
-                action.setParameter("direction", "up");
-            } else if (lower.contains("down") || lower.contains("descend") || lower.contains("lower")) {
-                action.setParameter("direction", "down");
-            } else {
-                action.setParameter("direction", "up"); // Default to up
+        byte[] json() {
+            byte[] encoded = json;
+            if (encoded == null) {
+                encoded = OllamaWire.encodeMessage(role, content);
+                json = encoded;
             }
-            return action;
+            return encoded;
         }
 
-        // Pokemon stats commands (Cobblemon)
-        if (lower.contains("cobblestats") || lower.contains("pokemon stats") ||
-            lower.contains("check pokemon") || lower.contains("pokemon ivs") ||
-            lower.contains("pokemon evs") || lower.contains("mon stats") ||
-            (lower.contains("stats") && (lower.contains("pokemon") || lower.contains("cobble")))) {
-            CompanionAction action = new CompanionAction("cobblestats", text);
-
-            // Check if they want brief or full stats
-            if (lower.contains("brief") || lower.contains("quick") || lower.contains("short")) {
-                action.setParameter("detail", "brief");
-            } else if (lower.contains("full") || lower.contains("detailed") || lower.contains("all")) {
-                action.setParameter("detail", "full");
-            } else {
-                action.setParameter("detail", "full"); // Default to full
-            }
-
-            // Check if they specified a Pokemon name
-            String[] words = text.split("\\s+");
-            for (int i = 0; i < words.length; i++) {
-                String word = words[i].toLowerCase();
-                if (word.equals("on") || word.equals("for") || word.equals("of")) {
-                    if (i + 1 < words.length) {
-                        action.setParameter("target", words[i + 1]);
-                        break;
-                    }
-                }
-            }
-
-            return action;
+        @Override
+        public String toString() {
+            return role + ": " + content;
         }
-
-        // Default to idle with the response as message
-        LLMoblings.LOGGER.info("No action keyword found, defaulting to idle");
-        return new CompanionAction("idle", text);
-    }
-
-    public void clearHistory() {
-        conversationHistory.clear();
     }
-
-    public record ChatMessage(String role, String content) {}
 }
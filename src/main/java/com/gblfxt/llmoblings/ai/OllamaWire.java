@@ -0,0 +1,283 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ollama's JSON, written and read without building Gson trees.
+ * Request bodies are a list of UTF-8 segments: the big, unchanging parts (system prompt, history
+ * messages) are encoded once and the same arrays are handed to the HTTP client on every call, so a
+ * request only allocates for what is new. Replies are read token by token, keeping only the fields
+ * the client uses.
+ */
+final class OllamaWire {
+
+    private OllamaWire() {}
+
+    /**
+     * A JSON string literal (with quotes) as UTF-8.
+     */
+    static byte[] encodeString(String value) {
+        return quote(value, true, true);
+    }
+
+    /**
+     * The escaped contents of a JSON string, with the opening and/or closing quote, as UTF-8.
+     * Pieces can be concatenated to spell one long string.
+     */
+    static byte[] quote(String value, boolean open, boolean close) {
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        if (open) sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        if (close) sb.append('"');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One /api/chat message object.
+     */
+    static byte[] encodeMessage(String role, String content) {
+        byte[] prefix = ("{\"role\":\"" + role + "\",\"content\":").getBytes(StandardCharsets.UTF_8);
+        byte[] text = encodeString(content);
+        byte[] json = Arrays.copyOf(prefix, prefix.length + text.length + 1);
+        System.arraycopy(text, 0, json, prefix.length, text.length);
+        json[json.length - 1] = '}';
+        return json;
+    }
+
+    /**
+     * A request body under construction. Structure (braces, commas, field names) is written by the caller;
+     * small literal pieces are gathered up and stored as one segment.
+     */
+    static final class Body {
+        private final List<byte[]> segments = new ArrayList<>();
+        private final StringBuilder pending = new StringBuilder();
+        private long length = 0;
+
+        /**
+         * Literal JSON text, e.g. {@code ,"stream":true}. Must not contain user input.
+         */
+        Body raw(String json) {
+            pending.append(json);
+            return this;
+        }
+
+        Body string(String value) {
+            return segment(encodeString(value));
+        }
+
+        Body number(long value) {
+            pending.append(value);
+            return this;
+        }
+
+        Body bool(boolean value) {
+            pending.append(value);
+            return this;
+        }
+
+        /**
+         * Already-encoded JSON, added as is and never copied.
+         */
+        Body segment(byte[] json) {
+            flush();
+            segments.add(json);
+            length += json.length;
+            return this;
+        }
+
+        Body intArray(int[] values) {
+            flush();
+            StringBuilder sb = new StringBuilder(values.length * 6 + 2).append('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(values[i]);
+            }
+            return segment(sb.append(']').toString().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                byte[] bytes = pending.toString().getBytes(StandardCharsets.UTF_8);
+                pending.setLength(0);
+                segments.add(bytes);
+                length += bytes.length;
+            }
+        }
+
+        HttpRequest.BodyPublisher publisher() {
+            flush();
+            // With the length known up front the body goes out with Content-Length instead of chunked
+            return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofByteArrays(segments), length);
+        }
+
+        /**
+         * The whole body as a string, for logging and debugging.
+         */
+        @Override
+        public String toString() {
+            flush();
+            StringBuilder sb = new StringBuilder();
+            for (byte[] segment : segments) {
+                sb.append(new String(segment, StandardCharsets.UTF_8));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The fields the client reads from a /api/chat or /api/generate response object or stream chunk.
+     */
+    static final class Chunk {
+        // message.content for /api/chat, response for /api/generate
+        @Nullable String text;
+        boolean done;
+        @Nullable String error;
+        long promptEvalCount;
+        long evalCount;
+        long loadDuration;
+        long promptEvalDuration;
+        long evalDuration;
+        // /api/generate only: the token context to continue from next time
+        @Nullable int[] context;
+    }
+
+    /**
+     * Read the next response object from the reader, or null at the end of the stream.
+     * The reader should be lenient so it accepts Ollama's stream of concatenated objects.
+     */
+    @Nullable
+    static Chunk readChunk(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.END_DOCUMENT) {
+            return null;
+        }
+        Chunk chunk = new Chunk();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "message" -> readMessage(reader, chunk);
+                case "response" -> chunk.text = nextString(reader);
+                case "done" -> chunk.done = reader.nextBoolean();
+                case "error" -> chunk.error = nextString(reader);
+                case "prompt_eval_count" -> chunk.promptEvalCount = reader.nextLong();
+                case "eval_count" -> chunk.evalCount = reader.nextLong();
+                case "load_duration" -> chunk.loadDuration = reader.nextLong();
+                case "prompt_eval_duration" -> chunk.promptEvalDuration = reader.nextLong();
+                case "eval_duration" -> chunk.evalDuration = reader.nextLong();
+                case "context" -> chunk.context = readInts(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return chunk;
+    }
+
+    /**
+     * Read the "embeddings" of an /api/embed response, one vector per input.
+     */
+    static List<float[]> readEmbeddings(JsonReader reader) throws IOException {
+        List<float[]> embeddings = new ArrayList<>();
+        String error = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "embeddings" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        embeddings.add(readFloats(reader));
+                    }
+                    reader.endArray();
+                }
+                case "error" -> error = nextString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (error != null) {
+            throw new IOException("Ollama embedding failed: " + error);
+        }
+        return embeddings;
+    }
+
+    private static float[] readFloats(JsonReader reader) throws IOException {
+        float[] values = new float[1024];
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = (float) reader.nextDouble();
+        }
+        reader.endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    private static void readMessage(JsonReader reader, Chunk chunk) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("content")) {
+                chunk.text = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    @Nullable
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    @Nullable
+    private static int[] readInts(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        int[] values = new int[1024];
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = reader.nextInt();
+        }
+        reader.endArray();
+        return Arrays.copyOf(values, count);
+    }
+}
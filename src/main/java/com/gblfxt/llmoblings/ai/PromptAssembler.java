@@ -0,0 +1,106 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.LLMoblings;
+import com.gblfxt.llmoblings.ai.OllamaClient.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits the system prompt, the rolling summary, history and the new message into the model's
+ * context window. The oldest turns are dropped first; an oversized new message is shortened
+ * so Ollama never has to truncate the prompt itself.
+ */
+public class PromptAssembler {
+
+    /**
+     * @param messages        messages to send, in order
+     * @param rawTokens       uncalibrated token estimate of the whole prompt (for calibration)
+     * @param estimatedTokens calibrated estimate
+     * @param droppedMessages history messages left out to fit the budget
+     */
+    public record Prompt(List<ChatMessage> messages, int rawTokens, int estimatedTokens, int droppedMessages) {}
+
+    /**
+     * @param system  the system message, passed through as is so its cached encoding is reused
+     * @param history recent turns, oldest first; the last entry is the new user message
+     * @param budget  tokens available for the prompt (context size minus room for the reply)
+     */
+    public static Prompt assemble(String model, ChatMessage system, String summary,
+                                  List<ChatMessage> history, int budget) {
+        List<ChatMessage> head = new ArrayList<>();
+        head.add(system);
+        if (!summary.isEmpty()) {
+            head.add(new ChatMessage("system", "Earlier in this conversation: " + summary));
+        }
+
+        int raw = 0;
+        for (ChatMessage msg : head) {
+            raw += cost(msg);
+        }
+
+        if (history.isEmpty()) {
+            return new Prompt(head, raw, TokenEstimator.scale(model, raw), 0);
+        }
+
+        // The new message always goes in, shortened if it alone would overflow
+        ChatMessage latest = history.get(history.size() - 1);
+        int rawBudget = (int) (budget / TokenEstimator.getRatio(model));
+        int latestCost = cost(latest);
+        if (raw + latestCost > rawBudget) {
+            int available = Math.max(16, rawBudget - raw - TokenEstimator.MESSAGE_OVERHEAD);
+            latest = new ChatMessage(latest.role(), shorten(latest.content(), available));
+            latestCost = cost(latest);
+            LLMoblings.LOGGER.debug("Shortened a {}-character message to fit the context", history.get(history.size() - 1).content().length());
+        }
+        raw += latestCost;
+
+        // Walk back from the newest turn and keep as many as fit
+        int first = history.size() - 1;
+        while (first > 0) {
+            int msgCost = cost(history.get(first - 1));
+            if (raw + msgCost > rawBudget) {
+                break;
+            }
+            raw += msgCost;
+            first--;
+        }
+        // Never open with a dangling assistant reply
+        while (first < history.size() - 1 && history.get(first).role().equals("assistant")) {
+            raw -= cost(history.get(first));
+            first++;
+        }
+
+        List<ChatMessage> messages = new ArrayList<>(head);
+        messages.addAll(history.subList(first, history.size() - 1));
+        messages.add(latest);
+        return new Prompt(messages, raw, TokenEstimator.scale(model, raw), first);
+    }
+
+    /**
+     * Shorten text to roughly the given number of (raw) tokens, keeping the start and the end.
+     */
+    public static String shorten(String text, int maxRawTokens) {
+        if (TokenEstimator.estimateRaw(text) <= maxRawTokens) {
+            return text;
+        }
+        // Binary search on length; the estimate is monotonic enough for this
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) / 2;
+            if (TokenEstimator.estimateRaw(text.substring(0, mid / 2)) +
+                    TokenEstimator.estimateRaw(text.substring(text.length() - mid / 2)) + 3 <= maxRawTokens) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int half = low / 2;
+        return text.substring(0, half) + " [...] " + text.substring(text.length() - half);
+    }
+
+    private static int cost(ChatMessage msg) {
+        return TokenEstimator.estimateRaw(msg.content()) + TokenEstimator.MESSAGE_OVERHEAD;
+    }
+}
@@ -0,0 +1,136 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.LLMoblings;
+import com.gblfxt.llmoblings.entity.CompanionEntity;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.player.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges identical messages from the same sender within one server tick into a single LLM call.
+ * A broadcast like "@follow me" reaches every nearby companion; the first one asks the LLM and
+ * the rest share its answer, with only the companion name swapped in the reply text.
+ * Only touched from the server thread.
+ */
+public class RequestCoalescer {
+    private static final Map<Key, SharedInference> inFlight = new HashMap<>();
+    private static long currentTick = -1;
+
+    private static final AtomicLong coalescedCount = new AtomicLong();
+
+    private record Key(UUID sender, String message) {}
+
+    public static CompletableFuture<CompanionAction> chat(CompanionEntity companion, OllamaClient client, String message,
+                                                          LLMRequestScheduler.Priority priority, @Nullable Player sender,
+                                                          Consumer<CompanionAction> onEarlyAction) {
+        if (sender == null || !(companion.level() instanceof ServerLevel level)) {
+            return client.chat(message, priority, sender != null ? sender.getUUID() : null, onEarlyAction);
+        }
+
+        // Only merge requests made within the same tick; every inbox releases a broadcast on the tick it is due
+        long tick = level.getServer().getTickCount();
+        if (tick != currentTick) {
+            inFlight.clear();
+            currentTick = tick;
+        }
+
+        Key key = new Key(sender.getUUID(), message);
+        SharedInference shared = inFlight.get(key);
+
+        if (shared == null) {
+            SharedInference leader = new SharedInference(companion.getCompanionName());
+            leader.addEarlyListener(onEarlyAction);
+            leader.future = client.chat(message, priority, sender.getUUID(), leader::dispatchEarly);
+            inFlight.put(key, leader);
+            return leader.join(action -> action);
+        }
+
+        coalescedCount.incrementAndGet();
+        LLMoblings.LOGGER.debug("[{}] Sharing {}'s LLM request for: {}",
+                companion.getCompanionName(), shared.leaderName, message);
+
+        String leaderName = shared.leaderName;
+        String name = companion.getCompanionName();
+        shared.addEarlyListener(onEarlyAction);
+        return shared.join(action -> {
+            // Keep this companion's history in step with the conversation it took part in
+            client.recordExchange(message, action);
+            return action.withMessage(substituteName(action.getMessage(), leaderName, name));
+        });
+    }
+
+    @Nullable
+    static String substituteName(@Nullable String text, String from, String to) {
+        if (text == null || from.isEmpty() || from.equalsIgnoreCase(to)) {
+            return text;
+        }
+        Pattern pattern = Pattern.compile("\\b" + Pattern.quote(from) + "\\b", Pattern.CASE_INSENSITIVE);
+        return pattern.matcher(text).replaceAll(Matcher.quoteReplacement(to));
+    }
+
+    public static long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public static void resetStats() {
+        coalescedCount.set(0);
+    }
+
+    private static class SharedInference {
+        private final String leaderName;
+        private final List<Consumer<CompanionAction>> earlyListeners = new ArrayList<>();
+        private CompanionAction early;
+        private CompletableFuture<CompanionAction> future;
+        // Companions still waiting for the reply; the request is only cancelled once all of them gave up
+        private int waiting = 0;
+
+        SharedInference(String leaderName) {
+            this.leaderName = leaderName;
+        }
+
+        synchronized CompletableFuture<CompanionAction> join(Function<CompanionAction, CompanionAction> mapper) {
+            waiting++;
+            CompletableFuture<CompanionAction> view = future.thenApply(mapper);
+            view.whenComplete((action, error) -> {
+                if (view.isCancelled()) {
+                    leave();
+                }
+            });
+            return view;
+        }
+
+        private synchronized void leave() {
+            if (--waiting == 0) {
+                future.cancel(true);
+            }
+        }
+
+        synchronized void addEarlyListener(Consumer<CompanionAction> listener) {
+            earlyListeners.add(listener);
+            // Joined after the action was already streamed
+            CompanionAction action = early;
+            if (action != null) {
+                listener.accept(action);
+            }
+        }
+
+        synchronized void dispatchEarly(CompanionAction action) {
+            early = action;
+            for (Consumer<CompanionAction> listener : earlyListeners) {
+                listener.accept(action);
+            }
+        }
+    }
+}
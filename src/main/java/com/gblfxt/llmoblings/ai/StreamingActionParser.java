@@ -0,0 +1,197 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Incremental parser for a streamed LLM reply.
+ * Tracks the top-level fields of the JSON object as chunks arrive so the action
+ * can be dispatched before the (much longer) message text has finished generating.
+ */
+public class StreamingActionParser {
+    private static final Gson GSON = new Gson();
+
+    // Actions that take no parameters can be dispatched as soon as their name is known
+    private static final Set<String> IMMEDIATE_ACTIONS = Set.of(
+            "follow", "stay", "stop", "come", "defend", "retreat", "status",
+            "inventory", "equip", "sethome", "setbed", "home", "sleep", "tpaccept", "tpdeny"
+    );
+
+    private final JsonObject fields = new JsonObject();
+
+    private boolean started = false;
+    private boolean finished = false;
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escape = false;
+    private boolean expectingKey = true;
+    private String currentKey = null;
+    private final StringBuilder stringBuf = new StringBuilder();
+    private final StringBuilder valueBuf = new StringBuilder();
+    // Raw text of an object or array value of a top-level field (a plan's steps)
+    private final StringBuilder nestedBuf = new StringBuilder();
+
+    private boolean actionReady = false;
+
+    /**
+     * Feed the next chunk of streamed content.
+     */
+    public void feed(String chunk) {
+        for (int i = 0; i < chunk.length() && !finished; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    private void accept(char c) {
+        if (!started) {
+            // Skip anything before the object (markdown fences, stray text)
+            if (c == '{') {
+                started = true;
+                depth = 1;
+            }
+            return;
+        }
+
+        boolean opensNested = depth == 1 && !inString && !expectingKey && (c == '{' || c == '[');
+        if (depth > 1 || opensNested) {
+            nestedBuf.append(c);
+        }
+
+        if (inString) {
+            if (escape) {
+                escape = false;
+                stringBuf.append(c);
+            } else if (c == '\\') {
+                escape = true;
+                stringBuf.append(c);
+            } else if (c == '"') {
+                inString = false;
+                onStringComplete(stringBuf.toString());
+            } else {
+                stringBuf.append(c);
+            }
+            return;
+        }
+
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                stringBuf.setLength(0);
+            }
+            case '{', '[' -> depth++;
+            case '}', ']' -> {
+                depth--;
+                if (depth == 1) {
+                    onNestedComplete();
+                }
+                if (depth == 0) {
+                    onPrimitiveComplete();
+                    finished = true;
+                    actionReady = fields.has("action");
+                }
+            }
+            case ':' -> {
+                if (depth == 1) {
+                    expectingKey = false;
+                    valueBuf.setLength(0);
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    onPrimitiveComplete();
+                    expectingKey = true;
+                    currentKey = null;
+                }
+            }
+            default -> {
+                if (depth == 1 && !expectingKey && !Character.isWhitespace(c)) {
+                    valueBuf.append(c);
+                }
+            }
+        }
+    }
+
+    private void onStringComplete(String raw) {
+        if (depth != 1) {
+            return;
+        }
+        String value = decode(raw);
+        if (expectingKey) {
+            currentKey = value;
+            // The message is generated last - everything the action needs is already here
+            // (a plan whose message comes before its steps has to wait for the end)
+            if ("message".equals(value) && fields.has("action")
+                    && (!"plan".equalsIgnoreCase(fields.get("action").getAsString()) || fields.has("steps"))) {
+                actionReady = true;
+            }
+        } else if (currentKey != null) {
+            fields.addProperty(currentKey, value);
+            if ("action".equals(currentKey) && IMMEDIATE_ACTIONS.contains(value.toLowerCase())) {
+                actionReady = true;
+            }
+        }
+    }
+
+    private void onPrimitiveComplete() {
+        if (currentKey == null || valueBuf.length() == 0) {
+            return;
+        }
+        try {
+            JsonElement element = GSON.fromJson(valueBuf.toString(), JsonElement.class);
+            if (element != null && element.isJsonPrimitive()) {
+                fields.add(currentKey, element);
+            }
+        } catch (Exception ignored) {
+            // Malformed primitive - the full parse at the end will handle it
+        }
+        valueBuf.setLength(0);
+    }
+
+    private void onNestedComplete() {
+        if (currentKey != null && nestedBuf.length() > 0) {
+            try {
+                fields.add(currentKey, GSON.fromJson(nestedBuf.toString(), JsonElement.class));
+            } catch (Exception ignored) {
+                // Malformed value - the full parse at the end will handle it
+            }
+        }
+        nestedBuf.setLength(0);
+    }
+
+    private static String decode(String raw) {
+        if (raw.indexOf('\\') < 0) {
+            return raw;
+        }
+        try {
+            return GSON.fromJson("\"" + raw + "\"", String.class);
+        } catch (Exception e) {
+            return raw;
+        }
+    }
+
+    /**
+     * Returns the action parsed so far once it is complete enough to execute,
+     * without the message text. Returns null if the action is not yet known.
+     */
+    @Nullable
+    public CompanionAction getEarlyAction() {
+        if (!actionReady) {
+            return null;
+        }
+        JsonObject data = fields.deepCopy();
+        data.remove("message");
+        return CompanionAction.fromJson(data);
+    }
+
+    public boolean isActionReady() {
+        return actionReady;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,112 @@
+package com.gblfxt.llmoblings.ai;
+
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.level.block.Block;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What the block and mob names in commands refer to, looked up in the game registries.
+ */
+public class TargetNames {
+
+    // Common aliases
+    private static final Map<String, String> BLOCK_ALIASES = Map.of(
+            "wood", "oak_log",
+            "logs", "oak_log",
+            "stone", "stone",
+            "cobble", "cobblestone",
+            "dirt", "dirt",
+            "iron", "iron_ore",
+            "gold", "gold_ore",
+            "diamond", "diamond_ore",
+            "coal", "coal_ore",
+            "copper", "copper_ore"
+    );
+
+    /**
+     * Blocks a mining order for {@code name} would collect, matched loosely ("iron" finds every iron ore).
+     */
+    public static Set<Block> resolveBlocks(String name) {
+        Set<Block> blocks = new HashSet<>();
+        // Try to match block by name (partial matching for convenience)
+        String searchTerm = name.toLowerCase().replace(" ", "_");
+        searchTerm = BLOCK_ALIASES.getOrDefault(searchTerm, searchTerm);
+
+        // Search all registered blocks
+        for (var entry : BuiltInRegistries.BLOCK.entrySet()) {
+            String blockId = entry.getKey().location().getPath();
+
+            // Match if the block ID contains our search term
+            if (blockId.contains(searchTerm) || searchTerm.contains(blockId)) {
+                blocks.add(entry.getValue());
+            }
+        }
+
+        // Special handling for "log" to get all log types
+        if (searchTerm.contains("log") || searchTerm.equals("wood")) {
+            for (var entry : BuiltInRegistries.BLOCK.entrySet()) {
+                String blockId = entry.getKey().location().getPath();
+                if (blockId.endsWith("_log") || blockId.endsWith("_wood")) {
+                    blocks.add(entry.getValue());
+                }
+            }
+        }
+
+        // Special handling for ores
+        if (searchTerm.contains("ore")) {
+            for (var entry : BuiltInRegistries.BLOCK.entrySet()) {
+                String blockId = entry.getKey().location().getPath();
+                if (blockId.contains(searchTerm.replace("_ore", "")) && blockId.contains("ore")) {
+                    blocks.add(entry.getValue());
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Whether a mining order for {@code name} would find anything to mine ("your stuff" wouldn't).
+     */
+    public static boolean isMineable(String name) {
+        return !resolveBlocks(name).isEmpty();
+    }
+
+    /**
+     * Whether {@code name} is a mob companions can be told to attack ("zombie", but not "me" or "time").
+     * Players are never attacked, so they don't count.
+     */
+    public static boolean isAttackable(String name) {
+        EntityType<?> type = entityType(name);
+        return type != null && type != EntityType.PLAYER;
+    }
+
+    /**
+     * Whether a normalized message names a kind of entity, in one or two words ("cows", "iron golem").
+     */
+    public static boolean mentionsEntityType(String normalized) {
+        String[] words = normalized.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (isEntityWord(words[i]) || (i + 1 < words.length && isEntityWord(words[i] + "_" + words[i + 1]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEntityWord(String word) {
+        EntityType<?> type = entityType(IntentClassifier.singular(word));
+        return type != null && type != EntityType.PLAYER;
+    }
+
+    @Nullable
+    private static EntityType<?> entityType(String name) {
+        ResourceLocation id = ResourceLocation.tryBuild(ResourceLocation.DEFAULT_NAMESPACE, name);
+        return id != null && BuiltInRegistries.ENTITY_TYPE.containsKey(id) ? BuiltInRegistries.ENTITY_TYPE.get(id) : null;
+    }
+}
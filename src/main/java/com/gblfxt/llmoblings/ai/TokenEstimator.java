@@ -0,0 +1,87 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.LLMoblings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quick token count approximation, close enough to budget a prompt without a real tokenizer.
+ * Each model's real counts (prompt_eval_count) are fed back to calibrate the estimate over time.
+ */
+public class TokenEstimator {
+    // Chat templates wrap every message in a few special tokens
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private static final double MIN_RATIO = 0.5;
+    private static final double MAX_RATIO = 2.5;
+    private static final double LEARNING_RATE = 0.2;
+
+    private static final Map<String, Double> ratios = new ConcurrentHashMap<>();
+
+    /**
+     * Uncalibrated estimate: short words are one token, long words about one per five letters,
+     * numbers one per three digits, and punctuation/symbols one each.
+     */
+    public static int estimateRaw(String text) {
+        int tokens = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetter(c) && c < 128) {
+                int start = i;
+                while (i < length && Character.isLetter(text.charAt(i)) && text.charAt(i) < 128) {
+                    i++;
+                }
+                tokens += 1 + (i - start - 1) / 5;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else {
+                tokens++;
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Calibrated estimate for the given model.
+     */
+    public static int estimate(String model, String text) {
+        return scale(model, estimateRaw(text));
+    }
+
+    public static int scale(String model, int rawTokens) {
+        return (int) Math.ceil(rawTokens * getRatio(model));
+    }
+
+    public static double getRatio(String model) {
+        return ratios.getOrDefault(model, 1.0);
+    }
+
+    /**
+     * Learn from a finished request. Samples where Ollama evaluated far fewer tokens than we sent
+     * are prefix-cache hits and say nothing about the tokenizer, so they are skipped.
+     */
+    public static void calibrate(String model, int rawEstimate, long actualTokens) {
+        if (rawEstimate <= 0 || actualTokens <= 0) {
+            return;
+        }
+        double ratio = getRatio(model);
+        if (actualTokens < rawEstimate * ratio * 0.6) {
+            return;
+        }
+        double observed = Math.max(MIN_RATIO, Math.min(MAX_RATIO, (double) actualTokens / rawEstimate));
+        double updated = ratio + (observed - ratio) * LEARNING_RATE;
+        ratios.put(model, updated);
+        LLMoblings.LOGGER.debug("Token estimate for {}: {} actual vs {} estimated, ratio now {}",
+                model, actualTokens, rawEstimate, String.format("%.2f", updated));
+    }
+}
@@ -395,6 +395,13 @@ public class UltimineHelper {
         return false;
     }
 
+    /**
+     * Tier of the tool in the companion's hand (higher = better), -1 for no tool.
+     */
+    public static int getHeldToolTier(CompanionEntity companion) {
+        return getToolTier(companion.getMainHandItem().getItem());
+    }
+
     /**
      * Get tool tier (higher = better).
      */
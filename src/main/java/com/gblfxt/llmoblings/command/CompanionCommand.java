@@ -2,9 +2,20 @@ package com.gblfxt.llmoblings.command;
 
 import com.gblfxt.llmoblings.Config;
 import com.gblfxt.llmoblings.LLMoblings;
+import com.gblfxt.llmoblings.ai.ActionCache;
+import com.gblfxt.llmoblings.ai.CircuitBreaker;
+import com.gblfxt.llmoblings.ai.CompanionLOD;
+import com.gblfxt.llmoblings.ai.CompanionProfiler;
+import com.gblfxt.llmoblings.ai.EmbeddingIntentRouter;
+import com.gblfxt.llmoblings.ai.LLMRequestScheduler;
+import com.gblfxt.llmoblings.ai.LLMTelemetry;
+import com.gblfxt.llmoblings.ai.MovementController;
+import com.gblfxt.llmoblings.ai.OllamaBackendPool;
+import com.gblfxt.llmoblings.ai.RequestCoalescer;
 import com.gblfxt.llmoblings.data.CompanionSaveData;
 import com.gblfxt.llmoblings.entity.CompanionEntity;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.commands.CommandSourceStack;
@@ -38,6 +49,29 @@ public class CompanionCommand {
                 .then(Commands.literal("help")
                         .executes(CompanionCommand::showHelp)
                 )
+                .then(Commands.literal("llm")
+                        .requires(source -> source.hasPermission(2))
+                        .then(Commands.literal("status")
+                                .executes(CompanionCommand::llmStatus)
+                        )
+                        .then(Commands.literal("stats")
+                                .then(Commands.literal("reset")
+                                        .executes(CompanionCommand::llmStatsReset)
+                                )
+                                .executes(CompanionCommand::llmStats)
+                        )
+                )
+                .then(Commands.literal("lod")
+                        .requires(source -> source.hasPermission(2))
+                        .executes(CompanionCommand::lodStatus)
+                )
+                .then(Commands.literal("profile")
+                        .requires(source -> source.hasPermission(2))
+                        .then(Commands.argument("seconds", IntegerArgumentType.integer(1, 300))
+                                .executes(ctx -> profile(ctx, IntegerArgumentType.getInteger(ctx, "seconds")))
+                        )
+                        .executes(ctx -> profile(ctx, 10))
+                )
                 .executes(CompanionCommand::showHelp)
         );
     }
@@ -211,8 +245,9 @@ public class CompanionCommand {
 
         StringBuilder sb = new StringBuilder("Your companions:\n");
         for (CompanionEntity companion : allCompanions) {
-            String state = companion.getAIController() != null ?
-                    companion.getAIController().getCurrentState().name() : "UNKNOWN";
+            String state = companion.getAIController() == null ? "UNKNOWN"
+                    : companion.getAIController().isDormant() ? "DORMANT"
+                    : companion.getAIController().getCurrentState().name();
 
             // Get dimension name
             String dimName = companion.level().dimension().location().toString();
@@ -236,14 +271,129 @@ public class CompanionCommand {
                     .append(" at [").append((int) companion.getX())
                     .append(", ").append((int) companion.getY())
                     .append(", ").append((int) companion.getZ()).append("]")
-                    .append(distStr)
-                    .append("\n");
+                    .append(distStr);
+            if (companion.getAIController() != null) {
+                MovementController movement = companion.getAIController().getMovement();
+                sb.append(" paths: ").append(movement.getPathComputations())
+                        .append(" (+").append(movement.getPathsJoined()).append(" shared)");
+            }
+            sb.append("\n");
         }
 
         source.sendSuccess(() -> Component.literal(sb.toString().trim()), false);
         return 1;
     }
 
+    private static int llmStats(CommandContext<CommandSourceStack> ctx) {
+        StringBuilder sb = new StringBuilder("LLM telemetry since start or last reset:\n")
+                .append("Calls: ").append(LLMTelemetry.getCalls()).append(" answered, ")
+                .append(LLMTelemetry.getFailedCalls()).append(" failed or cancelled\n")
+                .append("Replies: ").append(LLMTelemetry.describeReplies())
+                .append(String.format(" (%.1f%% of model replies needed the fallback)", LLMTelemetry.getFallbackRate() * 100))
+                .append("\nAction cache: ").append(ActionCache.getSize()).append(" entries, ")
+                .append(ActionCache.getHits()).append(" hits, ")
+                .append(ActionCache.getMisses()).append(" misses, ")
+                .append(ActionCache.getBypassed()).append(" bypassed, ")
+                .append(ActionCache.getEvictions()).append(" evicted")
+                .append("\nShared replies: ").append(RequestCoalescer.getCoalescedCount());
+        for (LLMTelemetry.Histogram histogram : LLMTelemetry.getHistograms()) {
+            sb.append("\n").append(histogram);
+        }
+        ctx.getSource().sendSuccess(() -> Component.literal(sb.toString()), false);
+        return 1;
+    }
+
+    private static int llmStatsReset(CommandContext<CommandSourceStack> ctx) {
+        LLMTelemetry.reset();
+        ActionCache.resetStats();
+        RequestCoalescer.resetStats();
+        ctx.getSource().sendSuccess(() -> Component.literal("LLM telemetry reset."), true);
+        return 1;
+    }
+
+    private static int profile(CommandContext<CommandSourceStack> ctx, int seconds) {
+        CommandSourceStack source = ctx.getSource();
+        boolean started = CompanionProfiler.begin(seconds, report -> {
+            LLMoblings.LOGGER.info("{}", report);
+            source.sendSuccess(() -> Component.literal(report), false);
+        });
+        if (!started) {
+            source.sendFailure(Component.literal("A companion profile is already running."));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("Profiling companions for " + seconds + "s..."), false);
+        return 1;
+    }
+
+    private static int lodStatus(CommandContext<CommandSourceStack> ctx) {
+        CommandSourceStack source = ctx.getSource();
+        int[] counts = new int[CompanionLOD.Tier.values().length];
+        int[] dormant = new int[1];
+        for (ServerLevel level : source.getServer().getAllLevels()) {
+            level.getEntities(LLMoblings.COMPANION.get(), entity -> {
+                if (entity instanceof CompanionEntity companion && companion.getAIController() != null) {
+                    counts[companion.getAIController().getLevelOfDetail().getTier().ordinal()]++;
+                    if (companion.getAIController().isDormant()) {
+                        dormant[0]++;
+                    }
+                }
+                return true;
+            });
+        }
+
+        StringBuilder sb = new StringBuilder("Companion AI detail")
+                .append(Config.AI_LOD_ENABLED.get() ? ":" : " (disabled - all FULL):");
+        for (CompanionLOD.Tier tier : CompanionLOD.Tier.values()) {
+            sb.append(" ").append(tier).append(" ").append(counts[tier.ordinal()]);
+        }
+        sb.append(" - ").append(dormant[0]).append(" of them dormant (unloaded dormant companions not counted)");
+        sb.append(String.format("\nReduced beyond %.0f blocks of a player (every %d ticks), minimal beyond %.0f (every %d ticks)",
+                Config.AI_LOD_REDUCED_DISTANCE.get(), Config.AI_LOD_REDUCED_INTERVAL.get(),
+                Config.AI_LOD_MINIMAL_DISTANCE.get(), Config.AI_LOD_MINIMAL_INTERVAL.get()));
+        source.sendSuccess(() -> Component.literal(sb.toString()), false);
+        return 1;
+    }
+
+    private static int llmStatus(CommandContext<CommandSourceStack> ctx) {
+        CommandSourceStack source = ctx.getSource();
+        OllamaBackendPool pool = OllamaBackendPool.get();
+        LLMRequestScheduler scheduler = LLMRequestScheduler.get();
+
+        StringBuilder sb = new StringBuilder("LLM backends")
+                .append(pool.isAvailable() ? ":" : " (all unavailable - answering from keywords):")
+                .append("\n");
+        for (OllamaBackendPool.Backend backend : pool.getBackends()) {
+            CircuitBreaker breaker = backend.getBreaker();
+            sb.append(" - ").append(backend)
+                    .append(" ").append(breaker.getState());
+            if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                sb.append(" (retry in ").append(breaker.getSecondsUntilRetry()).append("s: ")
+                        .append(breaker.getLastReason()).append(")");
+            }
+            sb.append(", health ").append(backend.getStatus())
+                    .append(", ").append(backend.getOutstanding()).append(" in flight")
+                    .append(", ").append(backend.getRequestCount()).append(" requests")
+                    .append(", ").append(backend.getFailureCount()).append(" failed")
+                    .append(" (").append(breaker.getFailureRate()).append("% recently)")
+                    .append(", last ").append(backend.getLastLatencyMs()).append(" ms")
+                    .append("\n");
+        }
+        sb.append("Scheduler: ").append(scheduler.getInFlightCount()).append(" running, ")
+                .append(scheduler.getQueuedCount()).append(" queued, ")
+                .append(scheduler.getRejectedCount()).append(" rejected, ")
+                .append(String.format("%.0f", scheduler.getAverageQueueWaitMillis())).append(" ms average queue wait");
+        EmbeddingIntentRouter router = EmbeddingIntentRouter.get();
+        if (router != null) {
+            sb.append("\nIntent router: ").append(router.isReady() ? "ready" : "not ready").append(", ")
+                    .append(router.getRoutedCount()).append(" routed, ")
+                    .append(router.getPassedCount()).append(" passed to the LLM, ")
+                    .append(String.format("%.1f", router.getAverageRouteMillis())).append(" ms average");
+        }
+
+        source.sendSuccess(() -> Component.literal(sb.toString()), false);
+        return 1;
+    }
+
     private static int showHelp(CommandContext<CommandSourceStack> ctx) {
         CommandSourceStack source = ctx.getSource();
 
@@ -1,6 +1,7 @@
 package com.gblfxt.llmoblings.compat;
 
 import com.gblfxt.llmoblings.LLMoblings;
+import com.gblfxt.llmoblings.ai.CompanionProfiler;
 import com.gblfxt.llmoblings.entity.CompanionEntity;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.item.Item;
@@ -36,6 +37,15 @@ public class AE2Integration {
      * Prioritizes actual terminals over buses and interfaces.
      */
     public static List<BlockPos> findMEAccessPoints(Level level, BlockPos center, int radius) {
+        long start = CompanionProfiler.start();
+        try {
+            return scanMEAccessPoints(level, center, radius);
+        } finally {
+            CompanionProfiler.end(CompanionProfiler.Section.AE2, start);
+        }
+    }
+
+    private static List<BlockPos> scanMEAccessPoints(Level level, BlockPos center, int radius) {
         List<BlockPos> terminals = new ArrayList<>();
         List<BlockPos> otherAccess = new ArrayList<>();
 
@@ -175,6 +185,16 @@ public class AE2Integration {
      */
     public static List<ItemStack> extractItems(Level level, BlockPos accessPoint,
                                                 java.util.function.Predicate<ItemStack> filter, int maxCount) {
+        long start = CompanionProfiler.start();
+        try {
+            return extractFromNetwork(level, accessPoint, filter, maxCount);
+        } finally {
+            CompanionProfiler.end(CompanionProfiler.Section.AE2, start);
+        }
+    }
+
+    private static List<ItemStack> extractFromNetwork(Level level, BlockPos accessPoint,
+                                                      java.util.function.Predicate<ItemStack> filter, int maxCount) {
         List<ItemStack> extracted = new ArrayList<>();
 
         if (!isAE2Loaded()) {
@@ -221,6 +241,16 @@ public class AE2Integration {
      */
     public static List<ItemStack> queryAvailableItems(Level level, BlockPos accessPoint,
                                                        java.util.function.Predicate<ItemStack> filter) {
+        long start = CompanionProfiler.start();
+        try {
+            return queryNetwork(level, accessPoint, filter);
+        } finally {
+            CompanionProfiler.end(CompanionProfiler.Section.AE2, start);
+        }
+    }
+
+    private static List<ItemStack> queryNetwork(Level level, BlockPos accessPoint,
+                                                java.util.function.Predicate<ItemStack> filter) {
         List<ItemStack> available = new ArrayList<>();
 
         if (!isAE2Loaded()) {
@@ -528,6 +558,15 @@ public class AE2Integration {
      * Returns true if the crafting job was successfully submitted.
      */
     public static boolean requestCrafting(Level level, BlockPos accessPoint, Item item, int count) {
+        long start = CompanionProfiler.start();
+        try {
+            return submitCraftingJob(level, accessPoint, item, count);
+        } finally {
+            CompanionProfiler.end(CompanionProfiler.Section.AE2, start);
+        }
+    }
+
+    private static boolean submitCraftingJob(Level level, BlockPos accessPoint, Item item, int count) {
         if (!isAE2Loaded()) {
             return false;
         }
@@ -4,6 +4,9 @@ import com.gblfxt.llmoblings.ChunkLoadingManager;
 import com.gblfxt.llmoblings.Config;
 import com.gblfxt.llmoblings.LLMoblings;
 import com.gblfxt.llmoblings.ai.CompanionAI;
+import com.gblfxt.llmoblings.ai.CompanionProfiler;
+import com.gblfxt.llmoblings.ai.CompanionWorkScheduler;
+import com.gblfxt.llmoblings.ai.CompanionWorkScheduler.Priority;
 import com.gblfxt.llmoblings.compat.ArtifactsIntegration;
 import com.gblfxt.llmoblings.compat.JourneyMapIntegration;
 import net.minecraft.core.NonNullList;
@@ -107,6 +110,22 @@ public class CompanionEntity extends PathfinderMob implements Container {
 
     @Override
     public void tick() {
+        if (this.level().isClientSide) {
+            tickCompanion();
+            return;
+        }
+        // Timed as a whole, vanilla movement and pathfinding included, for /companion profile
+        CompanionProfiler.enter(this);
+        long tickStart = CompanionProfiler.start();
+        try {
+            tickCompanion();
+            CompanionProfiler.end(CompanionProfiler.Section.TICK, tickStart);
+        } finally {
+            CompanionProfiler.exit();
+        }
+    }
+
+    private void tickCompanion() {
         super.tick();
 
         if (!this.level().isClientSide) {
@@ -115,29 +134,39 @@ public class CompanionEntity extends PathfinderMob implements Container {
                 aiController.tick();
             }
 
-            // Item pickup
-            pickupItems();
+            // Item pickup - less often with nobody around
+            if (aiController == null || aiController.getLevelOfDetail().isDue()) {
+                long pickupStart = CompanionProfiler.start();
+                pickupItems();
+                CompanionProfiler.end(CompanionProfiler.Section.ITEM_PICKUP, pickupStart);
+            }
+
+            // Periodic upkeep goes through the work scheduler, which staggers it between companions
+            // and holds it over to the next tick when the tick's budget is used up
 
-            // Auto-eat when health is low (every 2 seconds)
-            if (this.tickCount % 40 == 0) {
-                tryEatFood();
+            // Auto-eat when health is low (every 2 seconds) - right away if something is hurting us
+            if (CompanionWorkScheduler.isDue(this, 40)) {
+                CompanionWorkScheduler.submit(this, this.getLastHurtByMob() != null ? Priority.COMBAT : Priority.NORMAL,
+                        "eat", this::tryEatFood);
             }
 
             // Auto-equip best items (every 3 seconds)
-            if (this.tickCount % 60 == 0) {
-                autoEquipBestItems();
+            if (CompanionWorkScheduler.isDue(this, 60)) {
+                CompanionWorkScheduler.submit(this, Priority.LOW, "equip", this::autoEquipBestItems);
             }
 
             // Check for flying artifacts (every second)
-            if (this.tickCount % 20 == 0) {
-                updateFlyingAbility();
+            if (CompanionWorkScheduler.isDue(this, 20)) {
+                CompanionWorkScheduler.submit(this, Priority.NORMAL, "fly", this::updateFlyingAbility);
             }
 
             // Start/update chunk loading
-            if (this.tickCount == 1) {
+            // A dormant companion holds no tickets until it wakes
+            boolean dormant = aiController != null && aiController.isDormant();
+            if (this.tickCount == 1 && !dormant) {
                 ChunkLoadingManager.startLoadingChunks(this);
-            } else if (this.tickCount % 100 == 0) {
-                ChunkLoadingManager.updateChunkLoading(this);
+            } else if (CompanionWorkScheduler.isDue(this, 100) && !dormant) {
+                CompanionWorkScheduler.submit(this, Priority.NORMAL, "chunks", () -> ChunkLoadingManager.updateChunkLoading(this));
             }
 
             // Portal cooldown to prevent spam
@@ -151,13 +180,17 @@ public class CompanionEntity extends PathfinderMob implements Container {
             }
 
             // Check for nearby boats periodically
-            if (this.tickCount % 40 == 0 && this.isInWater() && !this.isPassenger()) {
-                tryBoardNearbyBoat();
+            if (CompanionWorkScheduler.isDue(this, 40) && this.isInWater() && !this.isPassenger()) {
+                CompanionWorkScheduler.submit(this, Priority.LOW, "boat", () -> {
+                    if (this.isInWater() && !this.isPassenger()) {
+                        tryBoardNearbyBoat();
+                    }
+                });
             }
 
             // Update map marker every 2 seconds
-            if (this.tickCount % 40 == 0) {
-                JourneyMapIntegration.updateCompanionMarker(this);
+            if (CompanionWorkScheduler.isDue(this, 40)) {
+                CompanionWorkScheduler.submit(this, Priority.LOW, "map", () -> JourneyMapIntegration.updateCompanionMarker(this));
             }
         }
 
@@ -821,6 +854,19 @@ public class CompanionEntity extends PathfinderMob implements Container {
         // Save portal state
         tag.putBoolean("AllowPortalUse", allowPortalUse);
         tag.putInt("PortalCooldown", portalCooldown);
+
+        // Save conversation and any dormant task so they survive restarts and dismiss/summon
+        if (aiController != null) {
+            CompoundTag dormantTag = aiController.saveDormant();
+            if (dormantTag != null) {
+                tag.put("Dormant", dormantTag);
+            }
+
+            byte[] chatHistory = aiController.saveChatHistory();
+            if (chatHistory != null) {
+                tag.putByteArray("ChatHistory", chatHistory);
+            }
+        }
     }
 
     @Override
@@ -867,6 +913,12 @@ public class CompanionEntity extends PathfinderMob implements Container {
         if (!this.level().isClientSide && aiController == null) {
             aiController = new CompanionAI(this);
         }
+        if (aiController != null && tag.contains("ChatHistory")) {
+            aiController.loadChatHistory(tag.getByteArray("ChatHistory"));
+        }
+        if (aiController != null && tag.contains("Dormant")) {
+            aiController.loadDormant(tag.getCompound("Dormant"));
+        }
     }
 
     // Container implementation for inventory access
@@ -0,0 +1,349 @@
+package com.gblfxt.llmoblings.ai;
+
+/**
+ * The keyword fallback exactly as it was before the compiled matcher, kept as the reference the
+ * matcher is checked and timed against. Only the "defaulting to idle" log line is left out,
+ * so the timing loop measures parsing rather than logging.
+ */
+final class BaselineKeywordParser {
+
+    private BaselineKeywordParser() {}
+
+    /**
+     * Fallback parser that extracts action from plain text using keywords.
+     */
+    static CompanionAction parseFromKeywords(String text) {
+        String lower = text.toLowerCase();
+
+        // Check for action keywords
+        if (lower.contains("follow")) {
+            return new CompanionAction("follow", text);
+        }
+        if (lower.contains("explor") || lower.contains("look around") || lower.contains("wander")) {
+            return new CompanionAction("explore", text);
+        }
+        if (lower.contains("auto") || lower.contains("independent") || lower.contains("on my own")) {
+            return new CompanionAction("auto", text);
+        }
+        if (lower.contains("defend") || lower.contains("protect")) {
+            return new CompanionAction("defend", text);
+        }
+        if (lower.contains("attack") || lower.contains("fight") || lower.contains("kill")) {
+            return new CompanionAction("attack", text);
+        }
+        if (lower.contains("hunt") || lower.contains("food") || lower.contains("eat")) {
+            return new CompanionAction("auto", text);  // Auto mode handles hunting
+        }
+        if (lower.contains("gear") || lower.contains("equip") || lower.contains("armor") || lower.contains("weapon")) {
+            return new CompanionAction("auto", text);  // Auto mode handles equipping
+        }
+        if (lower.contains("stay") || lower.contains("stop") || lower.contains("wait")) {
+            return new CompanionAction("stay", text);
+        }
+        if (lower.contains("come") || lower.contains("here")) {
+            return new CompanionAction("come", text);
+        }
+        if (lower.contains("home")) {
+            return new CompanionAction("home", text);
+        }
+        if (lower.contains("scan")) {
+            return new CompanionAction("scan", text);
+        }
+        if (lower.contains("status") || lower.contains("health") || lower.contains("inventory")) {
+            return new CompanionAction("status", text);
+        }
+        if (lower.contains("tpaccept") || lower.contains("tp accept") || lower.contains("accept teleport") || lower.contains("accept tp")) {
+            return new CompanionAction("tpaccept", text);
+        }
+        if (lower.contains("tpdeny") || lower.contains("tp deny") || lower.contains("deny teleport") || lower.contains("deny tp")) {
+            return new CompanionAction("tpdeny", text);
+        }
+        if (lower.contains("tpa ") || lower.contains("teleport to ") || lower.contains("tp to ")) {
+            // Try to extract player name
+            String target = "";
+            if (lower.contains("tpa ")) {
+                int idx = lower.indexOf("tpa ") + 4;
+                target = text.substring(idx).trim().split("\\s+")[0];
+            } else if (lower.contains("teleport to ")) {
+                int idx = lower.indexOf("teleport to ") + 12;
+                target = text.substring(idx).trim().split("\\s+")[0];
+            } else if (lower.contains("tp to ")) {
+                int idx = lower.indexOf("tp to ") + 6;
+                target = text.substring(idx).trim().split("\\s+")[0];
+            }
+            CompanionAction action = new CompanionAction("tpa", text);
+            action.setParameter("target", target);
+            return action;
+        }
+
+        // Portal/dimension travel commands
+        if (lower.contains("portal") || lower.contains("nether") || lower.contains("the end") ||
+            lower.contains("dimension") || lower.contains("through the")) {
+            CompanionAction action = new CompanionAction("portal", text);
+            // Determine if they want to go through or just follow
+            if (lower.contains("go through") || lower.contains("enter") || lower.contains("use") ||
+                lower.contains("step through") || lower.contains("take the") || lower.contains("use the")) {
+                action.setParameter("action", "enter");
+            } else if (lower.contains("follow") || lower.contains("come with") || lower.contains("follow me")) {
+                action.setParameter("action", "follow");
+            } else if (lower.contains("stay") || lower.contains("wait") || lower.contains("don't")) {
+                action.setParameter("action", "stay");
+            } else {
+                // Default to enter if they mention portal
+                action.setParameter("action", "enter");
+            }
+            return action;
+        }
+
+        // ME network gear retrieval
+        if (lower.contains("get iron") || lower.contains("iron set") || lower.contains("iron gear") ||
+            lower.contains("iron armor") || lower.contains("craft iron")) {
+            CompanionAction action = new CompanionAction("getgear", text);
+            action.setParameter("material", "iron");
+            return action;
+        }
+        if (lower.contains("get diamond") || lower.contains("diamond set") || lower.contains("diamond gear") ||
+            lower.contains("diamond armor") || lower.contains("craft diamond")) {
+            CompanionAction action = new CompanionAction("getgear", text);
+            action.setParameter("material", "diamond");
+            return action;
+        }
+        if (lower.contains("get gear from me") || lower.contains("me network") || lower.contains("from ae2") ||
+            lower.contains("from terminal")) {
+            CompanionAction action = new CompanionAction("getgear", text);
+            action.setParameter("material", "iron");  // Default to iron
+            return action;
+        }
+
+        // Deposit items
+        if (lower.contains("deposit") || lower.contains("store") || lower.contains("stash") ||
+            lower.contains("put away") || lower.contains("put items") || lower.contains("empty inventory")) {
+            CompanionAction action = new CompanionAction("deposit", text);
+            // Check if they want to deposit everything including gear
+            if (lower.contains("everything") || lower.contains("all items") || lower.contains("including gear")) {
+                action.setParameter("keepGear", "false");
+            }
+            return action;
+        }
+
+        // Build structures
+        if (lower.contains("build") && (lower.contains("house") || lower.contains("cottage") ||
+            lower.contains("home") || lower.contains("shelter"))) {
+            CompanionAction action = new CompanionAction("build", text);
+            action.setParameter("structure", "cottage");
+
+            // Check for "here" keyword
+            if (lower.contains("here") || lower.contains("this spot") || lower.contains("right here")) {
+                action.setParameter("here", "true");
+            }
+
+            // Try to extract coordinates if present (pattern: "at X Y Z" or "X, Y, Z")
+            java.util.regex.Pattern coordPattern = java.util.regex.Pattern.compile(
+                "(?:at\\s+)?([-]?\\d+)[,\\s]+([-]?\\d+)[,\\s]+([-]?\\d+)");
+            java.util.regex.Matcher matcher = coordPattern.matcher(text);
+            if (matcher.find()) {
+                action.setParameter("x", matcher.group(1));
+                action.setParameter("y", matcher.group(2));
+                action.setParameter("z", matcher.group(3));
+            }
+            return action;
+        }
+
+        // Pokemon buddy commands
+        if (lower.contains("pokemon") || lower.contains("buddy") || lower.contains("poke")) {
+            CompanionAction action = new CompanionAction("pokemon", text);
+
+            if (lower.contains("release") || lower.contains("bye") || lower.contains("dismiss") ||
+                lower.contains("let go")) {
+                action.setParameter("subaction", "release");
+            } else if (lower.contains("status") || lower.contains("check") || lower.contains("how is")) {
+                action.setParameter("subaction", "status");
+            } else {
+                action.setParameter("subaction", "find");
+
+                // Try to extract Pokemon name
+                String[] pokemonKeywords = {"with", "bond with", "find", "get"};
+                for (String keyword : pokemonKeywords) {
+                    int idx = lower.indexOf(keyword);
+                    if (idx >= 0) {
+                        String afterKeyword = text.substring(idx + keyword.length()).trim();
+                        String[] words = afterKeyword.split("\\s+");
+                        if (words.length > 0 && !words[0].isEmpty()) {
+                            // Capitalize first letter
+                            String pokeName = words[0].substring(0, 1).toUpperCase() + words[0].substring(1).toLowerCase();
+                            action.setParameter("name", pokeName);
+                            break;
+                        }
+                    }
+                }
+            }
+            return action;
+        }
+
+        // Building Gadgets commands
+        if (lower.contains("gadget")) {
+            CompanionAction action = new CompanionAction("gadget", text);
+
+            // Determine subaction
+            if (lower.contains("equip") || lower.contains("hold")) {
+                action.setParameter("subaction", "equip");
+            } else if (lower.contains("set block") || lower.contains("setblock") ||
+                       (lower.contains("set") && lower.contains("to"))) {
+                action.setParameter("subaction", "setblock");
+                // Try to extract block name
+                String[] blockKeywords = {"to ", "block ", "with "};
+                for (String keyword : blockKeywords) {
+                    int idx = lower.indexOf(keyword);
+                    if (idx >= 0) {
+                        String afterKeyword = text.substring(idx + keyword.length()).trim();
+                        String[] words = afterKeyword.split("\\s+");
+                        if (words.length > 0 && !words[0].isEmpty()) {
+                            action.setParameter("block", words[0].toLowerCase().replace(" ", "_"));
+                            break;
+                        }
+                    }
+                }
+            } else if (lower.contains("range")) {
+                action.setParameter("subaction", "setrange");
+                // Try to extract range number
+                java.util.regex.Matcher rangeMatcher = java.util.regex.Pattern.compile("\\d+").matcher(text);
+                if (rangeMatcher.find()) {
+                    action.setParameter("range", rangeMatcher.group());
+                }
+            } else if (lower.contains("config") || lower.contains("setup")) {
+                action.setParameter("subaction", "configure");
+                // Try to extract block and range
+                java.util.regex.Matcher rangeMatcher = java.util.regex.Pattern.compile("\\d+").matcher(text);
+                if (rangeMatcher.find()) {
+                    action.setParameter("range", rangeMatcher.group());
+                }
+                // Common block names
+                String[] blocks = {"stone", "cobblestone", "oak_planks", "spruce_planks", "birch_planks",
+                                   "brick", "glass", "dirt", "sand", "gravel", "iron_block", "gold_block"};
+                for (String block : blocks) {
+                    if (lower.contains(block.replace("_", " ")) || lower.contains(block)) {
+                        action.setParameter("block", block);
+                        break;
+                    }
+                }
+            } else if (lower.contains("use") || lower.contains("build") || lower.contains("place")) {
+                action.setParameter("subaction", "build");
+            } else {
+                action.setParameter("subaction", "info");
+            }
+            return action;
+        }
+
+        // Sophisticated Backpacks commands
+        if (lower.contains("backpack") || lower.contains("pack") && !lower.contains("modpack")) {
+            CompanionAction action = new CompanionAction("backpack", text);
+
+            // Determine subaction
+            if (lower.contains("store") || lower.contains("stash") || lower.contains("put in")) {
+                if (lower.contains("all") || lower.contains("everything")) {
+                    action.setParameter("subaction", "storeall");
+                } else {
+                    action.setParameter("subaction", "store");
+                    // Try to extract item name
+                    String[] storeKeywords = {"store ", "stash ", "put "};
+                    for (String keyword : storeKeywords) {
+                        int idx = lower.indexOf(keyword);
+                        if (idx >= 0) {
+                            String afterKeyword = text.substring(idx + keyword.length()).trim();
+                            // Remove "in backpack" etc
+                            afterKeyword = afterKeyword.replaceAll("\\s*(in|into|to)\\s*(my\\s+)?backpack.*", "").trim();
+                            if (!afterKeyword.isEmpty()) {
+                                String[] words = afterKeyword.split("\\s+");
+                                if (words.length > 0) {
+                                    action.setParameter("item", words[0].toLowerCase().replace(" ", "_"));
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            } else if (lower.contains("get") || lower.contains("take") || lower.contains("retrieve") ||
+                       lower.contains("grab")) {
+                action.setParameter("subaction", "get");
+                // Try to extract item name and count
+                String[] getKeywords = {"get ", "take ", "retrieve ", "grab "};
+                for (String keyword : getKeywords) {
+                    int idx = lower.indexOf(keyword);
+                    if (idx >= 0) {
+                        String afterKeyword = text.substring(idx + keyword.length()).trim();
+                        afterKeyword = afterKeyword.replaceAll("\\s*(from|out of)\\s*(my\\s+)?backpack.*", "").trim();
+                        if (!afterKeyword.isEmpty()) {
+                            // Try to extract count
+                            java.util.regex.Matcher countMatcher = java.util.regex.Pattern.compile("(\\d+)").matcher(afterKeyword);
+                            if (countMatcher.find()) {
+                                action.setParameter("count", countMatcher.group(1));
+                                afterKeyword = afterKeyword.replaceFirst("\\d+\\s*", "").trim();
+                            }
+                            String[] words = afterKeyword.split("\\s+");
+                            if (words.length > 0 && !words[0].isEmpty()) {
+                                action.setParameter("item", words[0].toLowerCase().replace(" ", "_"));
+                                break;
+                            }
+                        }
+                    }
+                }
+            } else if (lower.contains("list") || lower.contains("contents") || lower.contains("what's in") ||
+                       lower.contains("show me")) {
+                action.setParameter("subaction", "list");
+            } else if (lower.contains("organize") || lower.contains("sort")) {
+                action.setParameter("subaction", "organize");
+            } else {
+                action.setParameter("subaction", "info");
+            }
+            return action;
+        }
+
+        // Elevator commands
+        if (lower.contains("elevator") || lower.contains("lift") ||
+            (lower.contains("go") && (lower.contains("up") || lower.contains("down")) && lower.contains("floor"))) {
+            CompanionAction action = new CompanionAction("elevator", text);
+            if (lower.contains("up") || lower.contains("ascend") || lower.contains("higher")) {
+                action.setParameter("direction", "up");
+            } else if (lower.contains("down") || lower.contains("descend") || lower.contains("lower")) {
+                action.setParameter("direction", "down");
+            } else {
+                action.setParameter("direction", "up"); // Default to up
+            }
+            return action;
+        }
+
+        // Pokemon stats commands (Cobblemon)
+        if (lower.contains("cobblestats") || lower.contains("pokemon stats") ||
+            lower.contains("check pokemon") || lower.contains("pokemon ivs") ||
+            lower.contains("pokemon evs") || lower.contains("mon stats") ||
+            (lower.contains("stats") && (lower.contains("pokemon") || lower.contains("cobble")))) {
+            CompanionAction action = new CompanionAction("cobblestats", text);
+
+            // Check if they want brief or full stats
+            if (lower.contains("brief") || lower.contains("quick") || lower.contains("short")) {
+                action.setParameter("detail", "brief");
+            } else if (lower.contains("full") || lower.contains("detailed") || lower.contains("all")) {
+                action.setParameter("detail", "full");
+            } else {
+                action.setParameter("detail", "full"); // Default to full
+            }
+
+            // Check if they specified a Pokemon name
+            String[] words = text.split("\\s+");
+            for (int i = 0; i < words.length; i++) {
+                String word = words[i].toLowerCase();
+                if (word.equals("on") || word.equals("for") || word.equals("of")) {
+                    if (i + 1 < words.length) {
+                        action.setParameter("target", words[i + 1]);
+                        break;
+                    }
+                }
+            }
+
+            return action;
+        }
+
+        // Default to idle with the response as message
+        return new CompanionAction("idle", text);
+    }
+}
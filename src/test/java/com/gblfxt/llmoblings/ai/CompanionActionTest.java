@@ -0,0 +1,24 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompanionActionTest {
+
+    @Test
+    void sameCommandComparesParametersButNotMessages() {
+        CompanionAction early = parse("{\"action\":\"mine\",\"block\":\"iron_ore\",\"count\":20}");
+
+        assertTrue(early.sameCommandAs(parse("{\"action\":\"MINE\",\"block\":\"iron_ore\",\"count\":20,\"message\":\"On it!\"}")));
+        assertFalse(early.sameCommandAs(parse("{\"action\":\"mine\",\"block\":\"iron_ore\",\"count\":10}")));
+        assertFalse(early.sameCommandAs(parse("{\"action\":\"mine\",\"block\":\"gold_ore\",\"count\":20}")));
+        assertFalse(early.sameCommandAs(parse("{\"action\":\"mine\",\"block\":\"iron_ore\"}")));
+    }
+
+    private static CompanionAction parse(String json) {
+        return CompanionAction.fromJson(JsonParser.parseString(json).getAsJsonObject());
+    }
+}
@@ -0,0 +1,30 @@
+package com.gblfxt.llmoblings.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CompanionInboxTest {
+
+    @Test
+    void followUpsMergeIntoOneSentenceRun() {
+        CompanionInbox inbox = new CompanionInbox();
+        inbox.add("mine iron", null, 0, 12);
+        inbox.add("actually gold", null, 2, 12);
+        inbox.add("like 20?", null, 4, 12);
+        inbox.add("thanks", null, 6, 12);
+
+        assertNull(inbox.poll(17));
+        assertEquals("mine iron. actually gold. like 20? thanks", inbox.poll(18).message());
+    }
+
+    @Test
+    void requeuedMessageGoesInFront() {
+        CompanionInbox inbox = new CompanionInbox();
+        inbox.add("make it gold", null, 0, 12);
+        inbox.requeue("mine iron", null, 0, 12);
+
+        assertEquals("mine iron. make it gold", inbox.poll(12).message());
+    }
+}
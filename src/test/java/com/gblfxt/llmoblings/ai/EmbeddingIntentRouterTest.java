@@ -0,0 +1,94 @@
+package com.gblfxt.llmoblings.ai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The intent router against {@link MockOllamaServer}'s bag-of-words embeddings.
+ */
+class EmbeddingIntentRouterTest {
+
+    private static final Path COMPANION_AI = Path.of("src/main/java/com/gblfxt/llmoblings/ai/CompanionAI.java");
+    private static final Pattern CASE_LABELS = Pattern.compile("case ((?:\"[a-z ]+\"(?:, )?)+) ->");
+    private static final Pattern LABEL = Pattern.compile("\"([a-z ]+)\"");
+
+    private MockOllamaServer server;
+    private OllamaBackendPool pool;
+    private EmbeddingIntentRouter router;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = MockOllamaServer.start(new MockOllamaServer.Settings(0, 1000, 0));
+        pool = new OllamaBackendPool(List.of(
+                new OllamaBackendPool.Backend("127.0.0.1", server.getPort(), MockOllamaServer.MODEL)));
+        router = new EmbeddingIntentRouter(pool, MockOllamaServer.EMBED_MODEL);
+        router.build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void routesAPlainRewordedCommand() throws Exception {
+        EmbeddingIntentRouter.Route route = router.route("could you grab 40 timber");
+        assertNotNull(route);
+        assertEquals("mine", route.action().getAction());
+        assertEquals(40, route.action().getInt("count", 0));
+        assertNotNull(route.action().getMessage(), "routed actions say what they understood");
+    }
+
+    @Test
+    void leavesNegatedConditionalAndMultiPartMessagesToTheLLM() throws Exception {
+        assertNull(router.route("don't follow me"));
+        assertNull(router.route("do not attack the cows"));
+        assertNull(router.route("follow me if it gets dark"));
+        assertNull(router.route("get some wood and then come back"));
+        assertNull(router.route("get some wood, come back"));
+    }
+
+    @Test
+    void singleCommandCheck() {
+        assertTrue(EmbeddingIntentRouter.isSingleCommand("grab some timber", "grab some timber"));
+        assertFalse(EmbeddingIntentRouter.isSingleCommand("stop following me", "stop following me"));
+        assertFalse(EmbeddingIntentRouter.isSingleCommand("mine iron. actually gold", "mine iron actually gold"));
+    }
+
+    @Test
+    void everyCatalogueActionIsPerformed() throws Exception {
+        // The action names performAction's switch handles, read from its source
+        String source = Files.readString(COMPANION_AI);
+        int start = source.indexOf("private void performAction(");
+        String body = source.substring(start, source.indexOf("default ->", start));
+        Set<String> handled = new HashSet<>();
+        Matcher cases = CASE_LABELS.matcher(body);
+        while (cases.find()) {
+            Matcher label = LABEL.matcher(cases.group(1));
+            while (label.find()) {
+                handled.add(label.group(1));
+            }
+        }
+        assertTrue(handled.contains("follow"), "found performAction's cases");
+
+        for (String action : EmbeddingIntentRouter.catalogueActions()) {
+            assertTrue(handled.contains(action), "performAction has no case for routed action " + action);
+        }
+    }
+}
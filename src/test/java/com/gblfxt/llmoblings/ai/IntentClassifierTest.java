@@ -0,0 +1,58 @@
+package com.gblfxt.llmoblings.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IntentClassifierTest {
+
+    @Test
+    void bareStopAndCancelAreUrgent() {
+        assertUrgent("stay", "stop");
+        assertUrgent("stay", "STOP!");
+        assertUrgent("stay", "Bob, stop");
+        assertUrgent("stay", "stop it bob please");
+        assertUrgent("idle", "never mind");
+        assertUrgent("idle", "cancel that");
+        assertUrgent("idle", "ok forget it");
+        assertUrgent("come", "come here");
+    }
+
+    @Test
+    void longerMessagesMentioningStopAreNotUrgent() {
+        assertNull(IntentClassifier.urgentAction("don't stop mining", "Bob"));
+        assertNull(IntentClassifier.urgentAction("mine until bedrock then stop", "Bob"));
+        assertNull(IntentClassifier.urgentAction("cancel that order and mine gold instead", "Bob"));
+        assertNull(IntentClassifier.urgentAction("never mind the iron, get gold", "Bob"));
+    }
+
+    @Test
+    void attackTargetsMustBeMobs() {
+        assertNull(IntentClassifier.classify("kill me"));
+        assertNull(IntentClassifier.classify("fight me"));
+        assertNull(IntentClassifier.classify("kill time"));
+
+        CompanionAction zombies = IntentClassifier.classify("kill the zombies").action();
+        assertEquals("attack", zombies.getAction());
+        assertEquals("zombie", zombies.getString("target", null));
+        assertEquals("hostile", IntentClassifier.classify("attack").action().getString("target", null));
+    }
+
+    @Test
+    void mineTargetsMustBeBlocks() {
+        assertNull(IntentClassifier.classify("collect your stuff"));
+
+        CompanionAction iron = IntentClassifier.classify("mine 10 iron").action();
+        assertEquals("mine", iron.getAction());
+        assertEquals("iron", iron.getString("block", null));
+        assertEquals(10, iron.getInt("count", 0));
+    }
+
+    private static void assertUrgent(String expected, String message) {
+        CompanionAction action = IntentClassifier.urgentAction(message, "Bob");
+        assertNotNull(action, message);
+        assertEquals(expected, action.getAction(), message);
+    }
+}
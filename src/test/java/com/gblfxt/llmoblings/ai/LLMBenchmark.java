@@ -0,0 +1,209 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Load test for the LLM chat path, run by {@link LLMBenchmarkTest}.
+ * Simulated companions send chat lines from {@link ParserBenchmarkTest#CORPUS} at a steady rate through
+ * real {@link OllamaClient}s, talking to a {@link MockOllamaServer} through their own backend pool and
+ * scheduler (sized like the real ones), so the live server's LLM traffic is not disturbed.
+ * Reports reply latency, time to the first streamed action, throughput, queue wait and how many
+ * replies had to fall back to the keyword parser or an apology.
+ * Also times the compiled keyword matcher against the baseline contains() parser; run {@link #main}
+ * for that, it needs no server.
+ */
+public class LLMBenchmark {
+
+    // Scheduling resolution, one server tick
+    private static final long STEP_MILLIS = 50;
+    private static final int PARSER_ITERATIONS = 2000;
+
+    // Keeps the JIT from discarding the parse results
+    private static volatile int blackhole;
+
+    /**
+     * @param companions        simulated companions, each with its own client and player
+     * @param messagesPerSecond messages each companion sends per second
+     * @param seconds           how long to keep sending
+     */
+    public record Settings(int companions, double messagesPerSecond, int seconds, MockOllamaServer.Settings server) {}
+
+    public record Result(int sent, int completed, int fallbacks, long rejected, long unfinished, double seconds,
+                         long p50Millis, long p95Millis, long p99Millis, long maxMillis,
+                         long firstActionP50Millis, long firstActionP95Millis, double queueWaitMillis) {
+        /**
+         * Replies per second that actually came from the model.
+         */
+        public double throughput() {
+            return seconds > 0 ? (completed - fallbacks) / seconds : 0;
+        }
+
+        public double fallbackRate() {
+            return completed > 0 ? (double) fallbacks / completed : 0;
+        }
+    }
+
+    /**
+     * Average time per chat line for each keyword parser, in nanoseconds.
+     */
+    public record ParserTiming(int lines, int iterations, double baselineNanos, double matcherNanos) {
+        public double speedup() {
+            return matcherNanos > 0 ? baselineNanos / matcherNanos : 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        ParserTiming timing = timeParsers(PARSER_ITERATIONS);
+        System.out.printf("Keyword parser over %d lines x %d: contains() %.0f ns/msg, compiled matcher %.0f ns/msg (%.1fx)%n",
+                timing.lines(), timing.iterations(), timing.baselineNanos(), timing.matcherNanos(), timing.speedup());
+    }
+
+    /**
+     * Time both keyword parsers over the chat corpus, after a warm-up so the JIT has compiled them.
+     */
+    public static ParserTiming timeParsers(int iterations) {
+        timeParser(BaselineKeywordParser::parseFromKeywords, iterations / 5);
+        timeParser(ParserBenchmarkTest::parseWithMatcher, iterations / 5);
+
+        double parses = (double) iterations * ParserBenchmarkTest.CORPUS.length;
+        double baselineNanos = timeParser(BaselineKeywordParser::parseFromKeywords, iterations) / parses;
+        double matcherNanos = timeParser(ParserBenchmarkTest::parseWithMatcher, iterations) / parses;
+        return new ParserTiming(ParserBenchmarkTest.CORPUS.length, iterations, baselineNanos, matcherNanos);
+    }
+
+    private static long timeParser(Function<String, CompanionAction> parser, int iterations) {
+        long start = System.nanoTime();
+        int hash = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (String line : ParserBenchmarkTest.CORPUS) {
+                hash += parser.apply(line).getAction().length();
+            }
+        }
+        blackhole = hash;
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Run the load test. Blocks for the test duration plus however long the last replies take.
+     */
+    public static Result run(Settings settings) throws IOException, InterruptedException {
+        try (MockOllamaServer server = MockOllamaServer.start(settings.server())) {
+            OllamaBackendPool pool = new OllamaBackendPool(List.of(
+                    new OllamaBackendPool.Backend("127.0.0.1", server.getPort(), MockOllamaServer.MODEL)));
+            LLMRequestScheduler scheduler = new LLMRequestScheduler(Config.LLM_MAX_IN_FLIGHT.get(),
+                    Config.LLM_MAX_QUEUED.get(), Config.LLM_MAX_QUEUED_PER_PLAYER.get());
+            try {
+                return drive(settings, pool, scheduler);
+            } finally {
+                scheduler.close();
+                pool.close();
+            }
+        }
+    }
+
+    private static Result drive(Settings settings, OllamaBackendPool pool, LLMRequestScheduler scheduler)
+            throws InterruptedException {
+        int companions = settings.companions();
+        OllamaClient[] clients = new OllamaClient[companions];
+        UUID[] players = new UUID[companions];
+        long[] nextSend = new long[companions];
+        long interval = (long) (1_000_000_000L / settings.messagesPerSecond());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < companions; i++) {
+            String name = "Bench" + (i + 1);
+            clients[i] = new OllamaClient(() -> name, pool, scheduler);
+            players[i] = UUID.randomUUID();
+            // Spread the first messages over one interval so they don't all land on the same tick
+            nextSend[i] = start + random.nextLong(interval);
+        }
+
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Queue<Long> firstActions = new ConcurrentLinkedQueue<>();
+        AtomicInteger fallbacks = new AtomicInteger();
+        List<CompletableFuture<Void>> replies = new ArrayList<>();
+
+        long end = start + settings.seconds() * 1_000_000_000L;
+        int line = 0;
+        while (System.nanoTime() < end) {
+            long now = System.nanoTime();
+            for (int i = 0; i < companions; i++) {
+                while (nextSend[i] <= now) {
+                    nextSend[i] += interval;
+                    String message = ParserBenchmarkTest.CORPUS[line++ % ParserBenchmarkTest.CORPUS.length];
+                    long sentAt = System.nanoTime();
+                    AtomicBoolean acted = new AtomicBoolean(false);
+                    CompletableFuture<CompanionAction> reply = clients[i].chat(message,
+                            LLMRequestScheduler.Priority.OWNER_COMMAND, players[i], action -> {
+                                if (acted.compareAndSet(false, true)) {
+                                    firstActions.add(System.nanoTime() - sentAt);
+                                }
+                            });
+                    // Track the recording step itself, so every reply is counted before the results are read
+                    replies.add(reply.thenAccept(action -> {
+                        latencies.add(System.nanoTime() - sentAt);
+                        String text = action.getMessage();
+                        if (text == null || !text.startsWith(MockOllamaServer.MESSAGE_PREFIX)) {
+                            fallbacks.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+            Thread.sleep(STEP_MILLIS);
+        }
+
+        // Let the stragglers finish, but not forever
+        long unfinished = 0;
+        try {
+            CompletableFuture.allOf(replies.toArray(new CompletableFuture[0]))
+                    .get(Config.OLLAMA_TIMEOUT.get() + 5L, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            unfinished = replies.stream().filter(reply -> !reply.isDone()).count();
+        } catch (Exception e) {
+            // Individual failures are already turned into fallback replies
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = sortedMillis(latencies);
+        long[] sortedFirst = sortedMillis(firstActions);
+        return new Result(replies.size(), sorted.length, fallbacks.get(), scheduler.getRejectedCount(), unfinished,
+                seconds, percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length > 0 ? sorted[sorted.length - 1] : 0,
+                percentile(sortedFirst, 0.50), percentile(sortedFirst, 0.95), scheduler.getAverageQueueWaitMillis());
+    }
+
+    private static long[] sortedMillis(Queue<Long> nanos) {
+        long[] values = new long[nanos.size()];
+        int i = 0;
+        for (long value : nanos) {
+            if (i == values.length) break;
+            values[i++] = value / 1_000_000;
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,37 @@
+package com.gblfxt.llmoblings.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the chat path against {@link MockOllamaServer}: every message must get a reply, whether the
+ * backend is healthy or failing, and a healthy backend must answer from the model every time.
+ */
+class LLMBenchmarkTest {
+
+    // Fast enough to keep the test short, slow enough that requests overlap and queue
+    private static final MockOllamaServer.Settings HEALTHY = new MockOllamaServer.Settings(50, 400, 0);
+    private static final MockOllamaServer.Settings FLAKY = new MockOllamaServer.Settings(50, 400, 0.3);
+
+    @Test
+    void healthyBackendAnswersEveryMessage() throws Exception {
+        LLMBenchmark.Result result = LLMBenchmark.run(new LLMBenchmark.Settings(5, 2, 3, HEALTHY));
+
+        assertTrue(result.sent() > 0, "messages were sent: " + result);
+        assertEquals(result.sent(), result.completed(), "every message gets a reply: " + result);
+        assertEquals(0, result.unfinished(), "nothing left waiting: " + result);
+        assertEquals(0, result.rejected(), "nothing rejected: " + result);
+        assertEquals(0, result.fallbacks(), "a healthy backend never needs the fallback: " + result);
+    }
+
+    @Test
+    void failingBackendStillRepliesToEveryone() throws Exception {
+        LLMBenchmark.Result result = LLMBenchmark.run(new LLMBenchmark.Settings(5, 2, 3, FLAKY));
+
+        assertEquals(result.sent(), result.completed(), "failures turn into fallback replies, not silence: " + result);
+        assertEquals(0, result.unfinished(), "nothing left waiting: " + result);
+        assertTrue(result.fallbacks() > 0, "some replies came from the fallback: " + result);
+    }
+}
@@ -0,0 +1,113 @@
+package com.gblfxt.llmoblings.ai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LLMRequestSchedulerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private LLMRequestScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void closingFailsQueuedFutures() throws Exception {
+        scheduler = new LLMRequestScheduler(1, 10, 10);
+        occupyWorker();
+
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queued.add(scheduler.submit(null, LLMRequestScheduler.Priority.BACKGROUND, () -> "ran"));
+        }
+
+        assertEquals(3, scheduler.close());
+        for (CompletableFuture<String> future : queued) {
+            assertThrows(CancellationException.class, () -> future.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void cancellingQueuedJobsFreesTheirSlots() throws Exception {
+        scheduler = new LLMRequestScheduler(1, 2, 2);
+        occupyWorker();
+
+        UUID player = UUID.randomUUID();
+        for (int round = 0; round < 3; round++) {
+            CompletableFuture<String> first = scheduler.submit(player, LLMRequestScheduler.Priority.OWNER_COMMAND, () -> "ran");
+            CompletableFuture<String> second = scheduler.submit(player, LLMRequestScheduler.Priority.OWNER_COMMAND, () -> "ran");
+            assertFalse(first.isCompletedExceptionally(), "queue had room in round " + round);
+            assertFalse(second.isCompletedExceptionally(), "player had room in round " + round);
+
+            first.cancel(true);
+            second.cancel(true);
+            assertEquals(0, scheduler.getQueuedCount());
+        }
+    }
+
+    @Test
+    void queueBoundHoldsUnderConcurrentSubmits() throws Exception {
+        scheduler = new LLMRequestScheduler(1, 5, 100);
+        occupyWorker();
+
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            submitters.add(Thread.ofPlatform().start(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10; i++) {
+                    CompletableFuture<String> future = scheduler.submit(null, LLMRequestScheduler.Priority.BACKGROUND, () -> "ran");
+                    if (!future.isCompletedExceptionally()) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        go.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        assertEquals(5, accepted.get());
+        assertEquals(5, scheduler.getQueuedCount());
+    }
+
+    // Hold the only worker so everything submitted after this waits in the queue
+    private void occupyWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(null, LLMRequestScheduler.Priority.OWNER_COMMAND, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "held";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,299 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.gblfxt.llmoblings.LLMoblings;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stand-in for Ollama on a local port, for testing the chat path without a GPU.
+ * Speaks just enough of /api/chat, /api/generate, /api/embed and /api/tags for {@link OllamaClient},
+ * {@link EmbeddingIntentRouter} and the health checks: replies are valid action JSON, streamed as
+ * NDJSON at a set token rate after a set prompt latency, and embeddings are hashed bags of words and
+ * letter trigrams, so texts sharing words come out similar. A share of requests can be made to fail, either with an HTTP 500 or by dropping
+ * the connection halfway through the reply.
+ */
+public class MockOllamaServer implements AutoCloseable {
+    private static final Gson GSON = new Gson();
+
+    public static final String MODEL = "mock:latest";
+    public static final String EMBED_MODEL = "mock-embed:latest";
+    // Every generated reply starts with this, so callers can tell real answers from fallbacks
+    public static final String MESSAGE_PREFIX = "(mock) ";
+
+    // Characters per streamed token, roughly what a real tokenizer produces for English
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int EMBED_DIMENSIONS = 256;
+
+    /**
+     * @param latencyMillis   delay before the first token (prompt evaluation)
+     * @param tokensPerSecond generation speed
+     * @param failureRate     share of chat/generate requests that fail, 0 to 1
+     */
+    public record Settings(long latencyMillis, double tokensPerSecond, double failureRate) {}
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Settings settings;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private MockOllamaServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/tags", this::handleTags);
+        server.createContext("/api/chat", exchange -> handleGenerate(exchange, true));
+        server.createContext("/api/generate", exchange -> handleGenerate(exchange, false));
+        server.createContext("/api/embed", this::handleEmbed);
+    }
+
+    /**
+     * Start a server on a free loopback port.
+     */
+    public static MockOllamaServer start(Settings settings) throws IOException {
+        MockOllamaServer mock = new MockOllamaServer(settings);
+        mock.server.start();
+        LLMoblings.LOGGER.debug("Mock Ollama server listening on port {}", mock.getPort());
+        return mock;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleTags(HttpExchange exchange) throws IOException {
+        JsonArray models = new JsonArray();
+        for (String name : List.of(MODEL, EMBED_MODEL)) {
+            JsonObject model = new JsonObject();
+            model.addProperty("name", name);
+            models.add(model);
+        }
+        JsonObject body = new JsonObject();
+        body.add("models", models);
+        respond(exchange, 200, GSON.toJson(body));
+    }
+
+    private void handleGenerate(HttpExchange exchange, boolean chat) throws IOException {
+        requests.incrementAndGet();
+        JsonObject request;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = GSON.fromJson(reader, JsonObject.class);
+        }
+        boolean stream = !request.has("stream") || request.get("stream").getAsBoolean();
+
+        String lastUserText = chat ? lastUserMessage(request) : request.get("prompt").getAsString();
+        int promptTokens = promptTokens(request, chat);
+        List<String> pieces = split(reply(lastUserText));
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean fail = random.nextDouble() < settings.failureRate();
+        boolean drop = fail && random.nextBoolean();
+        try {
+            Thread.sleep(settings.latencyMillis());
+            if (fail && !drop) {
+                failures.incrementAndGet();
+                respond(exchange, 500, "{\"error\":\"injected failure\"}");
+                return;
+            }
+
+            long tokenNanos = (long) (1_000_000_000L / Math.max(0.1, settings.tokensPerSecond()));
+            if (stream) {
+                exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (int i = 0; i < pieces.size(); i++) {
+                    if (drop && i == pieces.size() / 2) {
+                        // Cut the connection without a final chunk, like a crashed server
+                        failures.incrementAndGet();
+                        exchange.close();
+                        return;
+                    }
+                    Thread.sleep(tokenNanos / 1_000_000, (int) (tokenNanos % 1_000_000));
+                    out.write((GSON.toJson(chunk(chat, pieces.get(i))) + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                JsonObject done = finalChunk(request, chat, "", promptTokens, pieces.size(), tokenNanos);
+                out.write((GSON.toJson(done) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.close();
+            } else {
+                Thread.sleep(tokenNanos * pieces.size() / 1_000_000);
+                if (drop) {
+                    failures.incrementAndGet();
+                    exchange.close();
+                    return;
+                }
+                JsonObject done = finalChunk(request, chat, String.join("", pieces), promptTokens, pieces.size(), tokenNanos);
+                respond(exchange, 200, GSON.toJson(done));
+            }
+        } catch (InterruptedException e) {
+            exchange.close();
+        }
+    }
+
+    private void handleEmbed(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonObject request;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = GSON.fromJson(reader, JsonObject.class);
+        }
+        JsonElement input = request.get("input");
+        List<String> texts = new ArrayList<>();
+        if (input.isJsonArray()) {
+            input.getAsJsonArray().forEach(element -> texts.add(element.getAsString()));
+        } else {
+            texts.add(input.getAsString());
+        }
+
+        JsonArray embeddings = new JsonArray();
+        for (String text : texts) {
+            JsonArray vector = new JsonArray();
+            for (float value : embed(text)) {
+                vector.add(value);
+            }
+            embeddings.add(vector);
+        }
+        JsonObject body = new JsonObject();
+        body.addProperty("model", EMBED_MODEL);
+        body.add("embeddings", embeddings);
+        respond(exchange, 200, GSON.toJson(body));
+    }
+
+    /**
+     * Feature hashing: each word, and more weakly each of its letter trigrams, adds to one dimension.
+     */
+    static float[] embed(String text) {
+        float[] vector = new float[EMBED_DIMENSIONS];
+        for (String word : IntentClassifier.normalize(text).split(" ")) {
+            if (word.isEmpty()) continue;
+            vector[Math.floorMod(word.hashCode(), EMBED_DIMENSIONS)] += 1f;
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                vector[Math.floorMod(padded.substring(i, i + 3).hashCode() * 31 + 7, EMBED_DIMENSIONS)] += 0.3f;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Answer like a model that followed the system prompt: the keyword parser's action, plus a message.
+     */
+    private static String reply(String userText) {
+        JsonObject json = IntentClassifier.parseFromKeywords(userText).toJson();
+        String summary = userText.length() > 40 ? userText.substring(0, 40) + "..." : userText;
+        json.addProperty("message", MESSAGE_PREFIX + "Got it, you said \"" + summary + "\". On it!");
+        return GSON.toJson(json);
+    }
+
+    private static List<String> split(String text) {
+        List<String> pieces = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += CHARS_PER_TOKEN) {
+            pieces.add(text.substring(i, Math.min(text.length(), i + CHARS_PER_TOKEN)));
+        }
+        return pieces;
+    }
+
+    private static String lastUserMessage(JsonObject request) {
+        String text = "";
+        for (JsonElement element : request.getAsJsonArray("messages")) {
+            JsonObject message = element.getAsJsonObject();
+            if (message.get("role").getAsString().equals("user")) {
+                text = message.get("content").getAsString();
+            }
+        }
+        return text;
+    }
+
+    private static int promptTokens(JsonObject request, boolean chat) {
+        int tokens = 0;
+        if (chat) {
+            for (JsonElement element : request.getAsJsonArray("messages")) {
+                tokens += TokenEstimator.estimateRaw(element.getAsJsonObject().get("content").getAsString())
+                        + TokenEstimator.MESSAGE_OVERHEAD;
+            }
+        } else {
+            if (request.has("system")) {
+                tokens += TokenEstimator.estimateRaw(request.get("system").getAsString()) + TokenEstimator.MESSAGE_OVERHEAD;
+            }
+            tokens += TokenEstimator.estimateRaw(request.get("prompt").getAsString()) + TokenEstimator.MESSAGE_OVERHEAD;
+        }
+        return tokens;
+    }
+
+    private static JsonObject chunk(boolean chat, String piece) {
+        JsonObject chunk = new JsonObject();
+        chunk.addProperty("model", MODEL);
+        if (chat) {
+            JsonObject message = new JsonObject();
+            message.addProperty("role", "assistant");
+            message.addProperty("content", piece);
+            chunk.add("message", message);
+        } else {
+            chunk.addProperty("response", piece);
+        }
+        chunk.addProperty("done", false);
+        return chunk;
+    }
+
+    private JsonObject finalChunk(JsonObject request, boolean chat, String content, int promptTokens,
+                                  int evalTokens, long tokenNanos) {
+        JsonObject done = chunk(chat, content);
+        done.addProperty("done", true);
+        done.addProperty("prompt_eval_count", promptTokens);
+        done.addProperty("eval_count", evalTokens);
+        done.addProperty("load_duration", 0);
+        done.addProperty("prompt_eval_duration", settings.latencyMillis() * 1_000_000L);
+        done.addProperty("eval_duration", tokenNanos * evalTokens);
+        if (!chat) {
+            // A context as long as a real one would be, so context mode rolls over at the same point
+            int carried = request.has("context") ? request.getAsJsonArray("context").size() : 0;
+            JsonArray context = new JsonArray();
+            for (int i = 0; i < carried + promptTokens + evalTokens; i++) {
+                context.add(0);
+            }
+            done.add("context", context);
+        }
+        return done;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
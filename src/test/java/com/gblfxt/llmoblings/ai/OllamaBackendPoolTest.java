@@ -0,0 +1,168 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The backend pool against stub servers: {@link MockOllamaServer}s for routing, and a bare
+ * server that answers slowly for retiring a pool.
+ */
+class OllamaBackendPoolTest {
+
+    private HttpServer server;
+    private final List<MockOllamaServer> mocks = new ArrayList<>();
+    private OllamaBackendPool pool;
+    private LLMRequestScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        mocks.forEach(MockOllamaServer::close);
+    }
+
+    @Test
+    void companionSticksToItsBackend() throws Exception {
+        List<OllamaBackendPool.Backend> backends = startMocks(2);
+        OllamaClient client = new OllamaClient(() -> "Test", pool, scheduler);
+
+        chat(client);
+        OllamaBackendPool.Backend first = busiest(backends);
+        for (int i = 0; i < 4; i++) {
+            chat(client);
+        }
+        assertEquals(5, first.getRequestCount(), "every chat went to the same backend");
+    }
+
+    @Test
+    void summariesDoNotMoveTheCompanion() throws Exception {
+        List<OllamaBackendPool.Backend> backends = startMocks(2);
+        OllamaClient client = new OllamaClient(() -> "Test", pool, scheduler);
+
+        chat(client);
+        OllamaBackendPool.Backend home = busiest(backends);
+        OllamaBackendPool.Backend other = backends.get(0) == home ? backends.get(1) : backends.get(0);
+
+        // The summary has to go elsewhere while the companion's backend is out
+        home.getBreaker().trip("test");
+        client.summarize("", List.of(new OllamaClient.ChatMessage("user", "remember my base is at 100 64 200")))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(1, other.getRequestCount());
+        home.getBreaker().onProbeSuccess();
+
+        chat(client);
+        assertEquals(2, home.getRequestCount(), "the next chat went back to the warm backend");
+        assertEquals(1, other.getRequestCount());
+    }
+
+    @Test
+    void retiredPoolFinishesRunningRequests() throws Exception {
+        OllamaBackendPool.Backend backend = startStub(300);
+        pool = new OllamaBackendPool(List.of(backend));
+
+        backend.begin();
+        pool.retire(Duration.ofSeconds(10));
+        HttpResponse<String> response = pool.getHttpClient().send(
+                HttpRequest.newBuilder(backend.uri("/api/chat")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertFalse(pool.isClosed(), "still in use");
+
+        backend.end();
+        assertTrue(waitFor(pool::isClosed), "closed once drained");
+    }
+
+    @Test
+    void retiredPoolClosesAfterTheGracePeriod() throws Exception {
+        OllamaBackendPool.Backend backend = startStub(0);
+        pool = new OllamaBackendPool(List.of(backend));
+
+        backend.begin();
+        pool.retire(Duration.ofMillis(100));
+        assertTrue(waitFor(pool::isClosed), "a stuck request doesn't keep the old threads forever");
+    }
+
+    private List<OllamaBackendPool.Backend> startMocks(int count) throws IOException {
+        List<OllamaBackendPool.Backend> backends = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MockOllamaServer mock = MockOllamaServer.start(new MockOllamaServer.Settings(0, 2000, 0));
+            mocks.add(mock);
+            backends.add(new OllamaBackendPool.Backend("127.0.0.1", mock.getPort(), MockOllamaServer.MODEL,
+                    new CircuitBreaker("mock-" + i, 50, 20_000, 60_000, System::nanoTime)));
+        }
+        pool = new OllamaBackendPool(backends);
+        scheduler = new LLMRequestScheduler(4, 16, 16);
+        return backends;
+    }
+
+    private static void chat(OllamaClient client) throws Exception {
+        client.chat("what's up?", LLMRequestScheduler.Priority.OWNER_COMMAND, UUID.randomUUID(), null)
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private static OllamaBackendPool.Backend busiest(List<OllamaBackendPool.Backend> backends) {
+        OllamaBackendPool.Backend busiest = backends.get(0);
+        for (OllamaBackendPool.Backend backend : backends) {
+            if (backend.getRequestCount() > busiest.getRequestCount()) {
+                busiest = backend;
+            }
+        }
+        return busiest;
+    }
+
+    private OllamaBackendPool.Backend startStub(long delayMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return new OllamaBackendPool.Backend("127.0.0.1", server.getAddress().getPort(), "stub:latest",
+                new CircuitBreaker("stub", 50, 20_000, 60_000, System::nanoTime));
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,166 @@
+package com.gblfxt.llmoblings.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The chat client against a stub backend that always answers with one HTTP status.
+ */
+class OllamaClientTest {
+
+    private final CountDownLatch unstall = new CountDownLatch(1);
+    private HttpServer server;
+    private OllamaBackendPool pool;
+    private LLMRequestScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        unstall.countDown();
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void clientErrorsDoNotTripTheBreaker() throws Exception {
+        OllamaBackendPool.Backend backend = startStub(404);
+        OllamaClient client = new OllamaClient(() -> "Test", pool, scheduler);
+
+        for (int i = 0; i < 8; i++) {
+            client.chat("what's up?", LLMRequestScheduler.Priority.OWNER_COMMAND, UUID.randomUUID(), null)
+                    .get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, backend.getBreaker().getState());
+        assertEquals(0, backend.getBreaker().getFailureRate());
+    }
+
+    @Test
+    void serverErrorsTripTheBreaker() throws Exception {
+        OllamaBackendPool.Backend backend = startStub(500);
+        OllamaClient client = new OllamaClient(() -> "Test", pool, scheduler);
+
+        for (int i = 0; i < 8; i++) {
+            client.chat("what's up?", LLMRequestScheduler.Priority.OWNER_COMMAND, UUID.randomUUID(), null)
+                    .get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, backend.getBreaker().getState());
+    }
+
+    @Test
+    void offlineRepliesOnlyFollowPlainCommands() throws Exception {
+        OllamaBackendPool.Backend backend = startStub(500);
+        backend.getBreaker().trip("test");
+        OllamaClient client = new OllamaClient(() -> "Test", pool, scheduler);
+
+        CompanionAction follow = client.chat("follow me", LLMRequestScheduler.Priority.OWNER_COMMAND, null, null)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("follow", follow.getAction());
+
+        CompanionAction chat = client.chat("don't follow me", LLMRequestScheduler.Priority.OWNER_COMMAND, null, null)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("idle", chat.getAction());
+        assertTrue(chat.getMessage() != null && !chat.getMessage().isEmpty());
+    }
+
+    @Test
+    void stalledStreamIsCutOffAtTheTimeout() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("{\"message\":{\"content\":\"{\\\"action\"},\"done\":false}\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            try {
+                unstall.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.close();
+        });
+        server.start();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/api/chat"))
+                .timeout(Duration.ofSeconds(1))
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        long start = System.nanoTime();
+        assertThrows(HttpTimeoutException.class,
+                () -> OllamaClient.readResponse(HttpClient.newHttpClient(), request, "stub:latest", null));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "gave up at the timeout, not when the server did");
+    }
+
+    @Test
+    void cancelledTurnsStayOutOfTheHistory() throws Exception {
+        try (MockOllamaServer mock = MockOllamaServer.start(new MockOllamaServer.Settings(500, 400, 0))) {
+            pool = new OllamaBackendPool(List.of(new OllamaBackendPool.Backend("127.0.0.1", mock.getPort(), MockOllamaServer.MODEL)));
+            scheduler = new LLMRequestScheduler(4, 16, 16);
+            OllamaClient client = new OllamaClient(() -> "Test", pool, scheduler);
+
+            // Cancelled mid-request, as for an urgent stop or a follow-up merged into it
+            CompletableFuture<CompanionAction> first = client.chat("mine iron", LLMRequestScheduler.Priority.OWNER_COMMAND, null, null);
+            Thread.sleep(100);
+            first.cancel(true);
+            while (scheduler.getInFlightCount() > 0) {
+                Thread.sleep(10);
+            }
+            assertTrue(client.getHistory().isEmpty(), "no unanswered turn left behind");
+
+            client.chat("mine iron. actually gold", LLMRequestScheduler.Priority.OWNER_COMMAND, null, null)
+                    .get(10, TimeUnit.SECONDS);
+            List<OllamaClient.ChatMessage> history = client.getHistory();
+            assertEquals(2, history.size());
+            assertEquals("user", history.get(0).role());
+            assertEquals("mine iron. actually gold", history.get(0).content());
+            assertEquals("assistant", history.get(1).role());
+        }
+    }
+
+    private OllamaBackendPool.Backend startStub(int status) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = "{\"error\":\"stub\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        OllamaBackendPool.Backend backend = new OllamaBackendPool.Backend("127.0.0.1", server.getAddress().getPort(), "stub:latest",
+                new CircuitBreaker("stub", 50, 20_000, 60_000, System::nanoTime));
+        pool = new OllamaBackendPool(List.of(backend));
+        scheduler = new LLMRequestScheduler(4, 16, 16);
+        return backend;
+    }
+}
@@ -0,0 +1,57 @@
+package com.gblfxt.llmoblings.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the compiled keyword matcher against the baseline contains() parser over a corpus of real
+ * chat lines. {@link LLMBenchmark#timeParsers} times the two.
+ */
+class ParserBenchmarkTest {
+
+    // Typical chat lines, including the examples from the README and the system prompt
+    static final String[] CORPUS = {
+            "follow me", "stay here", "come here", "go autonomous", "explore the area",
+            "get me some wood", "attack that zombie", "defend me", "retreat!", "what's your status?",
+            "mine 10 iron", "gather 64 oak logs", "can you find diamonds", "go home", "set home here",
+            "build a house here", "build me a cottage at 100 64 200", "sleep in the bed", "tpa Steve",
+            "teleport to Alex please", "tpaccept", "deny tp", "go through the portal", "follow me into the nether",
+            "wait by the portal", "get iron armor", "craft diamond gear", "get gear from me", "deposit everything",
+            "put away your items", "find a pokemon buddy", "bond with Pikachu", "release your buddy",
+            "how is your pokemon?", "equip your gadget", "set gadget to stone", "configure gadget for oak planks range 5",
+            "use the gadget", "check your backpack", "store the cobblestone in your backpack",
+            "stash everything in backpack", "get 10 diamonds from backpack", "what's in your backpack",
+            "organize your backpack", "take the elevator up", "go down a floor", "cobblestats brief",
+            "pokemon stats for Charizard", "what's AE2?", "know any good enchants?", "seen any Pokemon?",
+            "hello there!", "how's it going", "lol nice", "thanks buddy", "do you like this modpack",
+            "I'm going to bed, see you tomorrow", "what should we build next?", "ugh creepers everywhere",
+            "look around for villages", "hunt some cows for food", "stop attacking my dog"
+    };
+
+    // Edge cases for argument extraction and keyword order
+    private static final String[] EDGE_CASES = {
+            "Tpa   Bob now", "teleport to ", "store  diamonds into my backpack", "get 5 diamonds out of my backpack",
+            "grab backpack", "bond with", "gadget set to oak_planks", "gadget range 7", "setup gadget with glass",
+            "enter the nether portal", "don't go through the end portal", "go up to the next floor",
+            "check pokemon ivs on Eevee", "mon stats full of Pikachu", "stats pokemon", "BUILD A HOUSE RIGHT HERE",
+            "pack", "modpack rocks", "poke around", "come with me through the portal"
+    };
+
+    @Test
+    void matcherParsesLikeBaseline() {
+        List<String> lines = new ArrayList<>(List.of(CORPUS));
+        lines.addAll(List.of(EDGE_CASES));
+        for (String line : lines) {
+            assertEquals(BaselineKeywordParser.parseFromKeywords(line).toJson().toString(),
+                    parseWithMatcher(line).toJson().toString(), line);
+        }
+    }
+
+    static CompanionAction parseWithMatcher(String text) {
+        return IntentClassifier.parseFromKeywords(text, IntentClassifier.Keywords.MATCHER.match(text));
+    }
+}